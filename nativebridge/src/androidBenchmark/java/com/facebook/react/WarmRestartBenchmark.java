@@ -0,0 +1,131 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.facebook.react.benchmark.Benchmark;
+import com.facebook.react.bridge.ReactMarker;
+import com.facebook.react.bridge.ReactMarkerConstants;
+import com.facebook.soloader.SoLoader;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs on a device, since restarting needs the JS VM.
+ */
+public class WarmRestartBenchmark {
+
+  private static final String BUNDLE_FILE = "assets://js-bridge-bundle.js";
+  private static final long TIMEOUT_MS = 30000;
+
+  // When the setup of each new react context ends, whichever instance manager it belongs to.
+  private final BlockingQueue<Long> mSetupEndTimesNs = new LinkedBlockingQueue<>();
+  private final ReactMarker.MarkerListener mSetupListener = new ReactMarker.MarkerListener() {
+    @Override
+    public void logMarker(ReactMarkerConstants name, @Nullable String tag, int instanceKey) {
+      if (name == ReactMarkerConstants.SETUP_REACT_CONTEXT_END) {
+        mSetupEndTimesNs.add(System.nanoTime());
+      }
+    }
+  };
+
+  private Application mApplication;
+
+  @Before
+  public void setUp() {
+    mApplication = (Application) InstrumentationRegistry.getInstrumentation()
+        .getTargetContext()
+        .getApplicationContext();
+    SoLoader.init(mApplication, false);
+    ReactMarker.addListener(mSetupListener);
+  }
+
+  @After
+  public void tearDown() {
+    ReactMarker.removeListener(mSetupListener);
+  }
+
+  /**
+   * Benchmarks the time from asking for a restart to the new react context being set up, reusing
+   * the queue threads, the context and the native modules of the current one, against recreating
+   * everything as when warm restart is disabled.
+   */
+  @Test
+  public void restartLatency() throws Exception {
+    final ReactInstanceManager warmManager = createStartedInstanceManager(true);
+    final ReactInstanceManager coldManager = createStartedInstanceManager(false);
+    new Benchmark("Restarting the react context", 1, "restart")
+        .addVariant("warm", new Benchmark.Variant() {
+          @Override
+          public long run() throws Exception {
+            return timeRestart(warmManager);
+          }
+        })
+        .addVariant("cold", new Benchmark.Variant() {
+          @Override
+          public long run() throws Exception {
+            return timeRestart(coldManager);
+          }
+        })
+        .run();
+
+    // Otherwise the warm variant fell back to a cold restart.
+    assertTrue(warmManager.getLastWarmRestartLatencyMs() >= 0);
+  }
+
+  private ReactInstanceManager createStartedInstanceManager(boolean warmRestartEnabled)
+      throws InterruptedException {
+    final ReactInstanceManager manager = ReactInstanceManager.builder()
+        .setApplication(mApplication)
+        .setJSBundleFile(BUNDLE_FILE)
+        .setWarmRestartEnabled(warmRestartEnabled)
+        .build();
+    InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        manager.createReactContextInBackground();
+      }
+    });
+    awaitSetupEnd();
+    return manager;
+  }
+
+  /**
+   * @return time from asking {@code manager} for a restart to its new react context being set up,
+   * in nanoseconds.
+   */
+  private long timeRestart(final ReactInstanceManager manager) throws InterruptedException {
+    final long[] startNs = new long[1];
+    InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+      @Override
+      public void run() {
+        startNs[0] = System.nanoTime();
+        manager.warmRestartReactContextInBackground();
+      }
+    });
+    return awaitSetupEnd() - startNs[0];
+  }
+
+  private long awaitSetupEnd() throws InterruptedException {
+    Long setupEndNs = mSetupEndTimesNs.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull("The react context was never set up", setupEndNs);
+    return setupEndNs;
+  }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.facebook.react.bridge.CatalystInstanceImpl.PendingJSCall;
+import com.facebook.react.bridge.queue.MessageQueueThreadImpl;
+import com.facebook.react.bridge.queue.MessageQueueThreadSpec;
+import com.facebook.react.bridge.queue.QueueThreadExceptionHandler;
+import com.facebook.soloader.SoLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs on a device since the batches are native arrays and the window is timed on the main Looper.
+ */
+public class JSCallBatcherTest {
+
+  private static final long WINDOW_MS = 200;
+  private static final long LONG_WINDOW_MS = 60000;
+  private static final long TIMEOUT_MS = 5000;
+  private static final String MODULE = "TestModule";
+
+  private MessageQueueThreadImpl mQueue;
+  // Dispatched calls, and whether each was dispatched on the queue.
+  private final BlockingQueue<PendingJSCall> mDispatchedCalls = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Boolean> mDispatchedOnQueue = new LinkedBlockingQueue<>();
+
+  @BeforeClass
+  public static void loadNativeLibraries() {
+    SoLoader.init(InstrumentationRegistry.getInstrumentation().getTargetContext(), false);
+  }
+
+  @Before
+  public void setUp() {
+    mQueue = MessageQueueThreadImpl.create(
+        MessageQueueThreadSpec.newBackgroundThreadSpec("js"),
+        new QueueThreadExceptionHandler() {
+          @Override
+          public void handleException(Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+
+  @After
+  public void tearDown() {
+    mQueue.quitSynchronous();
+  }
+
+  @Test
+  public void expiredWindowIsFlushedOnTheFlushQueue() throws Exception {
+    JSCallBatcher batcher = createBatcher(WINDOW_MS);
+    batcher.enqueue(createCall("first"));
+    batcher.enqueue(createCall("second"));
+    assertTrue(mDispatchedCalls.isEmpty());
+
+    PendingJSCall batch = mDispatchedCalls.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull(batch);
+    assertTrue(mDispatchedOnQueue.take());
+    assertEquals(methods("first", "second"), getBatchedMethods(batch));
+    assertNull(mDispatchedCalls.poll(3 * WINDOW_MS, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void fullBatchIsFlushedRightAway() {
+    JSCallBatcher batcher = createBatcher(LONG_WINDOW_MS);
+    List<String> expectedMethods = new ArrayList<>();
+    for (int i = 0; i < JSCallBatcher.MAX_BATCH_SIZE; i++) {
+      String method = "method" + i;
+      expectedMethods.add(method);
+      batcher.enqueue(createCall(method));
+    }
+
+    assertEquals(1, mDispatchedCalls.size());
+    // By the caller making the call that filled it.
+    assertFalse(mDispatchedOnQueue.poll());
+    assertEquals(expectedMethods, getBatchedMethods(mDispatchedCalls.poll()));
+    assertEquals(JSCallBatcher.MAX_BATCH_SIZE, batcher.getMaxBatchSize());
+  }
+
+  @Test
+  public void unbatchableCallIsDispatchedAfterTheBufferedCalls() {
+    JSCallBatcher batcher = createBatcher(LONG_WINDOW_MS);
+    batcher.enqueue(createCall("first"));
+    batcher.enqueue(createCall("second"));
+    // Only writable native arrays can be moved into a batch.
+    WritableNativeArray holder = new WritableNativeArray();
+    holder.pushArray(new WritableNativeArray());
+    batcher.enqueue(new PendingJSCall(MODULE, "unbatchable", holder.getArray(0)));
+    batcher.enqueue(createCall("third"));
+    batcher.flush();
+
+    assertEquals(3, mDispatchedCalls.size());
+    assertEquals(methods("first", "second"), getBatchedMethods(mDispatchedCalls.poll()));
+    assertEquals("unbatchable", mDispatchedCalls.poll().mMethod);
+    // A batch of one is sent as is.
+    assertEquals("third", mDispatchedCalls.poll().mMethod);
+  }
+
+  private JSCallBatcher createBatcher(long windowMs) {
+    return new JSCallBatcher(
+        new JSCallBatcher.Dispatcher() {
+          @Override
+          public void dispatch(PendingJSCall call) {
+            mDispatchedOnQueue.add(mQueue.isOnThread());
+            mDispatchedCalls.add(call);
+          }
+
+          @Override
+          public boolean isDestroyed() {
+            return false;
+          }
+        },
+        mQueue,
+        TimeUnit.MILLISECONDS.toMicros(windowMs));
+  }
+
+  private static PendingJSCall createCall(String method) {
+    WritableNativeArray arguments = new WritableNativeArray();
+    arguments.pushString(method);
+    return new PendingJSCall(MODULE, method, arguments);
+  }
+
+  /**
+   * @return the methods called by {@code batch}, in order.
+   */
+  private static List<String> getBatchedMethods(PendingJSCall batch) {
+    assertEquals("JSCallBatch.callFunctions", batch.mModule + "." + batch.mMethod);
+    List<?> entries = (List<?>) ((ReadableNativeArray) batch.mArguments).toArrayList().get(0);
+    List<String> methods = new ArrayList<>();
+    for (Object entry : entries) {
+      List<?> call = (List<?>) entry;
+      assertEquals(MODULE, call.get(0));
+      // Each call's arguments went along with it.
+      assertEquals(call.get(1), ((List<?>) call.get(2)).get(0));
+      methods.add((String) call.get(1));
+    }
+    return methods;
+  }
+
+  private static List<String> methods(String... methods) {
+    List<String> list = new ArrayList<>();
+    for (String method : methods) {
+      list.add(method);
+    }
+    return list;
+  }
+}
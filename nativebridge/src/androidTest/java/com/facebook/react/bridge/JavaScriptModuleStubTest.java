@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.facebook.soloader.SoLoader;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that the stubs generated by {@code JavaScriptModuleStubProcessor} send the same arguments
+ * as the proxies they replace. Runs on a device since the arguments are native arrays.
+ */
+public class JavaScriptModuleStubTest {
+
+  public interface MarshalingModule extends JavaScriptModule {
+    void primitives(boolean b, int i, float f, double d);
+
+    void boxed(Boolean b, Integer i, Float f, Double d);
+
+    void strings(String s, String nullString);
+
+    void collections(
+        WritableMap map,
+        WritableNativeMap nativeMap,
+        WritableArray array,
+        WritableNativeArray nativeArray);
+
+    void objects(Object number, Object string, Object nullObject);
+
+    void varargs(String first, Object... rest);
+  }
+
+  /**
+   * Makes the same call on each implementation of the module, with arguments of its own since
+   * pushing a native map or array consumes it.
+   */
+  private interface Call {
+    void make(MarshalingModule module);
+  }
+
+  /**
+   * Records the JS calls made on a {@link CatalystInstance} proxy. Only callFunction is expected.
+   */
+  private static class RecordingInstanceHandler implements InvocationHandler {
+    private final List<String> mMethods = new ArrayList<>();
+    private final List<NativeArray> mArguments = new ArrayList<>();
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (!method.getName().equals("callFunction")) {
+        throw new UnsupportedOperationException(method.getName());
+      }
+      mMethods.add(args[0] + "." + args[1]);
+      mArguments.add((NativeArray) args[2]);
+      return null;
+    }
+  }
+
+  private RecordingInstanceHandler mHandler;
+  private MarshalingModule mStub;
+  private MarshalingModule mProxy;
+
+  @BeforeClass
+  public static void loadNativeLibraries() {
+    SoLoader.init(InstrumentationRegistry.getInstrumentation().getTargetContext(), false);
+  }
+
+  @Before
+  public void setUp() {
+    mHandler = new RecordingInstanceHandler();
+    CatalystInstance instance = (CatalystInstance) Proxy.newProxyInstance(
+        CatalystInstance.class.getClassLoader(),
+        new Class[]{CatalystInstance.class},
+        mHandler);
+    mStub = new JavaScriptModuleRegistry().getJavaScriptModule(instance, MarshalingModule.class);
+    assertTrue(
+        "No stub was generated for " + MarshalingModule.class.getName(),
+        mStub.getClass().getName().endsWith("$$JavaScriptModuleStub"));
+    mProxy = (MarshalingModule) Proxy.newProxyInstance(
+        MarshalingModule.class.getClassLoader(),
+        new Class[]{MarshalingModule.class},
+        new JavaScriptModuleRegistry.JavaScriptModuleInvocationHandler(
+            instance,
+            MarshalingModule.class));
+  }
+
+  @Test
+  public void primitivesAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.primitives(true, 42, 1.1f, 2.5);
+      }
+    });
+  }
+
+  @Test
+  public void boxedValuesAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.boxed(false, -7, 1.1f, 2.5);
+      }
+    });
+  }
+
+  @Test
+  public void boxedNullsAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.boxed(null, null, null, null);
+      }
+    });
+  }
+
+  @Test
+  public void stringsAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.strings("value", null);
+      }
+    });
+  }
+
+  @Test
+  public void mapsAndArraysAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        WritableNativeMap map = new WritableNativeMap();
+        map.putString("key", "value");
+        map.putDouble("number", 3);
+        WritableNativeArray array = new WritableNativeArray();
+        array.pushBoolean(true);
+        array.pushNull();
+        module.collections(map, new WritableNativeMap(), array, new WritableNativeArray());
+      }
+    });
+  }
+
+  @Test
+  public void nullMapsAndArraysAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.collections(null, null, null, null);
+      }
+    });
+  }
+
+  @Test
+  public void objectsAreMarshaledLikeTheProxy() {
+    assertSameCall(new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.objects(42, "value", null);
+      }
+    });
+  }
+
+  /**
+   * The varargs array is a single argument, which neither path can convert.
+   */
+  @Test
+  public void varargsFailLikeTheProxy() {
+    Call call = new Call() {
+      @Override
+      public void make(MarshalingModule module) {
+        module.varargs("first", "second", 3);
+      }
+    };
+    assertEquals(getFailure(call, mProxy).getMessage(), getFailure(call, mStub).getMessage());
+  }
+
+  private void assertSameCall(Call call) {
+    call.make(mProxy);
+    call.make(mStub);
+
+    assertEquals(2, mHandler.mArguments.size());
+    assertEquals(mHandler.mMethods.get(0), mHandler.mMethods.get(1));
+    assertEquals(
+        ((ReadableNativeArray) mHandler.mArguments.get(0)).toArrayList(),
+        ((ReadableNativeArray) mHandler.mArguments.get(1)).toArrayList());
+  }
+
+  private static RuntimeException getFailure(Call call, MarshalingModule module) {
+    try {
+      call.make(module);
+    } catch (RuntimeException e) {
+      assertNotNull(e.getMessage());
+      return e;
+    }
+    fail("Expected " + module.getClass().getName() + " to fail");
+    return null;
+  }
+}
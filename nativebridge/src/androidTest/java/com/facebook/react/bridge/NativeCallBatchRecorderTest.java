@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.queue.MessageQueueThreadImpl;
+import com.facebook.react.bridge.queue.MessageQueueThreadSpec;
+import com.facebook.react.bridge.queue.QueueThreadExceptionHandler;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs on a device since the windows are closed by a timer on the main Looper.
+ */
+public class NativeCallBatchRecorderTest {
+
+  private static final long WINDOW_MS = 100;
+  private static final long TIMEOUT_MS = 5000;
+
+  private MessageQueueThreadImpl mQueue;
+  private NativeCallBatchRecorder mRecorder;
+  private final BlockingQueue<NativeCallBatchWindow> mWindows = new LinkedBlockingQueue<>();
+
+  @Before
+  public void setUp() {
+    mQueue = MessageQueueThreadImpl.create(
+        MessageQueueThreadSpec.newBackgroundThreadSpec("native_modules"),
+        new QueueThreadExceptionHandler() {
+          @Override
+          public void handleException(Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+    mRecorder = new NativeCallBatchRecorder(mQueue, WINDOW_MS);
+    mRecorder.addListener(new NativeCallBatchListener() {
+      @Override
+      public void onNativeCallBatchWindow(NativeCallBatchWindow window) {
+        mWindows.add(window);
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    mQueue.quitSynchronous();
+  }
+
+  @Test
+  public void windowIsDeliveredWhenTheBridgeGoesQuiet() throws Exception {
+    long startMs = SystemClock.uptimeMillis();
+    runBatch("FirstModule", "FirstModule", "SecondModule");
+
+    NativeCallBatchWindow window = mWindows.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull(window);
+    assertTrue(SystemClock.uptimeMillis() - startMs >= WINDOW_MS);
+    assertEquals(WINDOW_MS, window.getDurationMs());
+    assertEquals(1, window.getBatchCount());
+    assertEquals(3, window.getCallCount());
+    assertEquals(Integer.valueOf(2), window.getModuleCallCounts().get("FirstModule"));
+    assertNull(mWindows.poll(3 * WINDOW_MS, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void idleTimeIsNotCountedInTheNextWindow() throws Exception {
+    runBatch("FirstModule");
+    assertNotNull(mWindows.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Thread.sleep(2 * WINDOW_MS);
+
+    long startMs = SystemClock.uptimeMillis();
+    runBatch("SecondModule");
+    runBatch("SecondModule");
+
+    NativeCallBatchWindow window = mWindows.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertNotNull(window);
+    assertTrue(window.getStartTimeMs() >= startMs);
+    assertEquals(WINDOW_MS, window.getDurationMs());
+    assertEquals(2, window.getBatchCount());
+    assertTrue(window.getMaxGapTimeMs() < WINDOW_MS);
+    assertNull(window.getModuleCallCounts().get("FirstModule"));
+  }
+
+  @Test
+  public void stopCancelsTheTimer() throws Exception {
+    runBatch("FirstModule");
+    mQueue.runOnQueueSync(new Runnable() {
+      @Override
+      public void run() {
+        mRecorder.stop();
+      }
+    });
+
+    assertNull(mWindows.poll(3 * WINDOW_MS, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Posts the calls of a batch then its completion to the queue, the way C++ does.
+   */
+  private void runBatch(String... moduleNames) {
+    for (final String moduleName : moduleNames) {
+      mQueue.runOnQueue(new Runnable() {
+        @Override
+        public void run() {
+          mRecorder.onNativeCall(moduleName);
+        }
+      });
+    }
+    mQueue.runOnQueueSync(new Runnable() {
+      @Override
+      public void run() {
+        mRecorder.onBatchComplete();
+      }
+    });
+  }
+}
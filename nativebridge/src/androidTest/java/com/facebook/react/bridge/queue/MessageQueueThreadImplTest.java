@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Runs on a device since the queue needs a real Looper.
+ */
+public class MessageQueueThreadImplTest {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  private static final QueueThreadExceptionHandler RETHROW = new QueueThreadExceptionHandler() {
+    @Override
+    public void handleException(Exception e) {
+      throw new RuntimeException(e);
+    }
+  };
+
+  @Test
+  public void quitReleasesBlockedSyncCallerOnUnboundedQueue() throws Exception {
+    quitReleasesBlockedSyncCaller(MessageQueueThreadSpec.newBackgroundThreadSpec("test"));
+  }
+
+  @Test
+  public void quitReleasesBlockedSyncCallerOnBoundedQueue() throws Exception {
+    quitReleasesBlockedSyncCaller(
+        MessageQueueThreadSpec.newBackgroundThreadSpec("test")
+            .withCapacity(4, QueueOverflowPolicy.DROP_OLDEST));
+  }
+
+  @Test
+  public void syncCallAfterQuitFailsFast() {
+    MessageQueueThreadImpl queue = MessageQueueThreadImpl.create(
+        MessageQueueThreadSpec.newBackgroundThreadSpec("test"),
+        RETHROW);
+    queue.quitSynchronous();
+    try {
+      queue.runOnQueueSync(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+      fail("Expected an IllegalStateException");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void dropNewestFailsTheRejectedCall() throws Exception {
+    MessageQueueThreadImpl queue = createBoundedQueue(QueueOverflowPolicy.DROP_NEWEST);
+    CountDownLatch release = block(queue);
+    Future<String> accepted = queue.callOnQueue(returning("accepted"));
+    Future<String> rejected = queue.callOnQueue(returning("rejected"));
+
+    assertDropped(rejected);
+    release.countDown();
+    assertEquals("accepted", accepted.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(1, queue.getRejectedTaskCount());
+    queue.quitSynchronous();
+  }
+
+  @Test
+  public void dropOldestFailsTheEvictedCall() throws Exception {
+    evictionFailsTheEvictedCall(QueueOverflowPolicy.DROP_OLDEST);
+  }
+
+  @Test
+  public void coalesceFailsTheEvictedCall() throws Exception {
+    evictionFailsTheEvictedCall(QueueOverflowPolicy.COALESCE);
+  }
+
+  @Test
+  public void quitRejectsBlockedProducer() throws Exception {
+    final MessageQueueThreadImpl queue = createBoundedQueue(QueueOverflowPolicy.BLOCK);
+    CountDownLatch release = block(queue);
+    Future<String> pending = queue.callOnQueue(returning("pending"));
+
+    final AtomicReference<Future<String>> blocked = new AtomicReference<>();
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        blocked.set(queue.callOnQueue(returning("blocked")));
+      }
+    });
+    producer.start();
+    awaitParked(producer);
+
+    Thread quitter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.quitSynchronous();
+      }
+    });
+    quitter.start();
+    producer.join(TIMEOUT_MS);
+    assertFalse("Producer still blocked after quitSynchronous", producer.isAlive());
+    assertDropped(pending);
+    assertDropped(blocked.get());
+    assertEquals(1, queue.getRejectedTaskCount());
+
+    release.countDown();
+    quitter.join(TIMEOUT_MS);
+    assertFalse(quitter.isAlive());
+  }
+
+  private static void evictionFailsTheEvictedCall(QueueOverflowPolicy overflowPolicy)
+      throws Exception {
+    MessageQueueThreadImpl queue = createBoundedQueue(overflowPolicy);
+    CountDownLatch release = block(queue);
+    Future<String> evicted = queue.callOnQueue(returning("evicted"));
+    Future<String> accepted = queue.callOnQueue(returning("accepted"));
+
+    assertDropped(evicted);
+    release.countDown();
+    assertEquals("accepted", accepted.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(1, queue.getDroppedTaskCount());
+    queue.quitSynchronous();
+  }
+
+  private static void quitReleasesBlockedSyncCaller(MessageQueueThreadSpec spec) throws Exception {
+    final MessageQueueThreadImpl queue = MessageQueueThreadImpl.create(spec, RETHROW);
+
+    // Keeps the queue thread busy so the synchronous call stays pending.
+    CountDownLatch release = block(queue);
+
+    final AtomicBoolean ran = new AtomicBoolean();
+    final AtomicReference<Throwable> thrown = new AtomicReference<>();
+    Thread caller = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          queue.runOnQueueSync(new Runnable() {
+            @Override
+            public void run() {
+              ran.set(true);
+            }
+          });
+        } catch (Throwable t) {
+          thrown.set(t);
+        }
+      }
+    });
+    caller.start();
+    awaitParked(caller);
+
+    Thread quitter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.quitSynchronous();
+      }
+    });
+    quitter.start();
+
+    // The caller must be released by the quit itself, while the queue thread is still busy.
+    caller.join(TIMEOUT_MS);
+    assertFalse("Sync caller still blocked after quitSynchronous", caller.isAlive());
+    assertTrue(thrown.get() instanceof IllegalStateException);
+
+    release.countDown();
+    quitter.join(TIMEOUT_MS);
+    assertFalse(quitter.isAlive());
+    assertFalse(ran.get());
+  }
+
+  private static void awaitParked(Thread thread) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (thread.getState() != Thread.State.WAITING) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Sync caller never blocked, state " + thread.getState());
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  private static MessageQueueThreadImpl createBoundedQueue(QueueOverflowPolicy overflowPolicy) {
+    return MessageQueueThreadImpl.create(
+        MessageQueueThreadSpec.newBackgroundThreadSpec("test").withCapacity(1, overflowPolicy),
+        RETHROW);
+  }
+
+  /**
+   * Keeps the queue thread busy until the returned latch is counted down, so that what is
+   * submitted meanwhile stays pending.
+   */
+  private static CountDownLatch block(MessageQueueThread queue) throws InterruptedException {
+    final CountDownLatch busy = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    queue.runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        busy.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    assertTrue(busy.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    return release;
+  }
+
+  private static Callable<String> returning(final String value) {
+    return new Callable<String>() {
+      @Override
+      public String call() {
+        return value;
+      }
+    };
+  }
+
+  private static void assertDropped(Future<?> future) throws Exception {
+    try {
+      future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      fail("Expected the dropped call to fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContextWrapper;
+
+import com.facebook.react.benchmark.Benchmark;
+import com.facebook.react.bridge.BaseJavaModule;
+import com.facebook.react.bridge.ModuleSpec;
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.NativeModuleRegistry;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Provider;
+
+import org.junit.Test;
+
+public class NativeModuleRegistryBuilderBenchmark {
+
+  private static final int MODULE_COUNT = 50;
+
+  /**
+   * Package of {@link #MODULE_COUNT} modules needing eager init, taking from 0 to 4 milliseconds
+   * each to create. Half of them compute and half of them block, like modules reading their state
+   * from disk.
+   */
+  private static class EagerModulesPackage extends LazyReactPackage {
+    private final AtomicInteger mCreatedCount = new AtomicInteger();
+
+    @Override
+    protected List<ModuleSpec> getNativeModules(ReactApplicationContext reactContext) {
+      List<ModuleSpec> moduleSpecs = new ArrayList<>();
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        final String name = getModuleName(i);
+        final long costNs = (i % 5) * 1000000L;
+        final boolean blocks = i % 2 == 1;
+        moduleSpecs.add(ModuleSpec.nativeModuleSpec(name, new Provider<NativeModule>() {
+          @Override
+          public NativeModule get() {
+            Benchmark.spend(costNs, blocks);
+            mCreatedCount.incrementAndGet();
+            return new BaseJavaModule() {
+              @Override
+              public String getName() {
+                return name;
+              }
+            };
+          }
+        }));
+      }
+      return moduleSpecs;
+    }
+
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+      return new ReactModuleInfoProvider() {
+        @Override
+        public Map<String, ReactModuleInfo> getReactModuleInfos() {
+          Map<String, ReactModuleInfo> reactModuleInfos = new HashMap<>();
+          for (int i = 0; i < MODULE_COUNT; i++) {
+            String name = getModuleName(i);
+            reactModuleInfos.put(
+                name,
+                new ReactModuleInfo(name, name, false, true, false, false, false));
+          }
+          return reactModuleInfos;
+        }
+      };
+    }
+  }
+
+  private static String getModuleName(int index) {
+    return "EagerModule" + index;
+  }
+
+  private final ReactApplicationContext mReactContext =
+      new ReactApplicationContext(new ContextWrapper(null));
+
+  /**
+   * Benchmarks {@link NativeModuleRegistryBuilder#build} creating {@link #MODULE_COUNT} eager
+   * modules of varying cost on the calling thread alone, then on {@link ReactStartupExecutor}'s
+   * pool as well. Both must create every module once and register them in the same order.
+   */
+  @Test
+  public void parallelEagerModuleCreation() throws Exception {
+    new Benchmark("Creating " + MODULE_COUNT + " eager modules", 1, "build")
+        .addVariant("on the calling thread", new Benchmark.Variant() {
+          @Override
+          public long run() {
+            return timeBuild(false);
+          }
+        })
+        .addVariant(
+            "with a pool of " + ReactStartupExecutor.getPoolSize() + " threads",
+            new Benchmark.Variant() {
+              @Override
+              public long run() {
+                return timeBuild(true);
+              }
+            })
+        .run();
+  }
+
+  private long timeBuild(boolean parallel) {
+    EagerModulesPackage reactPackage = new EagerModulesPackage();
+    NativeModuleRegistryBuilder builder =
+        new NativeModuleRegistryBuilder(mReactContext, null, parallel);
+    builder.processPackage(reactPackage);
+
+    long startNs = System.nanoTime();
+    NativeModuleRegistry registry = builder.build();
+    long elapsedNs = System.nanoTime() - startNs;
+
+    assertEquals(MODULE_COUNT, reactPackage.mCreatedCount.get());
+    assertEquals(MODULE_COUNT, registry.getModuleCount());
+    for (int i = 0; i < MODULE_COUNT; i++) {
+      assertEquals(i, registry.getModuleId(getModuleName(i)));
+    }
+    return elapsedNs;
+  }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times variants of the same operation against each other, for the benchmarks.
+ * They are JUnit tests that only run with {@code -Pbenchmarks}, on the JVM with {@code test} or on a
+ * device with {@code connectedAndroidTest}.
+ *
+ * <p>Variants are run in turns, so that each gets the same warm up and the same share of whatever
+ * else the machine is doing, and each is reported by its fastest run: noise only makes runs slower.
+ */
+public final class Benchmark {
+
+  public interface Variant {
+
+    /**
+     * Runs the variant once.
+     *
+     * @return time taken by the part being measured, in nanoseconds.
+     */
+    long run() throws Exception;
+  }
+
+  private static final int DEFAULT_WARMUP_RUNS = 2;
+  private static final int DEFAULT_RUNS = 5;
+
+  private final String mTitle;
+  private final long mOperationsPerRun;
+  private final String mOperationUnit;
+  private final Map<String, Variant> mVariants = new LinkedHashMap<>();
+  private int mWarmupRuns = DEFAULT_WARMUP_RUNS;
+  private int mRuns = DEFAULT_RUNS;
+
+  /**
+   * @param operationsPerRun number of operations each run of a variant does, {@code operationUnit}
+   * being what an operation is, e.g. "lookup".
+   */
+  public Benchmark(String title, long operationsPerRun, String operationUnit) {
+    mTitle = title;
+    mOperationsPerRun = operationsPerRun;
+    mOperationUnit = operationUnit;
+  }
+
+  public Benchmark addVariant(String name, Variant variant) {
+    mVariants.put(name, variant);
+    return this;
+  }
+
+  public Benchmark setRuns(int warmupRuns, int runs) {
+    mWarmupRuns = warmupRuns;
+    mRuns = runs;
+    return this;
+  }
+
+  /**
+   * Runs the variants and reports them.
+   *
+   * @return the best time per operation of each variant in nanoseconds, in the order they were
+   * added.
+   */
+  public Map<String, Double> run() throws Exception {
+    List<Variant> variants = new ArrayList<>(mVariants.values());
+    for (int run = 0; run < mWarmupRuns; run++) {
+      for (Variant variant : variants) {
+        variant.run();
+      }
+    }
+    long[] bestNs = new long[variants.size()];
+    for (int i = 0; i < bestNs.length; i++) {
+      bestNs[i] = Long.MAX_VALUE;
+    }
+    for (int run = 0; run < mRuns; run++) {
+      for (int i = 0; i < variants.size(); i++) {
+        bestNs[i] = Math.min(bestNs[i], variants.get(i).run());
+      }
+    }
+
+    Map<String, Double> results = new LinkedHashMap<>();
+    StringBuilder report = new StringBuilder(mTitle).append(", best of ").append(mRuns).append(':');
+    int i = 0;
+    for (String name : mVariants.keySet()) {
+      double nsPerOperation = (double) bestNs[i++] / mOperationsPerRun;
+      results.put(name, nsPerOperation);
+      report.append("\n  ").append(name).append(": ").append(formatNs(nsPerOperation))
+          .append(" per ").append(mOperationUnit);
+    }
+    // The report is the point of running a benchmark.
+    System.out.println(report);
+    return results;
+  }
+
+  /**
+   * Stands in for work that takes {@code durationNs}, computing or blocked, e.g. on disk.
+   */
+  public static void spend(long durationNs, boolean blocks) {
+    if (blocks) {
+      try {
+        Thread.sleep(durationNs / 1000000L, (int) (durationNs % 1000000L));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return;
+    }
+    long endNs = System.nanoTime() + durationNs;
+    while (System.nanoTime() < endNs) {
+      // Busy.
+    }
+  }
+
+  private static String formatNs(double ns) {
+    if (ns >= 1000000) {
+      return String.format("%.2f ms", ns / 1000000);
+    }
+    if (ns >= 1000) {
+      return String.format("%.2f us", ns / 1000);
+    }
+    return String.format("%.1f ns", ns);
+  }
+}
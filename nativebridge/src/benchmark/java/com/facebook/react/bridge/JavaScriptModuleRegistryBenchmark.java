@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertSame;
+
+import com.facebook.react.benchmark.Benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class JavaScriptModuleRegistryBenchmark {
+
+  private static final int LOOKUP_THREADS = 8;
+  private static final int LOOKUPS_PER_THREAD = 1000000;
+
+  public interface FirstEventModule extends JavaScriptModule {
+    void emit();
+  }
+
+  public interface SecondEventModule extends JavaScriptModule {
+    void emit();
+  }
+
+  public interface ThirdEventModule extends JavaScriptModule {
+    void emit();
+  }
+
+  public interface TimerModule extends JavaScriptModule {
+    void callTimers();
+  }
+
+  private static final Class<?>[] LOOKED_UP_MODULES = {
+      FirstEventModule.class, SecondEventModule.class, ThirdEventModule.class, TimerModule.class};
+
+  /**
+   * How the lookup is made, so that the registry can be compared with a registry-wide lock.
+   */
+  private interface Lookup {
+    JavaScriptModule get(Class<? extends JavaScriptModule> moduleInterface);
+  }
+
+  // Lookups don't call JS.
+  private final CatalystInstance mInstance = (CatalystInstance) Proxy.newProxyInstance(
+      CatalystInstance.class.getClassLoader(),
+      new Class[]{CatalystInstance.class},
+      new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          throw new UnsupportedOperationException(method.getName());
+        }
+      });
+
+  /**
+   * Benchmarks {@link JavaScriptModuleRegistry#getJavaScriptModule} from {@link #LOOKUP_THREADS}
+   * threads at once, the way threads emitting events use it, against the same lookups serialized
+   * by a lock as they were when the method was synchronized. Starting from an empty registry also
+   * races the creation of each module.
+   */
+  @Test
+  public void contendedLookups() throws Exception {
+    new Benchmark(
+        "getJavaScriptModule from " + LOOKUP_THREADS + " threads",
+        (long) LOOKUP_THREADS * LOOKUPS_PER_THREAD,
+        "lookup")
+        .addVariant("lock free", new Benchmark.Variant() {
+          @Override
+          public long run() throws Exception {
+            final JavaScriptModuleRegistry registry = new JavaScriptModuleRegistry();
+            return timeContendedLookups(new Lookup() {
+              @Override
+              public JavaScriptModule get(Class<? extends JavaScriptModule> moduleInterface) {
+                return registry.getJavaScriptModule(mInstance, moduleInterface);
+              }
+            });
+          }
+        })
+        .addVariant("registry lock", new Benchmark.Variant() {
+          @Override
+          public long run() throws Exception {
+            final JavaScriptModuleRegistry registry = new JavaScriptModuleRegistry();
+            return timeContendedLookups(new Lookup() {
+              @Override
+              public JavaScriptModule get(Class<? extends JavaScriptModule> moduleInterface) {
+                synchronized (registry) {
+                  return registry.getJavaScriptModule(mInstance, moduleInterface);
+                }
+              }
+            });
+          }
+        })
+        .run();
+  }
+
+  /**
+   * @return the time taken by all the threads to do their lookups, in nanoseconds.
+   */
+  @SuppressWarnings("unchecked")
+  private static long timeContendedLookups(final Lookup lookup) throws Exception {
+    final CyclicBarrier start = new CyclicBarrier(LOOKUP_THREADS + 1);
+    final CountDownLatch done = new CountDownLatch(LOOKUP_THREADS);
+    final JavaScriptModule[][] seenModules = new JavaScriptModule[LOOKUP_THREADS][];
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[LOOKUP_THREADS];
+    for (int i = 0; i < LOOKUP_THREADS; i++) {
+      final int id = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          JavaScriptModule[] modules = new JavaScriptModule[LOOKED_UP_MODULES.length];
+          try {
+            start.await();
+            for (int j = 0; j < LOOKUPS_PER_THREAD; j++) {
+              int index = (j + id) % LOOKED_UP_MODULES.length;
+              JavaScriptModule module = lookup.get(
+                  (Class<? extends JavaScriptModule>) LOOKED_UP_MODULES[index]);
+              if (modules[index] == null) {
+                modules[index] = module;
+              } else if (modules[index] != module) {
+                throw new AssertionError("Got two instances of " + LOOKED_UP_MODULES[index]);
+              }
+            }
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          } finally {
+            seenModules[id] = modules;
+            done.countDown();
+          }
+        }
+      });
+      threads[i].start();
+    }
+    start.await();
+    long startNs = System.nanoTime();
+    done.await();
+    long elapsedNs = System.nanoTime() - startNs;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+    // Threads racing to create a module must all end up with the same instance.
+    for (int i = 1; i < LOOKUP_THREADS; i++) {
+      for (int j = 0; j < LOOKED_UP_MODULES.length; j++) {
+        assertSame(seenModules[0][j], seenModules[i][j]);
+      }
+    }
+    return elapsedNs;
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.ContextWrapper;
+
+import com.facebook.react.benchmark.Benchmark;
+import com.facebook.react.module.model.ReactModuleInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.Test;
+
+public class NativeModuleRegistryBenchmark {
+
+  private static final int[] REGISTRY_SIZES = {100, 1000, 10000};
+  private static final int EXTENSIONS = 200;
+
+  private final ReactApplicationContext mReactContext =
+      new ReactApplicationContext(new ContextWrapper(null));
+
+  private static ModuleHolder createModuleHolder(final String name, boolean isCxxModule) {
+    return new ModuleHolder(
+        new ReactModuleInfo(name, name, false, false, false, isCxxModule, false),
+        new Provider<NativeModule>() {
+          @Override
+          public NativeModule get() {
+            return new BaseJavaModule() {
+              @Override
+              public String getName() {
+                return name;
+              }
+            };
+          }
+        });
+  }
+
+  private NativeModuleRegistry createRegistry(int size) {
+    Map<String, ModuleHolder> modules = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      String name = "Module" + i;
+      // One module in ten is a C++ one, to exercise both partitions of the table.
+      modules.put(name, createModuleHolder(name, i % 10 == 0));
+    }
+    return new NativeModuleRegistry(mReactContext, modules);
+  }
+
+  /**
+   * Benchmarks extending registries of growing sizes by one module at a time, the way packages
+   * loaded later extend a running instance, including wrapping the Java modules that are handed to
+   * JNI. Reported next to the wrapping of the whole registry that each extension used to cost.
+   */
+  @Test
+  public void extensionLatency() throws Exception {
+    for (final int size : REGISTRY_SIZES) {
+      new Benchmark("Extending " + size + " modules", EXTENSIONS, "extension")
+          .addVariant("registering the new modules", new Benchmark.Variant() {
+            @Override
+            public long run() {
+              return timeExtensions(size);
+            }
+          })
+          .addVariant("wrapping the whole registry", new Benchmark.Variant() {
+            @Override
+            public long run() {
+              return timeFullWraps(size);
+            }
+          })
+          .run();
+    }
+  }
+
+  private long timeExtensions(int size) {
+    NativeModuleRegistry registry = createRegistry(size);
+    long startNs = System.nanoTime();
+    for (int i = 0; i < EXTENSIONS; i++) {
+      Map<String, ModuleHolder> modules = new LinkedHashMap<>();
+      modules.put("Extension" + i, createModuleHolder("Extension" + i, false));
+      // Already registered, so it must not be handed to JNI again.
+      modules.put("Module1", createModuleHolder("Module1", false));
+      NativeModuleRegistry addedModules =
+          registry.registerModules(new NativeModuleRegistry(mReactContext, modules));
+      assertEquals(1, addedModules.getJavaModules(null).size());
+    }
+    long elapsedNs = System.nanoTime() - startNs;
+
+    assertEquals(size + EXTENSIONS, registry.getModuleCount());
+    assertEquals(size + EXTENSIONS - 1, registry.getModuleId("Extension" + (EXTENSIONS - 1)));
+    return elapsedNs;
+  }
+
+  private long timeFullWraps(int size) {
+    NativeModuleRegistry registry = createRegistry(size);
+    long startNs = System.nanoTime();
+    for (int i = 0; i < EXTENSIONS; i++) {
+      registry.getJavaModules(null);
+    }
+    return System.nanoTime() - startNs;
+  }
+}
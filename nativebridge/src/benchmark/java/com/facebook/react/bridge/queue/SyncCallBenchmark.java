@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import static org.junit.Assert.assertEquals;
+
+import com.facebook.react.benchmark.Benchmark;
+import com.facebook.react.common.futures.SimpleSettableFuture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs against {@link ExecutorMessageQueueThread}, which shares the sync call path with the Looper
+ * based queues but doesn't need a Looper.
+ */
+public class SyncCallBenchmark {
+
+  private static final int CALLS = 100000;
+
+  private static final QueueThreadExceptionHandler RETHROW = new QueueThreadExceptionHandler() {
+    @Override
+    public void handleException(Exception e) {
+      throw new RuntimeException(e);
+    }
+  };
+
+  private static final Callable<Integer> ANSWER = new Callable<Integer>() {
+    @Override
+    public Integer call() {
+      return 42;
+    }
+  };
+
+  private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+  private ExecutorMessageQueueThread mQueue;
+
+  @Before
+  public void setUp() {
+    mQueue = ExecutorMessageQueueThread.create("benchmark", mExecutor, RETHROW);
+  }
+
+  @After
+  public void tearDown() {
+    mQueue.quitSynchronous();
+    mExecutor.shutdownNow();
+  }
+
+  /**
+   * Benchmarks the round trip of {@link MessageQueueThread#callOnQueueSync} from another thread,
+   * which hands the call over through the caller's {@link SyncCallSlot}, against posting a
+   * Runnable that completes a {@link SimpleSettableFuture} and waiting on it, as synchronous calls
+   * were made before.
+   */
+  @Test
+  public void syncCallRoundTrip() throws Exception {
+    new Benchmark("Synchronous call round trip", CALLS, "call")
+        .addVariant("sync call slot", new Benchmark.Variant() {
+          @Override
+          public long run() {
+            long startNs = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+              assertEquals(42, (int) mQueue.callOnQueueSync(ANSWER));
+            }
+            return System.nanoTime() - startNs;
+          }
+        })
+        .addVariant("settable future", new Benchmark.Variant() {
+          @Override
+          public long run() {
+            long startNs = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+              assertEquals(42, (int) callThroughFuture(ANSWER));
+            }
+            return System.nanoTime() - startNs;
+          }
+        })
+        .run();
+  }
+
+  private <T> T callThroughFuture(final Callable<T> callable) {
+    final SimpleSettableFuture<T> future = new SimpleSettableFuture<>();
+    mQueue.runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          future.set(callable.call());
+        } catch (Exception e) {
+          future.setException(e);
+        }
+      }
+    });
+    return future.getOrThrow();
+  }
+}
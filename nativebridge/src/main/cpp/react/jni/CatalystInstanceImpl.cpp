@@ -120,6 +120,8 @@ namespace facebook {
                                                     CatalystInstanceImpl::jniLoadScriptFromDeltaBundle),
                                    makeNativeMethod("jniCallJSFunction",
                                                     CatalystInstanceImpl::jniCallJSFunction),
+                                   makeNativeMethod("jniCallJSFunctionWithoutArguments",
+                                                    CatalystInstanceImpl::jniCallJSFunctionWithoutArguments),
                                    makeNativeMethod("jniCallJSCallback",
                                                     CatalystInstanceImpl::jniCallJSCallback),
                                    makeNativeMethod("setGlobalVariable",
@@ -261,6 +263,15 @@ namespace facebook {
                                       arguments->consume());
         }
 
+        void CatalystInstanceImpl::jniCallJSFunctionWithoutArguments(std::string module,
+                                                                     std::string method) {
+            // Saves Java from allocating (and C++ from consuming) an empty NativeArray
+            // for every call that has no arguments.
+            instance_->callJSFunction(std::move(module),
+                                      std::move(method),
+                                      folly::dynamic::array());
+        }
+
         void CatalystInstanceImpl::jniCallJSCallback(jint callbackId, NativeArray *arguments) {
             instance_->callJSCallback(callbackId, arguments->consume());
         }
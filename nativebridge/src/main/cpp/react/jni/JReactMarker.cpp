@@ -4,6 +4,7 @@
 // LICENSE file in the root directory of this source tree.
 
 #include "JReactMarker.h"
+#include <array>
 #include <mutex>
 #include <cxxreact/ReactMarker.h>
 #include <fb/fbjni.h>
@@ -18,51 +19,62 @@ void JReactMarker::setLogPerfMarkerIfNeeded() {
   });
 }
 
-void JReactMarker::logMarker(const std::string& marker) {
-  static auto cls = javaClassStatic();
-  static auto meth = cls->getStaticMethod<void(std::string)>("logMarker");
-  meth(cls, marker);
+namespace {
+
+struct JavaMarker {
+  // Name of the ReactMarkerConstants value, or nullptr if the marker isn't forwarded to Java.
+  const char* name;
+  bool hasTag;
+};
+
+// Indexed by ReactMarker::ReactMarkerId.
+const JavaMarker kJavaMarkers[] = {
+  // NATIVE_REQUIRE_START and NATIVE_REQUIRE_STOP are not used on Android.
+  {nullptr, false},
+  {nullptr, false},
+  {"RUN_JS_BUNDLE_START", true},
+  {"RUN_JS_BUNDLE_END", true},
+  {"CREATE_REACT_CONTEXT_END", false},
+  // Java has no markers for these, so they resolve to -1 and are dropped.
+  {"loadApplicationScript_startStringConvert", false},
+  {"loadApplicationScript_endStringConvert", false},
+  {"NATIVE_MODULE_SETUP_START", true},
+  {"NATIVE_MODULE_SETUP_END", true},
+  {"REGISTER_JS_SEGMENT_START", true},
+  {"REGISTER_JS_SEGMENT_STOP", true},
+};
+
+constexpr size_t kJavaMarkerCount = sizeof(kJavaMarkers) / sizeof(kJavaMarkers[0]);
+
 }
 
-void JReactMarker::logMarker(const std::string& marker, const std::string& tag) {
-  static auto cls = javaClassStatic();
-  static auto meth = cls->getStaticMethod<void(std::string, std::string)>("logMarker");
-  meth(cls, marker, tag);
+jint JReactMarker::getJavaOrdinal(const ReactMarker::ReactMarkerId markerId) {
+  // Resolved once, so that logging a marker doesn't look its name up on the Java side every time.
+  static const std::array<jint, kJavaMarkerCount> ordinals = []() {
+    auto cls = javaClassStatic();
+    auto getMarkerOrdinal = cls->getStaticMethod<jint(std::string)>("getMarkerOrdinal");
+    std::array<jint, kJavaMarkerCount> result;
+    for (size_t i = 0; i < kJavaMarkerCount; i++) {
+      result[i] = kJavaMarkers[i].name ? getMarkerOrdinal(cls, kJavaMarkers[i].name) : -1;
+    }
+    return result;
+  }();
+  size_t index = static_cast<size_t>(markerId);
+  return index < kJavaMarkerCount ? ordinals[index] : -1;
 }
 
 void JReactMarker::logPerfMarker(const ReactMarker::ReactMarkerId markerId, const char* tag) {
-  switch (markerId) {
-    case ReactMarker::RUN_JS_BUNDLE_START:
-      JReactMarker::logMarker("RUN_JS_BUNDLE_START", tag);
-      break;
-    case ReactMarker::RUN_JS_BUNDLE_STOP:
-      JReactMarker::logMarker("RUN_JS_BUNDLE_END", tag);
-      break;
-    case ReactMarker::CREATE_REACT_CONTEXT_STOP:
-      JReactMarker::logMarker("CREATE_REACT_CONTEXT_END");
-      break;
-    case ReactMarker::JS_BUNDLE_STRING_CONVERT_START:
-      JReactMarker::logMarker("loadApplicationScript_startStringConvert");
-      break;
-    case ReactMarker::JS_BUNDLE_STRING_CONVERT_STOP:
-      JReactMarker::logMarker("loadApplicationScript_endStringConvert");
-      break;
-    case ReactMarker::NATIVE_MODULE_SETUP_START:
-      JReactMarker::logMarker("NATIVE_MODULE_SETUP_START", tag);
-      break;
-    case ReactMarker::NATIVE_MODULE_SETUP_STOP:
-      JReactMarker::logMarker("NATIVE_MODULE_SETUP_END", tag);
-      break;
-    case ReactMarker::REGISTER_JS_SEGMENT_START:
-      JReactMarker::logMarker("REGISTER_JS_SEGMENT_START", tag);
-      break;
-    case ReactMarker::REGISTER_JS_SEGMENT_STOP:
-      JReactMarker::logMarker("REGISTER_JS_SEGMENT_STOP", tag);
-      break;
-    case ReactMarker::NATIVE_REQUIRE_START:
-    case ReactMarker::NATIVE_REQUIRE_STOP:
-      // These are not used on Android.
-      break;
+  jint ordinal = getJavaOrdinal(markerId);
+  if (ordinal < 0) {
+    // Not forwarded, or Java has no such marker.
+    return;
+  }
+  static auto cls = javaClassStatic();
+  static auto meth = cls->getStaticMethod<void(jint, jstring, jint)>("logMarker");
+  if (tag && kJavaMarkers[markerId].hasTag) {
+    meth(cls, ordinal, jni::make_jstring(tag).get(), 0);
+  } else {
+    meth(cls, ordinal, nullptr, 0);
   }
 }
 
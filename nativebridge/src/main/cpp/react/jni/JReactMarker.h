@@ -19,8 +19,7 @@ public:
   static void setLogPerfMarkerIfNeeded();
 
 private:
-  static void logMarker(const std::string& marker);
-  static void logMarker(const std::string& marker, const std::string& tag);
+  static jint getJavaOrdinal(const ReactMarker::ReactMarkerId markerId);
   static void logPerfMarker(const ReactMarker::ReactMarkerId markerId, const char* tag);
 };
 
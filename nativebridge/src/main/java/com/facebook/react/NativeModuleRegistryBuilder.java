@@ -8,23 +8,47 @@ package com.facebook.react;
 import com.facebook.react.bridge.ModuleHolder;
 import com.facebook.react.bridge.NativeModuleRegistry;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMarker;
 import com.facebook.react.config.ReactFeatureFlags;
+import com.facebook.systrace.Systrace;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_EAGER_MODULES_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_EAGER_MODULES_START;
+import static com.facebook.systrace.Systrace.TRACE_TAG_REACT_JAVA_BRIDGE;
 
 /** Helper class to build NativeModuleRegistry. */
 public class NativeModuleRegistryBuilder {
 
   private final ReactApplicationContext mReactApplicationContext;
   private final ReactInstanceManager mReactInstanceManager;
+  private final boolean mParallelEagerModuleCreation;
 
-  private final Map<String, ModuleHolder> mModules = new HashMap<>();
+  // Keeps registration order, so eager modules are created and their failures reported in it.
+  private final Map<String, ModuleHolder> mModules = new LinkedHashMap<>();
 
   public NativeModuleRegistryBuilder(
           ReactApplicationContext reactApplicationContext, ReactInstanceManager reactInstanceManager) {
+    this(reactApplicationContext, reactInstanceManager, false);
+  }
+
+  /**
+   * @param parallelEagerModuleCreation whether {@link #build} creates the modules that need eager
+   * init on {@link ReactStartupExecutor}'s pool as well as on the calling thread.
+   */
+  public NativeModuleRegistryBuilder(
+          ReactApplicationContext reactApplicationContext,
+          ReactInstanceManager reactInstanceManager,
+          boolean parallelEagerModuleCreation) {
     mReactApplicationContext = reactApplicationContext;
     mReactInstanceManager = reactInstanceManager;
+    mParallelEagerModuleCreation = parallelEagerModuleCreation;
   }
 
   public void processPackage(ReactPackage reactPackage) {
@@ -72,7 +96,108 @@ public class NativeModuleRegistryBuilder {
     }
   }
 
+  /**
+   * Creates the modules that need eager init, then builds the registry. Eager modules can't depend
+   * on each other while being created since there is no registry to look them up in yet, so they
+   * may be created concurrently. If any of them fails, the failure of the first one in
+   * registration order is thrown once all of them are done, with the others suppressed.
+   */
   public NativeModuleRegistry build() {
+    createEagerModules();
     return new NativeModuleRegistry(mReactApplicationContext, mModules);
   }
+
+  private void createEagerModules() {
+    List<ModuleHolder> eagerModules = new ArrayList<>();
+    for (ModuleHolder moduleHolder : mModules.values()) {
+      // Modules overridden by another package were never created, and won't be.
+      if (moduleHolder.isEagerInitPending()) {
+        eagerModules.add(moduleHolder);
+      }
+    }
+    if (eagerModules.isEmpty()) {
+      return;
+    }
+
+    ReactMarker.logMarker(CREATE_EAGER_MODULES_START);
+    Systrace.beginSection(TRACE_TAG_REACT_JAVA_BRIDGE, "createEagerModules");
+    try {
+      if (mParallelEagerModuleCreation && eagerModules.size() > 1) {
+        createModulesInParallel(eagerModules);
+      } else {
+        for (ModuleHolder moduleHolder : eagerModules) {
+          moduleHolder.getModule();
+        }
+      }
+    } finally {
+      Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
+      ReactMarker.logMarker(CREATE_EAGER_MODULES_END);
+    }
+  }
+
+  private static void createModulesInParallel(final List<ModuleHolder> moduleHolders) {
+    final int count = moduleHolders.size();
+    final AtomicInteger nextIndex = new AtomicInteger(0);
+    final CountDownLatch created = new CountDownLatch(count);
+    // Only read once created has been counted down, which publishes the writes.
+    final Throwable[] failures = new Throwable[count];
+
+    Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        int index;
+        while ((index = nextIndex.getAndIncrement()) < count) {
+          try {
+            moduleHolders.get(index).getModule();
+          } catch (Throwable t) {
+            failures[index] = t;
+          } finally {
+            created.countDown();
+          }
+        }
+      }
+    };
+    // The calling thread creates modules too, so this finishes even if the pool is busy with other
+    // startup stages: workers that start late find nothing left to create.
+    int workerCount = Math.min(ReactStartupExecutor.getPoolSize(), count - 1);
+    for (int i = 0; i < workerCount; i++) {
+      ReactStartupExecutor.execute(worker);
+    }
+    worker.run();
+
+    boolean interrupted = false;
+    while (true) {
+      try {
+        created.await();
+        break;
+      } catch (InterruptedException e) {
+        // Modules being created on the pool can't be cancelled, so finish waiting for them.
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    Throwable failure = null;
+    for (Throwable t : failures) {
+      if (t == null) {
+        continue;
+      }
+      if (failure == null) {
+        failure = t;
+      } else if (t != failure) {
+        failure.addSuppressed(t);
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+  }
 }
@@ -10,9 +10,13 @@ package com.facebook.react;
 
 import android.app.Activity;
 import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.facebook.common.logging.FLog;
 import com.facebook.debug.holder.PrinterHolder;
 import com.facebook.debug.tags.ReactDebugOverlayTags;
 import com.facebook.infer.annotation.Assertions;
@@ -24,7 +28,10 @@ import com.facebook.react.bridge.JSBundleLoader;
 import com.facebook.react.bridge.JSIModulePackage;
 import com.facebook.react.bridge.JavaScriptExecutor;
 import com.facebook.react.bridge.JavaScriptExecutorFactory;
+import com.facebook.react.bridge.MemoryPressure;
+import com.facebook.react.bridge.ModuleConstantsCache;
 import com.facebook.react.bridge.NativeModuleCallExceptionHandler;
+import com.facebook.react.bridge.NativeModulePrefetcher;
 import com.facebook.react.bridge.NativeModuleRegistry;
 import com.facebook.react.bridge.NotThreadSafeBridgeIdleDebugListener;
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -32,6 +39,7 @@ import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReactMarker;
 import com.facebook.react.bridge.ReactMarkerConstants;
 import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.queue.QueueOverflowPolicy;
 import com.facebook.react.bridge.queue.ReactQueueConfigurationSpec;
 import com.facebook.react.common.ReactConstants;
 import com.facebook.react.module.core.ReactChoreographer;
@@ -39,6 +47,7 @@ import com.facebook.soloader.SoLoader;
 import com.facebook.systrace.Systrace;
 import com.facebook.systrace.SystraceMessage;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -46,6 +55,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
@@ -57,9 +68,13 @@ import static com.facebook.react.bridge.ReactMarkerConstants.BUILD_NATIVE_MODULE
 import static com.facebook.react.bridge.ReactMarkerConstants.CHANGE_THREAD_PRIORITY;
 import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_CATALYST_INSTANCE_END;
 import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_CATALYST_INSTANCE_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_JS_EXECUTOR_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_JS_EXECUTOR_START;
 import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_REACT_CONTEXT_START;
 import static com.facebook.react.bridge.ReactMarkerConstants.PRE_SETUP_REACT_CONTEXT_END;
 import static com.facebook.react.bridge.ReactMarkerConstants.PRE_SETUP_REACT_CONTEXT_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.PREFETCH_JS_BUNDLE_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.PREFETCH_JS_BUNDLE_START;
 import static com.facebook.react.bridge.ReactMarkerConstants.PROCESS_PACKAGES_END;
 import static com.facebook.react.bridge.ReactMarkerConstants.PROCESS_PACKAGES_START;
 import static com.facebook.react.bridge.ReactMarkerConstants.REACT_CONTEXT_THREAD_END;
@@ -67,6 +82,8 @@ import static com.facebook.react.bridge.ReactMarkerConstants.REACT_CONTEXT_THREA
 import static com.facebook.react.bridge.ReactMarkerConstants.SETUP_REACT_CONTEXT_END;
 import static com.facebook.react.bridge.ReactMarkerConstants.SETUP_REACT_CONTEXT_START;
 import static com.facebook.react.bridge.ReactMarkerConstants.VM_INIT;
+import static com.facebook.react.bridge.ReactMarkerConstants.WARM_RESTART_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.WARM_RESTART_START;
 import static com.facebook.systrace.Systrace.TRACE_TAG_REACT_APPS;
 import static com.facebook.systrace.Systrace.TRACE_TAG_REACT_JAVA_BRIDGE;
 import static com.facebook.systrace.Systrace.TRACE_TAG_REACT_JS_VM_CALLS;
@@ -104,6 +121,38 @@ public class ReactInstanceManager {
     NativeModuleCallExceptionHandler mNativeModuleCallExceptionHandler;
     private final @Nullable
     JSIModulePackage mJSIModulePackage;
+    private final ReactQueueConfigurationSpec mReactQueueConfigurationSpec;
+    private final long mJSCallBatchingWindowUs;
+    private final int mJSCallsPendingInitCapacity;
+    private final QueueOverflowPolicy mJSCallsPendingInitOverflowPolicy;
+    private final long mBridgeIdleMinDwellMs;
+    private final boolean mWarmRestartEnabled;
+    private final boolean mParallelStartupEnabled;
+    private final @Nullable File mNativeModuleUsageFile;
+    private final @Nullable ModuleConstantsCache mModuleConstantsCache;
+    private volatile long mLastWarmRestartLatencyMs = -1;
+    private final @Nullable
+    StandbyReactContextPool mStandbyReactContextPool;
+    @ThreadConfined(UI)
+    private boolean mIsStandbyFillScheduled = false;
+    @ThreadConfined(UI)
+    private boolean mIsCreatingStandbyReactContext = false;
+    private final MessageQueue.IdleHandler mStandbyReactContextFillIdleHandler =
+            new MessageQueue.IdleHandler() {
+                @Override
+                public boolean queueIdle() {
+                    if (mCreateReactContextThread != null) {
+                        // Don't compete with the context the app is waiting for; try again next time
+                        // the UI thread is idle.
+                        return true;
+                    }
+                    mIsStandbyFillScheduled = false;
+                    if (!Assertions.assertNotNull(mStandbyReactContextPool).isFull()) {
+                        runCreateStandbyReactContextOnNewThread();
+                    }
+                    return false;
+                }
+            };
 
     /**
      * Listener interface for react instance events.
@@ -120,12 +169,26 @@ public class ReactInstanceManager {
     private class ReactContextInitParams {
         private final JavaScriptExecutorFactory mJsExecutorFactory;
         private final JSBundleLoader mJsBundleLoader;
+        private final @Nullable
+        ReactApplicationContext mReusedReactContext;
+        private final @Nullable
+        CatalystInstanceImpl.WarmRestartState mWarmRestartState;
 
         public ReactContextInitParams(
                 JavaScriptExecutorFactory jsExecutorFactory,
                 JSBundleLoader jsBundleLoader) {
+            this(jsExecutorFactory, jsBundleLoader, null, null);
+        }
+
+        public ReactContextInitParams(
+                JavaScriptExecutorFactory jsExecutorFactory,
+                JSBundleLoader jsBundleLoader,
+                @Nullable ReactApplicationContext reusedReactContext,
+                @Nullable CatalystInstanceImpl.WarmRestartState warmRestartState) {
             mJsExecutorFactory = Assertions.assertNotNull(jsExecutorFactory);
             mJsBundleLoader = Assertions.assertNotNull(jsBundleLoader);
+            mReusedReactContext = reusedReactContext;
+            mWarmRestartState = warmRestartState;
         }
 
         public JavaScriptExecutorFactory getJsExecutorFactory() {
@@ -135,6 +198,16 @@ public class ReactInstanceManager {
         public JSBundleLoader getJsBundleLoader() {
             return mJsBundleLoader;
         }
+
+        public @Nullable
+        ReactApplicationContext getReusedReactContext() {
+            return mReusedReactContext;
+        }
+
+        public @Nullable
+        CatalystInstanceImpl.WarmRestartState getWarmRestartState() {
+            return mWarmRestartState;
+        }
     }
 
     public static ReactInstanceManagerBuilder builder() {
@@ -154,7 +227,17 @@ public class ReactInstanceManager {
             boolean lazyViewManagersEnabled,
             int minNumShakes,
             int minTimeLeftInFrameForNonBatchedOperationMs,
-            @Nullable JSIModulePackage jsiModulePackage) {
+            @Nullable JSIModulePackage jsiModulePackage,
+            ReactQueueConfigurationSpec reactQueueConfigurationSpec,
+            long jsCallBatchingWindowUs,
+            int jsCallsPendingInitCapacity,
+            QueueOverflowPolicy jsCallsPendingInitOverflowPolicy,
+            long bridgeIdleMinDwellMs,
+            boolean warmRestartEnabled,
+            int standbyReactContextPoolSize,
+            boolean parallelStartupEnabled,
+            @Nullable File nativeModuleUsageFile,
+            @Nullable ModuleConstantsCache moduleConstantsCache) {
         Log.d(ReactConstants.TAG, "ReactInstanceManager.ctor()");
         initializeSoLoaderIfNecessary(applicationContext);
 
@@ -182,6 +265,18 @@ public class ReactInstanceManager {
             mPackages.addAll(packages);
         }
         mJSIModulePackage = jsiModulePackage;
+        mReactQueueConfigurationSpec = reactQueueConfigurationSpec;
+        mJSCallBatchingWindowUs = jsCallBatchingWindowUs;
+        mJSCallsPendingInitCapacity = jsCallsPendingInitCapacity;
+        mJSCallsPendingInitOverflowPolicy = jsCallsPendingInitOverflowPolicy;
+        mBridgeIdleMinDwellMs = bridgeIdleMinDwellMs;
+        mWarmRestartEnabled = warmRestartEnabled;
+        mParallelStartupEnabled = parallelStartupEnabled;
+        mNativeModuleUsageFile = nativeModuleUsageFile;
+        mModuleConstantsCache = moduleConstantsCache;
+        mStandbyReactContextPool = standbyReactContextPoolSize > 0
+                ? new StandbyReactContextPool(standbyReactContextPoolSize)
+                : null;
 
         // Instantiate ReactChoreographer in UI thread.
         ReactChoreographer.initialize();
@@ -210,6 +305,73 @@ public class ReactInstanceManager {
 
         mHasStartedCreatingInitialContext = true;
         recreateReactContextInBackgroundInner();
+        scheduleStandbyReactContextFill();
+    }
+
+    /**
+     * Restarts the current react context with the same bundle, keeping its queue threads, its
+     * {@link ReactApplicationContext} and its native modules for the new {@link CatalystInstance}:
+     * only the JS VM is recreated. Falls back to a regular restart if warm restart isn't enabled
+     * (see {@link ReactInstanceManagerBuilder#setWarmRestartEnabled}) or if there is no running
+     * context to restart. See {@link #getLastWarmRestartLatencyMs()}.
+     */
+    @ThreadConfined(UI)
+    public void warmRestartReactContextInBackground() {
+        Log.d(ReactConstants.TAG, "ReactInstanceManager.warmRestartReactContextInBackground()");
+        UiThreadUtil.assertOnUiThread();
+
+        final ReactContext currentContext = mCurrentReactContext;
+        if (!mWarmRestartEnabled
+                || mBundleLoader == null
+                || !(currentContext instanceof ReactApplicationContext)
+                || !currentContext.hasActiveCatalystInstance()
+                || !(currentContext.getCatalystInstance() instanceof CatalystInstanceImpl)) {
+            recreateReactContextInBackgroundInner();
+            return;
+        }
+
+        ReactMarker.logMarker(WARM_RESTART_START);
+        final JSBundleLoader bundleLoader = mBundleLoader;
+        boolean isDestroying =
+                ((CatalystInstanceImpl) currentContext.getCatalystInstance()).destroyForWarmRestart(
+                        new CatalystInstanceImpl.WarmRestartCallback() {
+                            @Override
+                            public void onQuiesced(
+                                    final CatalystInstanceImpl.WarmRestartState state) {
+                                UiThreadUtil.runOnUiThread(
+                                        new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                ReactContextInitParams initParams =
+                                                        new ReactContextInitParams(
+                                                                mJavaScriptExecutorFactory,
+                                                                bundleLoader,
+                                                                (ReactApplicationContext) currentContext,
+                                                                state);
+                                                if (mCreateReactContextThread == null) {
+                                                    runCreateReactContextOnNewThread(initParams);
+                                                } else {
+                                                    mPendingReactContextInitParams = initParams;
+                                                }
+                                            }
+                                        });
+                            }
+                        });
+        if (!isDestroying) {
+            recreateReactContextInBackgroundInner();
+            return;
+        }
+        synchronized (mReactContextLock) {
+            mCurrentReactContext = null;
+        }
+    }
+
+    /**
+     * @return time between the last call to {@link #warmRestartReactContextInBackground()} that
+     * reused the current context and the new context being set up, or -1 if there has been none.
+     */
+    public long getLastWarmRestartLatencyMs() {
+        return mLastWarmRestartLatencyMs;
     }
 
     @ThreadConfined(UI)
@@ -240,6 +402,33 @@ public class ReactInstanceManager {
         Log.d(ReactConstants.TAG, "ReactInstanceManager.recreateReactContextInBackground()");
         UiThreadUtil.assertOnUiThread();
 
+        if (mStandbyReactContextPool != null
+                && mCreateReactContextThread == null
+                && jsExecutorFactory == mJavaScriptExecutorFactory
+                && jsBundleLoader == mBundleLoader) {
+            final ReactApplicationContext standbyReactContext = mStandbyReactContextPool.acquire();
+            scheduleStandbyReactContextFill();
+            if (standbyReactContext != null) {
+                Log.d(ReactConstants.TAG, "ReactInstanceManager: using standby react context");
+                tearDownCurrentReactContext();
+                standbyReactContext.runOnNativeModulesQueueThread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    setupReactContext(standbyReactContext);
+                                } catch (Exception e) {
+                                    FLog.e(
+                                            ReactConstants.TAG,
+                                            "Could not set up standby react context",
+                                            e);
+                                }
+                            }
+                        });
+                return;
+            }
+        }
+
         final ReactContextInitParams initParams = new ReactContextInitParams(
                 jsExecutorFactory,
                 jsBundleLoader);
@@ -250,10 +439,47 @@ public class ReactInstanceManager {
         }
     }
 
+    /**
+     * Destroys the current react context, if any, before another one replaces it: otherwise its JS
+     * VM and queue threads would outlive it.
+     */
+    @ThreadConfined(UI)
+    private void tearDownCurrentReactContext() {
+        final ReactContext currentContext;
+        synchronized (mReactContextLock) {
+            currentContext = mCurrentReactContext;
+            mCurrentReactContext = null;
+        }
+        if (currentContext != null) {
+            currentContext.destroy();
+        }
+    }
+
+    /**
+     * Runs the react context creation that was requested while another one was in progress, if any.
+     * A regular (re)creation may be served by the standby pool.
+     */
+    @ThreadConfined(UI)
+    private void runPendingReactContextCreation() {
+        ReactContextInitParams initParams = mPendingReactContextInitParams;
+        if (initParams == null) {
+            return;
+        }
+        mPendingReactContextInitParams = null;
+        if (initParams.getWarmRestartState() != null) {
+            runCreateReactContextOnNewThread(initParams);
+        } else {
+            recreateReactContextInBackground(
+                    initParams.getJsExecutorFactory(),
+                    initParams.getJsBundleLoader());
+        }
+    }
+
     @ThreadConfined(UI)
     private void runCreateReactContextOnNewThread(final ReactContextInitParams initParams) {
         Log.d(ReactConstants.TAG, "ReactInstanceManager.runCreateReactContextOnNewThread()");
         UiThreadUtil.assertOnUiThread();
+        tearDownCurrentReactContext();
 
 
         mCreateReactContextThread =
@@ -280,8 +506,10 @@ public class ReactInstanceManager {
                                     ReactMarker.logMarker(VM_INIT);
                                     final ReactApplicationContext reactApplicationContext =
                                             createReactContext(
-                                                    initParams.getJsExecutorFactory().create(),
-                                                    initParams.getJsBundleLoader());
+                                                    initParams.getJsExecutorFactory(),
+                                                    initParams.getJsBundleLoader(),
+                                                    initParams.getReusedReactContext(),
+                                                    initParams.getWarmRestartState());
 
                                     mCreateReactContextThread = null;
                                     ReactMarker.logMarker(PRE_SETUP_REACT_CONTEXT_START);
@@ -301,6 +529,14 @@ public class ReactInstanceManager {
                                                 public void run() {
                                                     try {
                                                         setupReactContext(reactApplicationContext);
+                                                        CatalystInstanceImpl.WarmRestartState warmRestartState =
+                                                                initParams.getWarmRestartState();
+                                                        if (warmRestartState != null) {
+                                                            mLastWarmRestartLatencyMs =
+                                                                    SystemClock.uptimeMillis()
+                                                                            - warmRestartState.getDestroyStartTimeMs();
+                                                            ReactMarker.logMarker(WARM_RESTART_END);
+                                                        }
                                                     } catch (Exception e) {
                                                         e.printStackTrace();
                                                         // mDevSupportManager.handleException(e);
@@ -320,6 +556,112 @@ public class ReactInstanceManager {
         mCreateReactContextThread.start();
     }
 
+    /**
+     * Creates standby react contexts, one at a time, whenever the UI thread is idle until the
+     * standby pool is full (see {@link ReactInstanceManagerBuilder#setStandbyReactContextPoolSize}).
+     */
+    @ThreadConfined(UI)
+    private void scheduleStandbyReactContextFill() {
+        if (mStandbyReactContextPool == null
+                || mBundleLoader == null
+                || mIsStandbyFillScheduled
+                || mIsCreatingStandbyReactContext
+                || mStandbyReactContextPool.isFull()) {
+            return;
+        }
+        mIsStandbyFillScheduled = true;
+        Looper.myQueue().addIdleHandler(mStandbyReactContextFillIdleHandler);
+    }
+
+    @ThreadConfined(UI)
+    private void runCreateStandbyReactContextOnNewThread() {
+        Log.d(ReactConstants.TAG, "ReactInstanceManager.runCreateStandbyReactContextOnNewThread()");
+        UiThreadUtil.assertOnUiThread();
+        mIsCreatingStandbyReactContext = true;
+        final JSBundleLoader bundleLoader = Assertions.assertNotNull(mBundleLoader);
+        // Set as the create thread so that a regular creation, which processes the same packages,
+        // waits for this one instead of running concurrently with it.
+        mCreateReactContextThread = new Thread(
+                null,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        ReactApplicationContext reactContext = null;
+                        try {
+                            reactContext = createReactContext(
+                                    mJavaScriptExecutorFactory,
+                                    bundleLoader,
+                                    null,
+                                    null);
+                        } catch (Exception e) {
+                            FLog.e(ReactConstants.TAG, "Could not create standby react context", e);
+                        }
+                        final ReactApplicationContext standbyReactContext = reactContext;
+                        UiThreadUtil.runOnUiThread(
+                                new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        mCreateReactContextThread = null;
+                                        mIsCreatingStandbyReactContext = false;
+                                        if (standbyReactContext != null) {
+                                            if (!Assertions.assertNotNull(mStandbyReactContextPool)
+                                                    .offer(standbyReactContext)) {
+                                                // The pool was trimmed meanwhile.
+                                                standbyReactContext.destroy();
+                                            }
+                                        }
+                                        // May hand out the context that was just created.
+                                        runPendingReactContextCreation();
+                                        scheduleStandbyReactContextFill();
+                                    }
+                                });
+                    }
+                },
+                "create_standby_react_context");
+        mCreateReactContextThread.start();
+    }
+
+    /**
+     * Evicts standby react contexts, least recently created first, according to {@code level}.
+     * The pool is refilled once a react context is requested again.
+     */
+    @ThreadConfined(UI)
+    public void handleMemoryPressure(MemoryPressure level) {
+        UiThreadUtil.assertOnUiThread();
+        if (mStandbyReactContextPool == null) {
+            return;
+        }
+        for (ReactApplicationContext reactContext : mStandbyReactContextPool.trim(level)) {
+            reactContext.destroy();
+        }
+    }
+
+    /**
+     * @return number of react contexts handed out from the standby pool.
+     */
+    public long getStandbyReactContextHitCount() {
+        return mStandbyReactContextPool == null ? 0 : mStandbyReactContextPool.getHitCount();
+    }
+
+    /**
+     * @return number of react contexts created on demand because the standby pool was empty.
+     */
+    public long getStandbyReactContextMissCount() {
+        return mStandbyReactContextPool == null ? 0 : mStandbyReactContextPool.getMissCount();
+    }
+
+    /**
+     * @return number of standby react contexts destroyed under memory pressure.
+     */
+    public long getStandbyReactContextEvictionCount() {
+        return mStandbyReactContextPool == null ? 0 : mStandbyReactContextPool.getEvictionCount();
+    }
+
+    public int getStandbyReactContextCount() {
+        return mStandbyReactContextPool == null ? 0 : mStandbyReactContextPool.getSize();
+    }
+
     private void setupReactContext(final ReactApplicationContext reactContext) {
         Log.d(ReactConstants.TAG, "ReactInstanceManager.setupReactContext()");
         ReactMarker.logMarker(PRE_SETUP_REACT_CONTEXT_END);
@@ -372,27 +714,100 @@ public class ReactInstanceManager {
     }
 
     /**
-     * @return instance of {@link ReactContext} configured a {@link CatalystInstance} set
+     * @return instance of {@link ReactContext} configured a {@link CatalystInstance} set. On a warm
+     * restart, that's {@code reusedReactContext}, with the native modules it already had.
+     *
+     * <p>Creating the JS executor and reading the bundle don't depend on the native modules, so
+     * unless parallel startup is disabled they run on {@link ReactStartupExecutor} while this
+     * thread processes the packages, which constructs the eager modules. The CatalystInstance
+     * needs both the executor and the modules, so that's where the stages join.
      */
     private ReactApplicationContext createReactContext(
-            JavaScriptExecutor jsExecutor,
-            JSBundleLoader jsBundleLoader) {
+            final JavaScriptExecutorFactory jsExecutorFactory,
+            final JSBundleLoader jsBundleLoader,
+            @Nullable ReactApplicationContext reusedReactContext,
+            @Nullable CatalystInstanceImpl.WarmRestartState warmRestartState) {
         Log.d(ReactConstants.TAG, "ReactInstanceManager.createReactContext()");
-        ReactMarker.logMarker(CREATE_REACT_CONTEXT_START, jsExecutor.getName());
-        final ReactApplicationContext reactContext = new ReactApplicationContext(mApplicationContext);
-
+        boolean parallelStartup =
+                mParallelStartupEnabled && ReactStartupExecutor.isParallelismAvailable();
+        Future<JavaScriptExecutor> jsExecutorStage = ReactStartupExecutor.submit(
+                parallelStartup,
+                "createJSExecutor",
+                CREATE_JS_EXECUTOR_START,
+                CREATE_JS_EXECUTOR_END,
+                new Callable<JavaScriptExecutor>() {
+                    @Override
+                    public JavaScriptExecutor call() throws Exception {
+                        JavaScriptExecutor jsExecutor = jsExecutorFactory.create();
+                        // Logged once the executor exists, as it is tagged with its name. Nobody
+                        // would see the tag without a listener, so the name isn't asked for then.
+                        ReactMarker.logMarker(
+                                CREATE_REACT_CONTEXT_START,
+                                ReactMarker.hasListeners() ? jsExecutor.getName() : null);
+                        return jsExecutor;
+                    }
+                });
+        if (parallelStartup) {
+            // Nothing waits for this one: at worst native code reads the rest of the bundle itself.
+            ReactStartupExecutor.submit(
+                    true,
+                    "prefetchJSBundle",
+                    PREFETCH_JS_BUNDLE_START,
+                    PREFETCH_JS_BUNDLE_END,
+                    new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            jsBundleLoader.prefetch();
+                            return null;
+                        }
+                    });
+        }
         NativeModuleCallExceptionHandler exceptionHandler = mNativeModuleCallExceptionHandler;
 
-        reactContext.setNativeModuleCallExceptionHandler(exceptionHandler);
+        CatalystInstanceImpl.Builder catalystInstanceBuilder = new CatalystInstanceImpl.Builder()
+                .setReactQueueConfigurationSpec(mReactQueueConfigurationSpec);
 
-        NativeModuleRegistry nativeModuleRegistry = processPackages(reactContext, mPackages, false);
+        final ReactApplicationContext reactContext;
+        final JavaScriptExecutor jsExecutor;
+        boolean hasJSExecutor = false;
+        try {
+            if (warmRestartState != null) {
+                reactContext = Assertions.assertNotNull(reusedReactContext);
+                catalystInstanceBuilder.setWarmRestartState(warmRestartState);
+            } else {
+                reactContext = new ReactApplicationContext(mApplicationContext);
+                reactContext.setNativeModuleCallExceptionHandler(exceptionHandler);
+                NativeModuleRegistry nativeModuleRegistry =
+                        processPackages(reactContext, mPackages, false);
+                catalystInstanceBuilder
+                        .setRegistry(nativeModuleRegistry)
+                        .setReusableQueues(mWarmRestartEnabled);
+            }
+            jsExecutor = ReactStartupExecutor.await(jsExecutorStage);
+            hasJSExecutor = true;
+        } finally {
+            if (!hasJSExecutor) {
+                // Processing the packages failed while the executor was being created.
+                closeJSExecutor(jsExecutorStage);
+            }
+        }
 
-        CatalystInstanceImpl.Builder catalystInstanceBuilder = new CatalystInstanceImpl.Builder()
-                .setReactQueueConfigurationSpec(ReactQueueConfigurationSpec.createDefault())
+        catalystInstanceBuilder
                 .setJSExecutor(jsExecutor)
-                .setRegistry(nativeModuleRegistry)
                 .setJSBundleLoader(jsBundleLoader)
-                .setNativeModuleCallExceptionHandler(exceptionHandler);
+                .setNativeModuleCallExceptionHandler(exceptionHandler)
+                .setJSCallBatchingWindowUs(mJSCallBatchingWindowUs)
+                .setJSCallsPendingInitCapacity(
+                        mJSCallsPendingInitCapacity,
+                        mJSCallsPendingInitOverflowPolicy)
+                .setBridgeIdleMinDwellMs(mBridgeIdleMinDwellMs)
+                .setModuleConstantsCache(mModuleConstantsCache);
+        if (mNativeModuleUsageFile != null) {
+            catalystInstanceBuilder.setNativeModulePrefetcher(
+                    new NativeModulePrefetcher(
+                            mNativeModuleUsageFile,
+                            NativeModulePrefetcher.DEFAULT_RECORDING_WINDOW_MS));
+        }
 
         ReactMarker.logMarker(CREATE_CATALYST_INSTANCE_START);
         // CREATE_CATALYST_INSTANCE_END is in JSCExecutor.cpp
@@ -404,6 +819,11 @@ public class ReactInstanceManager {
             Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
             ReactMarker.logMarker(CREATE_CATALYST_INSTANCE_END);
         }
+        if (warmRestartState != null) {
+            // The native modules are already running, so point them to the new instance before its
+            // bundle starts calling them.
+            reactContext.reinitializeWithInstance(catalystInstance);
+        }
         if (mJSIModulePackage != null) {
             catalystInstance.addJSIModules(mJSIModulePackage
                     .getJSIModules(reactContext, catalystInstance.getJavaScriptContextHolder()));
@@ -417,19 +837,36 @@ public class ReactInstanceManager {
         catalystInstance.runJSBundle();
         Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
 
-        reactContext.initializeWithInstance(catalystInstance);
+        if (warmRestartState == null) {
+            reactContext.initializeWithInstance(catalystInstance);
+        }
 
 
         return reactContext;
     }
 
+    /**
+     * Waits for the executor stage of a creation that failed, then closes its executor.
+     */
+    private static void closeJSExecutor(Future<JavaScriptExecutor> jsExecutorStage) {
+        JavaScriptExecutor jsExecutor;
+        try {
+            jsExecutor = ReactStartupExecutor.await(jsExecutorStage);
+        } catch (RuntimeException e) {
+            // The stage failed too, there is nothing to close.
+            return;
+        }
+        jsExecutor.close();
+    }
+
     private NativeModuleRegistry processPackages(
             ReactApplicationContext reactContext,
             List<ReactPackage> packages,
             boolean checkAndUpdatePackageMembership) {
         NativeModuleRegistryBuilder nativeModuleRegistryBuilder = new NativeModuleRegistryBuilder(
                 reactContext,
-                this);
+                this,
+                mParallelStartupEnabled && ReactStartupExecutor.isParallelismAvailable());
 
         ReactMarker.logMarker(PROCESS_PACKAGES_START);
 
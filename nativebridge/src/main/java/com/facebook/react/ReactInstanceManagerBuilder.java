@@ -12,10 +12,15 @@ import com.facebook.infer.annotation.Assertions;
 import com.facebook.react.bridge.JSBundleLoader;
 import com.facebook.react.bridge.JSIModulePackage;
 import com.facebook.react.bridge.JavaScriptExecutorFactory;
+import com.facebook.react.bridge.ModuleConstantsCache;
 import com.facebook.react.bridge.NativeModuleCallExceptionHandler;
+import com.facebook.react.bridge.NativeModulePrefetcher;
 import com.facebook.react.bridge.NotThreadSafeBridgeIdleDebugListener;
+import com.facebook.react.bridge.queue.QueueOverflowPolicy;
+import com.facebook.react.bridge.queue.ReactQueueConfigurationSpec;
 import com.facebook.react.jscexecutor.JSCExecutorFactory;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -50,6 +55,19 @@ public class ReactInstanceManagerBuilder {
     private int mMinTimeLeftInFrameForNonBatchedOperationMs = -1;
     private @Nullable
     JSIModulePackage mJSIModulesPackage;
+    private @Nullable
+    ReactQueueConfigurationSpec mReactQueueConfigurationSpec;
+    private long mJSCallBatchingWindowUs = 0;
+    private int mJSCallsPendingInitCapacity = Integer.MAX_VALUE;
+    private QueueOverflowPolicy mJSCallsPendingInitOverflowPolicy = QueueOverflowPolicy.DROP_OLDEST;
+    private long mBridgeIdleMinDwellMs = 0;
+    private boolean mWarmRestartEnabled = false;
+    private int mStandbyReactContextPoolSize = 0;
+    private boolean mParallelStartupEnabled = true;
+    private @Nullable
+    File mNativeModuleUsageFile;
+    private @Nullable
+    ModuleConstantsCache mModuleConstantsCache;
 
     /* package protected */ ReactInstanceManagerBuilder() {
     }
@@ -135,6 +153,71 @@ public class ReactInstanceManagerBuilder {
         return this;
     }
 
+    /**
+     * Only report a bridge as idle to its {@link NotThreadSafeBridgeIdleDebugListener}s once it has
+     * stayed idle for {@code minDwellMs}, so that short idle gaps don't produce notifications.
+     * Idle is reported right away by default.
+     */
+    public ReactInstanceManagerBuilder setBridgeIdleMinDwellMs(long minDwellMs) {
+        mBridgeIdleMinDwellMs = minDwellMs;
+        return this;
+    }
+
+    /**
+     * Keep the queue threads and the native modules of a react context alive when it is restarted
+     * through {@link ReactInstanceManager#warmRestartReactContextInBackground()}. Disabled by
+     * default.
+     */
+    public ReactInstanceManagerBuilder setWarmRestartEnabled(boolean warmRestartEnabled) {
+        mWarmRestartEnabled = warmRestartEnabled;
+        return this;
+    }
+
+    /**
+     * Keep up to {@code poolSize} react contexts, with the bundle already run, on standby: they are
+     * created in the background while the UI thread is idle, and handed out instead of creating a
+     * new context when the app asks for one. Each standby context holds a JS VM and its queue
+     * threads, see {@link ReactInstanceManager#handleMemoryPressure}. 0, the default, disables the
+     * pool.
+     */
+    public ReactInstanceManagerBuilder setStandbyReactContextPoolSize(int poolSize) {
+        mStandbyReactContextPoolSize = poolSize;
+        return this;
+    }
+
+    /**
+     * Create the JS executor and read the bundle on background threads while the packages are
+     * processed, on devices with more than one core. Enabled by default; when disabled, every stage
+     * of react context creation runs serially on the create_react_context thread.
+     */
+    public ReactInstanceManagerBuilder setParallelStartupEnabled(boolean parallelStartupEnabled) {
+        mParallelStartupEnabled = parallelStartupEnabled;
+        return this;
+    }
+
+    /**
+     * Record which native modules each react context uses within its first
+     * {@link NativeModulePrefetcher#DEFAULT_RECORDING_WINDOW_MS} in {@code usageFile}, and create
+     * those modules on a background thread as soon as the next react context is initialized. Null,
+     * the default, disables it.
+     */
+    public ReactInstanceManagerBuilder setNativeModuleUsageFile(@Nullable File usageFile) {
+        mNativeModuleUsageFile = usageFile;
+        return this;
+    }
+
+    /**
+     * Serve the constants of the native modules implementing
+     * {@link com.facebook.react.bridge.CacheableConstants} from {@code moduleConstantsCache} in
+     * every react context, instead of computing them at each start. Null, the default, disables
+     * it.
+     */
+    public ReactInstanceManagerBuilder setModuleConstantsCache(
+            @Nullable ModuleConstantsCache moduleConstantsCache) {
+        mModuleConstantsCache = moduleConstantsCache;
+        return this;
+    }
+
     /**
      * Required. This must be your {@code Application} instance.
      */
@@ -161,6 +244,41 @@ public class ReactInstanceManagerBuilder {
     }
 
 
+    /**
+     * Queue threads used by each CatalystInstance created by the manager. Defaults to
+     * {@link ReactQueueConfigurationSpec#createDefault()}; use
+     * {@link ReactQueueConfigurationSpec#createSharedPool()} to multiplex the JS and native modules
+     * queues of every instance onto a process-wide pool of threads.
+     */
+    public ReactInstanceManagerBuilder setReactQueueConfigurationSpec(
+            @Nullable ReactQueueConfigurationSpec reactQueueConfigurationSpec) {
+        mReactQueueConfigurationSpec = reactQueueConfigurationSpec;
+        return this;
+    }
+
+    /**
+     * Batch the JS calls made by native code over windows of {@code windowUs} microseconds (e.g.
+     * {@link com.facebook.react.bridge.JSCallBatcher#FRAME_WINDOW_US}), so that each window costs a
+     * single JS invocation. Disabled (0) by default.
+     */
+    public ReactInstanceManagerBuilder setJSCallBatchingWindowUs(long windowUs) {
+        mJSCallBatchingWindowUs = windowUs;
+        return this;
+    }
+
+    /**
+     * Bounds the number of JS calls buffered by each instance until its bundle is loaded, for apps
+     * that fire many events during startup. Supports {@link QueueOverflowPolicy#DROP_OLDEST} and
+     * {@link QueueOverflowPolicy#DROP_NEWEST}. Unbounded by default.
+     */
+    public ReactInstanceManagerBuilder setJSCallsPendingInitCapacity(
+            int capacity,
+            QueueOverflowPolicy overflowPolicy) {
+        mJSCallsPendingInitCapacity = capacity;
+        mJSCallsPendingInitOverflowPolicy = overflowPolicy;
+        return this;
+    }
+
     public ReactInstanceManagerBuilder setLazyViewManagersEnabled(boolean lazyViewManagersEnabled) {
         mLazyViewManagersEnabled = lazyViewManagersEnabled;
         return this;
@@ -211,6 +329,18 @@ public class ReactInstanceManagerBuilder {
                 mLazyViewManagersEnabled,
                 mMinNumShakes,
                 mMinTimeLeftInFrameForNonBatchedOperationMs,
-                mJSIModulesPackage);
+                mJSIModulesPackage,
+                mReactQueueConfigurationSpec == null
+                        ? ReactQueueConfigurationSpec.createDefault()
+                        : mReactQueueConfigurationSpec,
+                mJSCallBatchingWindowUs,
+                mJSCallsPendingInitCapacity,
+                mJSCallsPendingInitOverflowPolicy,
+                mBridgeIdleMinDwellMs,
+                mWarmRestartEnabled,
+                mStandbyReactContextPoolSize,
+                mParallelStartupEnabled,
+                mNativeModuleUsageFile,
+                mModuleConstantsCache);
     }
 }
@@ -0,0 +1,161 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react;
+
+import android.os.Process;
+
+import com.facebook.react.bridge.ReactMarker;
+import com.facebook.react.bridge.ReactMarkerConstants;
+import com.facebook.systrace.Systrace;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import static com.facebook.systrace.Systrace.TRACE_TAG_REACT_JAVA_BRIDGE;
+
+/**
+ * Runs the stages of react context creation that don't depend on each other (see
+ * {@link ReactInstanceManager#createReactContext}) on a small process-wide pool, so they overlap
+ * with the stages running on the create_react_context thread.
+ */
+/* package */ class ReactStartupExecutor {
+
+  private static final int POOL_SIZE = 2;
+  private static final long KEEP_ALIVE_MS = 5000;
+
+  private static @Nullable Executor sExecutor;
+
+  /**
+   * @return whether running stages in parallel can help, i.e. whether there is more than one core.
+   */
+  /* package */ static boolean isParallelismAvailable() {
+    return Runtime.getRuntime().availableProcessors() > 1;
+  }
+
+  /**
+   * @return the number of tasks the pool runs at the same time.
+   */
+  /* package */ static int getPoolSize() {
+    return POOL_SIZE;
+  }
+
+  /**
+   * Runs {@code task} on the pool, with no markers. The pool is shared with the startup stages, so
+   * {@code task} may only start once they are done: callers shouldn't wait for it to start.
+   */
+  /* package */ static void execute(Runnable task) {
+    getExecutor().execute(task);
+  }
+
+  /**
+   * Runs {@code stage} between {@code startMarker} and {@code endMarker}: on the pool if
+   * {@code parallel} is true, on the calling thread otherwise.
+   */
+  /* package */ static <T> Future<T> submit(
+      boolean parallel,
+      final String sectionName,
+      final ReactMarkerConstants startMarker,
+      final ReactMarkerConstants endMarker,
+      final Callable<T> stage) {
+    FutureTask<T> task = new FutureTask<>(
+        new Callable<T>() {
+          @Override
+          public T call() throws Exception {
+            ReactMarker.logMarker(startMarker);
+            Systrace.beginSection(TRACE_TAG_REACT_JAVA_BRIDGE, sectionName);
+            try {
+              return stage.call();
+            } finally {
+              Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
+              ReactMarker.logMarker(endMarker);
+            }
+          }
+        });
+    if (parallel) {
+      getExecutor().execute(task);
+    } else {
+      task.run();
+    }
+    return task;
+  }
+
+  /**
+   * Waits for a stage started with {@link #submit}, rethrowing what it threw.
+   */
+  /* package */ static <T> T await(Future<T> stage) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return stage.get();
+        } catch (InterruptedException e) {
+          // The other stages can't be cancelled halfway, so finish waiting for this one.
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static synchronized Executor getExecutor() {
+    if (sExecutor == null) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          POOL_SIZE,
+          POOL_SIZE,
+          KEEP_ALIVE_MS,
+          TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new StartupThreadFactory());
+      // Startup is rare, don't keep the threads around in between.
+      executor.allowCoreThreadTimeOut(true);
+      sExecutor = executor;
+    }
+    return sExecutor;
+  }
+
+  private static class StartupThreadFactory implements ThreadFactory {
+    private final AtomicInteger mThreadCount = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      Thread thread = new Thread(
+          null,
+          new Runnable() {
+            @Override
+            public void run() {
+              // Same priority as the create_react_context thread.
+              Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+              runnable.run();
+            }
+          },
+          "react_startup_" + mThreadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
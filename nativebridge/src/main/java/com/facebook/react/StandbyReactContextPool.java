@@ -0,0 +1,116 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react;
+
+import com.facebook.react.bridge.MemoryPressure;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Standby react contexts, with their bundle already run, waiting to be handed out by
+ * {@link ReactInstanceManager}. Contexts are handed out most recently created first, and evicted
+ * least recently created first.
+ */
+/* package */ class StandbyReactContextPool {
+
+  private final int mCapacity;
+  // Least recently created first.
+  @GuardedBy("this")
+  private final ArrayDeque<ReactApplicationContext> mStandbyContexts;
+  // Lowered under memory pressure, until the next context is acquired.
+  @GuardedBy("this")
+  private int mLimit;
+
+  private final AtomicLong mHitCount = new AtomicLong();
+  private final AtomicLong mMissCount = new AtomicLong();
+  private final AtomicLong mEvictionCount = new AtomicLong();
+
+  /* package */ StandbyReactContextPool(int capacity) {
+    mCapacity = capacity;
+    mLimit = capacity;
+    mStandbyContexts = new ArrayDeque<>(capacity);
+  }
+
+  /**
+   * @return a standby context, or null if there is none.
+   */
+  /* package */ synchronized @Nullable ReactApplicationContext acquire() {
+    mLimit = mCapacity;
+    ReactApplicationContext reactContext = mStandbyContexts.pollLast();
+    if (reactContext == null) {
+      mMissCount.incrementAndGet();
+    } else {
+      mHitCount.incrementAndGet();
+    }
+    return reactContext;
+  }
+
+  /**
+   * @return false if the pool is full, in which case the caller still owns {@code reactContext}.
+   */
+  /* package */ synchronized boolean offer(ReactApplicationContext reactContext) {
+    if (mStandbyContexts.size() >= mLimit) {
+      return false;
+    }
+    mStandbyContexts.addLast(reactContext);
+    return true;
+  }
+
+  /* package */ synchronized boolean isFull() {
+    return mStandbyContexts.size() >= mLimit;
+  }
+
+  /**
+   * Evicts standby contexts according to {@code level}: half of them when the UI is hidden, all but
+   * one under moderate pressure, and all of them under critical pressure. The pool isn't refilled
+   * beyond that until the next context is acquired.
+   *
+   * @return the evicted contexts, for the caller to destroy.
+   */
+  /* package */ synchronized List<ReactApplicationContext> trim(MemoryPressure level) {
+    int size = mStandbyContexts.size();
+    switch (level) {
+      case UI_HIDDEN:
+        mLimit = Math.min(mLimit, size / 2);
+        break;
+      case MODERATE:
+        mLimit = Math.min(mLimit, 1);
+        break;
+      default:
+        mLimit = 0;
+        break;
+    }
+    List<ReactApplicationContext> evicted = new ArrayList<>(Math.max(0, size - mLimit));
+    while (mStandbyContexts.size() > mLimit) {
+      evicted.add(mStandbyContexts.pollFirst());
+    }
+    mEvictionCount.addAndGet(evicted.size());
+    return evicted;
+  }
+
+  /* package */ synchronized int getSize() {
+    return mStandbyContexts.size();
+  }
+
+  /* package */ long getHitCount() {
+    return mHitCount.get();
+  }
+
+  /* package */ long getMissCount() {
+    return mMissCount.get();
+  }
+
+  /* package */ long getEvictionCount() {
+    return mEvictionCount.get();
+  }
+}
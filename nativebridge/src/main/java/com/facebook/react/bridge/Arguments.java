@@ -165,34 +165,42 @@ public class Arguments {
   public static WritableNativeArray fromJavaArgs(Object[] args) {
     WritableNativeArray arguments = new WritableNativeArray();
     for (int i = 0; i < args.length; i++) {
-      Object argument = args[i];
-      if (argument == null) {
-        arguments.pushNull();
-        continue;
-      }
-
-      Class argumentClass = argument.getClass();
-      if (argumentClass == Boolean.class) {
-        arguments.pushBoolean(((Boolean) argument).booleanValue());
-      } else if (argumentClass == Integer.class) {
-        arguments.pushDouble(((Integer) argument).doubleValue());
-      } else if (argumentClass == Double.class) {
-        arguments.pushDouble(((Double) argument).doubleValue());
-      } else if (argumentClass == Float.class) {
-        arguments.pushDouble(((Float) argument).doubleValue());
-      } else if (argumentClass == String.class) {
-        arguments.pushString(argument.toString());
-      } else if (argumentClass == WritableNativeMap.class) {
-        arguments.pushMap((WritableNativeMap) argument);
-      } else if (argumentClass == WritableNativeArray.class) {
-        arguments.pushArray((WritableNativeArray) argument);
-      } else {
-        throw new RuntimeException("Cannot convert argument of type " + argumentClass);
-      }
+      pushJavaArg(arguments, args[i]);
     }
     return arguments;
   }
 
+  /**
+   * Appends a single argument of a JS module call to {@code arguments}, converting it the same way
+   * as {@link #fromJavaArgs}. Used by generated JS module stubs for arguments whose static type
+   * doesn't tell how to push them.
+   */
+  public static void pushJavaArg(WritableNativeArray arguments, @Nullable Object argument) {
+    if (argument == null) {
+      arguments.pushNull();
+      return;
+    }
+
+    Class argumentClass = argument.getClass();
+    if (argumentClass == Boolean.class) {
+      arguments.pushBoolean(((Boolean) argument).booleanValue());
+    } else if (argumentClass == Integer.class) {
+      arguments.pushDouble(((Integer) argument).doubleValue());
+    } else if (argumentClass == Double.class) {
+      arguments.pushDouble(((Double) argument).doubleValue());
+    } else if (argumentClass == Float.class) {
+      arguments.pushDouble(((Float) argument).doubleValue());
+    } else if (argumentClass == String.class) {
+      arguments.pushString(argument.toString());
+    } else if (argumentClass == WritableNativeMap.class) {
+      arguments.pushMap((WritableNativeMap) argument);
+    } else if (argumentClass == WritableNativeArray.class) {
+      arguments.pushArray((WritableNativeArray) argument);
+    } else {
+      throw new RuntimeException("Cannot convert argument of type " + argumentClass);
+    }
+  }
+
   /**
    * Convert an array to a {@link WritableArray}.
    *
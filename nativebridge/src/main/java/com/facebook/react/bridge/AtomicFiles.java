@@ -0,0 +1,55 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Helpers for the files the bridge keeps from one process to the next.
+ */
+/* package */ final class AtomicFiles {
+
+  private AtomicFiles() {
+  }
+
+  /**
+   * Replaces the content of {@code file} with {@code bytes}. They are written next to it then
+   * renamed over it, so that a process reading the file meanwhile never sees a partial one.
+   */
+  /* package */ static void writeAtomically(File file, byte[] bytes) throws IOException {
+    File tempFile = new File(file.getPath() + ".tmp");
+    FileOutputStream out = null;
+    try {
+      out = new FileOutputStream(tempFile);
+      out.write(bytes);
+      out.close();
+      out = null;
+      if (!tempFile.renameTo(file)) {
+        throw new IOException("Could not rename " + tempFile);
+      }
+    } catch (IOException e) {
+      closeQuietly(out);
+      tempFile.delete();
+      throw e;
+    }
+  }
+
+  /* package */ static void closeQuietly(@Nullable Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Nothing left to do with it.
+    }
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.queue.DiscardableRunnable;
+import com.facebook.react.bridge.queue.MessageQueueThread;
+import com.facebook.systrace.Systrace;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Tracks the number of pending JS calls of a {@link CatalystInstanceImpl} and reports idle/busy
+ * transitions to its {@link NotThreadSafeBridgeIdleDebugListener}s, on the native modules queue.
+ *
+ * <p>Transitions only schedule a single, reused task; by the time it runs it reports the state the
+ * bridge is in, so a burst of busy/idle flips collapses into at most one notification, and none if
+ * the bridge ended up in the state that was last reported. With a minimum idle dwell, the bridge
+ * has to stay idle that long before the transition to idle is reported.
+ */
+/* package */ class BridgeIdleStateNotifier {
+
+  private final List<NotThreadSafeBridgeIdleDebugListener> mListeners;
+  private final MessageQueueThread mNotifyQueueThread;
+  private final long mMinIdleDwellMs;
+  private final String mPendingCallsTitleForTrace;
+  private final AtomicBoolean mIsNotifyScheduled = new AtomicBoolean(false);
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private final Runnable mNotifyTask = new DiscardableRunnable() {
+    @Override
+    public void run() {
+      notifyIfChanged();
+    }
+
+    @Override
+    public void onDiscarded() {
+      // Otherwise no transition would ever schedule it again.
+      mIsNotifyScheduled.set(false);
+    }
+  };
+  private final Runnable mRescheduleTask = new Runnable() {
+    @Override
+    public void run() {
+      scheduleNotify();
+    }
+  };
+
+  // Held just long enough to count a call and account for the transition it makes, if any, so
+  // that concurrent transitions are accounted for in the order they happened.
+  private final Object mLock = new Object();
+  @GuardedBy("mLock")
+  private int mPendingCalls = 0;
+  @GuardedBy("mLock")
+  private long mIdleSinceMs;
+  @GuardedBy("mLock")
+  private long mLastTransitionMs;
+  @GuardedBy("mLock")
+  private long mBusyTimeMs = 0;
+  @GuardedBy("mLock")
+  private long mIdleTimeMs = 0;
+
+  // Only accessed from the notify queue thread.
+  private boolean mReportedBusy = false;
+
+  /* package */ BridgeIdleStateNotifier(
+      List<NotThreadSafeBridgeIdleDebugListener> listeners,
+      MessageQueueThread notifyQueueThread,
+      long minIdleDwellMs,
+      String pendingCallsTitleForTrace) {
+    mListeners = listeners;
+    mNotifyQueueThread = notifyQueueThread;
+    mMinIdleDwellMs = minIdleDwellMs;
+    mPendingCallsTitleForTrace = pendingCallsTitleForTrace;
+    long now = SystemClock.uptimeMillis();
+    mIdleSinceMs = now;
+    mLastTransitionMs = now;
+  }
+
+  /* package */ void incrementPendingCalls() {
+    int pendingCalls;
+    synchronized (mLock) {
+      pendingCalls = ++mPendingCalls;
+      if (pendingCalls == 1) {
+        accountTransition(true);
+      }
+    }
+    traceCounter(pendingCalls);
+    if (pendingCalls == 1) {
+      onTransition();
+    }
+  }
+
+  /* package */ void decrementPendingCalls() {
+    int pendingCalls;
+    synchronized (mLock) {
+      pendingCalls = --mPendingCalls;
+      if (pendingCalls == 0) {
+        accountTransition(false);
+      }
+    }
+    // TODO(9604406): handle case of web workers injecting messages to main thread
+    //Assertions.assertCondition(pendingCalls >= 0);
+    traceCounter(pendingCalls);
+    if (pendingCalls == 0) {
+      onTransition();
+    }
+  }
+
+  /**
+   * Must be called on the notify queue thread. Reports the bridge as idle if it was last reported
+   * busy, then reports it as destroyed.
+   */
+  /* package */ void notifyDestroyed() {
+    mHandler.removeCallbacks(mRescheduleTask);
+    synchronized (mLock) {
+      if (mPendingCalls > 0) {
+        accountTransition(false);
+      }
+      mPendingCalls = 0;
+    }
+    for (NotThreadSafeBridgeIdleDebugListener listener : mListeners) {
+      if (mReportedBusy) {
+        listener.onTransitionToBridgeIdle();
+      }
+      listener.onBridgeDestroyed();
+    }
+    mReportedBusy = false;
+  }
+
+  /**
+   * @return total time the bridge has had pending JS calls.
+   */
+  /* package */ long getBusyTimeMs() {
+    synchronized (mLock) {
+      return mBusyTimeMs + (mPendingCalls > 0 ? getTimeSinceLastTransitionMs() : 0);
+    }
+  }
+
+  /**
+   * @return total time the bridge has had no pending JS calls.
+   */
+  /* package */ long getIdleTimeMs() {
+    synchronized (mLock) {
+      return mIdleTimeMs + (mPendingCalls > 0 ? 0 : getTimeSinceLastTransitionMs());
+    }
+  }
+
+  @GuardedBy("mLock")
+  private long getTimeSinceLastTransitionMs() {
+    return SystemClock.uptimeMillis() - mLastTransitionMs;
+  }
+
+  private void traceCounter(int pendingCalls) {
+    if (Systrace.isTracing(Systrace.TRACE_TAG_REACT_JAVA_BRIDGE)) {
+      Systrace.traceCounter(
+          Systrace.TRACE_TAG_REACT_JAVA_BRIDGE,
+          mPendingCallsTitleForTrace,
+          pendingCalls);
+    }
+  }
+
+  @GuardedBy("mLock")
+  private void accountTransition(boolean isBusy) {
+    long now = SystemClock.uptimeMillis();
+    long elapsed = now - mLastTransitionMs;
+    mLastTransitionMs = now;
+    if (isBusy) {
+      mIdleTimeMs += elapsed;
+    } else {
+      mBusyTimeMs += elapsed;
+      mIdleSinceMs = now;
+    }
+  }
+
+  private void onTransition() {
+    if (!mListeners.isEmpty()) {
+      scheduleNotify();
+    }
+  }
+
+  private void scheduleNotify() {
+    if (mIsNotifyScheduled.compareAndSet(false, true)) {
+      mNotifyQueueThread.runOnQueue(mNotifyTask);
+    }
+  }
+
+  private void notifyIfChanged() {
+    // Cleared first: a transition from now on schedules another run, which sees its state.
+    mIsNotifyScheduled.set(false);
+    boolean isBusy;
+    long idleSinceMs;
+    synchronized (mLock) {
+      isBusy = mPendingCalls > 0;
+      idleSinceMs = mIdleSinceMs;
+    }
+    if (isBusy == mReportedBusy) {
+      return;
+    }
+    if (!isBusy && mMinIdleDwellMs > 0) {
+      long idleForMs = SystemClock.uptimeMillis() - idleSinceMs;
+      if (idleForMs < mMinIdleDwellMs) {
+        mHandler.removeCallbacks(mRescheduleTask);
+        mHandler.postDelayed(mRescheduleTask, mMinIdleDwellMs - idleForMs);
+        return;
+      }
+    }
+    mReportedBusy = isBusy;
+    for (NotThreadSafeBridgeIdleDebugListener listener : mListeners) {
+      if (isBusy) {
+        listener.onTransitionToBridgeBusy();
+      } else {
+        listener.onTransitionToBridgeIdle();
+      }
+    }
+  }
+}
@@ -0,0 +1,24 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import javax.annotation.Nullable;
+
+/**
+ * Implemented by native modules whose {@link BaseJavaModule#getConstants} can be served from a
+ * {@link ModuleConstantsCache}, when the instance has one.
+ */
+public interface CacheableConstants {
+
+  /**
+   * Called instead of {@link BaseJavaModule#getConstants} when the constants may come from the
+   * cache, so it should be cheap.
+   *
+   * @return a string that changes whenever the constants would, e.g. built from the device
+   * configuration they are computed from, or null to compute them without the cache this time.
+   */
+  @Nullable String getConstantsFingerprint();
+}
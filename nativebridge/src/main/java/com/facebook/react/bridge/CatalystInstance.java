@@ -43,11 +43,14 @@ public interface CatalystInstance
   void invokeCallback(
           int callbackID,
           NativeArrayInterface arguments);
+  /**
+   * Calls {@code module.method} in JS. Null {@code arguments} are sent as an empty argument list.
+   */
   @DoNotStrip
   void callFunction(
           String module,
           String method,
-          NativeArray arguments);
+          @Nullable NativeArray arguments);
   /**
    * Destroys this catalyst instance, waiting for any other threads in ReactQueueConfiguration
    * (besides the UI thread) to finish running. Must be called from the UI thread so that we can
@@ -91,6 +94,18 @@ public interface CatalystInstance
    */
   void removeBridgeIdleDebugListener(NotThreadSafeBridgeIdleDebugListener listener);
 
+  /**
+   * Adds a listener receiving, for every window of time during which JS called native modules, the
+   * number and duration of the call batches, the gaps between them and the number of calls made
+   * to each module. Recording only happens while at least one listener is registered.
+   */
+  void addNativeCallBatchListener(NativeCallBatchListener listener);
+
+  /**
+   * Removes a NativeCallBatchListener previously added with {@link #addNativeCallBatchListener}
+   */
+  void removeNativeCallBatchListener(NativeCallBatchListener listener);
+
   /** This method registers the file path of an additional JS segment by its ID. */
   void registerSegment(int segmentId, String path);
 
@@ -9,6 +9,7 @@ package com.facebook.react.bridge;
 
 import android.content.res.AssetManager;
 import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.facebook.common.logging.FLog;
@@ -16,13 +17,13 @@ import com.facebook.infer.annotation.Assertions;
 import com.facebook.jni.HybridData;
 import com.facebook.proguard.annotations.DoNotStrip;
 import com.facebook.react.bridge.queue.MessageQueueThread;
+import com.facebook.react.bridge.queue.QueueOverflowPolicy;
 import com.facebook.react.bridge.queue.QueueThreadExceptionHandler;
 import com.facebook.react.bridge.queue.ReactQueueConfiguration;
 import com.facebook.react.bridge.queue.ReactQueueConfigurationImpl;
 import com.facebook.react.bridge.queue.ReactQueueConfigurationSpec;
 import com.facebook.react.common.ReactConstants;
 import com.facebook.react.common.annotations.VisibleForTesting;
-import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.systrace.Systrace;
 import com.facebook.systrace.TraceListener;
 
@@ -49,6 +50,7 @@ public class CatalystInstanceImpl implements CatalystInstance {
     }
 
     private static final AtomicInteger sNextInstanceIdForTrace = new AtomicInteger(1);
+    private static final long DEFAULT_NATIVE_CALL_BATCH_WINDOW_MS = 1000;
 
     public static class PendingJSCall {
 
@@ -64,8 +66,7 @@ public class CatalystInstanceImpl implements CatalystInstance {
         }
 
         void call(CatalystInstanceImpl catalystInstance) {
-            NativeArray arguments = mArguments != null ? mArguments : new WritableNativeArray();
-            catalystInstance.jniCallJSFunction(mModule, mMethod, arguments);
+            catalystInstance.invokeJSFunction(mModule, mMethod, mArguments);
         }
 
         public String toString() {
@@ -74,27 +75,83 @@ public class CatalystInstanceImpl implements CatalystInstance {
         }
     }
 
+    /**
+     * What an instance torn down with {@link #destroyForWarmRestart} leaves for the next one: its
+     * queue threads and its native modules. Pass it to {@link Builder#setWarmRestartState}.
+     */
+    public static final class WarmRestartState {
+
+        private final ReactQueueConfigurationImpl mReactQueueConfiguration;
+        private final NativeModuleRegistry mNativeModuleRegistry;
+        private final @Nullable
+        String mSourceURL;
+        private final long mDestroyStartTimeMs;
+
+        private WarmRestartState(
+                ReactQueueConfigurationImpl reactQueueConfiguration,
+                NativeModuleRegistry nativeModuleRegistry,
+                @Nullable String sourceURL,
+                long destroyStartTimeMs) {
+            mReactQueueConfiguration = reactQueueConfiguration;
+            mNativeModuleRegistry = nativeModuleRegistry;
+            mSourceURL = sourceURL;
+            mDestroyStartTimeMs = destroyStartTimeMs;
+        }
+
+        public NativeModuleRegistry getNativeModuleRegistry() {
+            return mNativeModuleRegistry;
+        }
+
+        /**
+         * @return the source URL of the bundle the destroyed instance ran. The next instance must
+         * run the same bundle, since the native modules are kept.
+         */
+        public @Nullable
+        String getSourceURL() {
+            return mSourceURL;
+        }
+
+        /**
+         * @return when {@link #destroyForWarmRestart} was called, in
+         * {@link SystemClock#uptimeMillis} time base.
+         */
+        public long getDestroyStartTimeMs() {
+            return mDestroyStartTimeMs;
+        }
+    }
+
+    public interface WarmRestartCallback {
+
+        /**
+         * Called on a background thread once the instance is torn down and its queue threads are
+         * idle.
+         */
+        void onQuiesced(WarmRestartState state);
+    }
+
     // Access from any thread
     private final ReactQueueConfigurationImpl mReactQueueConfiguration;
     private final CopyOnWriteArrayList<NotThreadSafeBridgeIdleDebugListener> mBridgeIdleListeners;
-    private final AtomicInteger mPendingJSCalls = new AtomicInteger(0);
-    private final String mJsPendingCallsTitleForTrace =
-            "pending_js_calls_instance" + sNextInstanceIdForTrace.getAndIncrement();
+    private final BridgeIdleStateNotifier mBridgeIdleStateNotifier;
+    private final NativeCallBatchRecorder mNativeCallBatchRecorder;
     private volatile boolean mDestroyed = false;
     private final TraceListener mTraceListener;
     private final JavaScriptModuleRegistry mJSModuleRegistry;
     private final JSBundleLoader mJSBundleLoader;
-    private final ArrayList<PendingJSCall> mJSCallsPendingInit = new ArrayList<PendingJSCall>();
-    private final Object mJSCallsPendingInitLock = new Object();
+    private final PendingJSCallBuffer mJSCallsPendingInit;
 
     private final NativeModuleRegistry mNativeModuleRegistry;
+    private final CopyOnWriteArrayList<JavaModuleWrapper> mJavaModuleWrappers =
+            new CopyOnWriteArrayList<>();
     private final JSIModuleRegistry mJSIModuleRegistry = new JSIModuleRegistry();
     private final NativeModuleCallExceptionHandler mNativeModuleCallExceptionHandler;
     private final MessageQueueThread mNativeModulesQueueThread;
+    private final @Nullable JSCallBatcher mJSCallBatcher;
+    private final @Nullable NativeModulePrefetcher mNativeModulePrefetcher;
+    private final @Nullable ModuleConstantsCache mModuleConstantsCache;
     private boolean mInitialized = false;
-    private volatile boolean mAcceptCalls = false;
 
-    private boolean mJSBundleHasLoaded;
+    private volatile boolean mJSBundleHasLoaded;
     private @Nullable
     String mSourceURL;
 
@@ -106,19 +163,37 @@ public class CatalystInstanceImpl implements CatalystInstance {
     private native static HybridData initHybrid();
 
     private CatalystInstanceImpl(
-            final ReactQueueConfigurationSpec reactQueueConfigurationSpec,
+            final @Nullable ReactQueueConfigurationSpec reactQueueConfigurationSpec,
             final JavaScriptExecutor jsExecutor,
             final NativeModuleRegistry nativeModuleRegistry,
             final JSBundleLoader jsBundleLoader,
-            NativeModuleCallExceptionHandler nativeModuleCallExceptionHandler) {
+            NativeModuleCallExceptionHandler nativeModuleCallExceptionHandler,
+            long jsCallBatchingWindowUs,
+            int jsCallsPendingInitCapacity,
+            QueueOverflowPolicy jsCallsPendingInitOverflowPolicy,
+            long bridgeIdleMinDwellMs,
+            long nativeCallBatchWindowMs,
+            boolean reusableQueues,
+            @Nullable WarmRestartState warmRestartState,
+            @Nullable NativeModulePrefetcher nativeModulePrefetcher,
+            @Nullable ModuleConstantsCache moduleConstantsCache) {
         Log.d(ReactConstants.TAG, "Initializing React Xplat Bridge.");
         Systrace.beginSection(TRACE_TAG_REACT_JAVA_BRIDGE, "createCatalystInstanceImpl");
 
         mHybridData = initHybrid();
 
-        mReactQueueConfiguration = ReactQueueConfigurationImpl.create(
-                reactQueueConfigurationSpec,
-                new NativeExceptionHandler());
+        if (warmRestartState != null) {
+            mReactQueueConfiguration =
+                    warmRestartState.mReactQueueConfiguration.reuse(new NativeExceptionHandler());
+        } else if (reusableQueues) {
+            mReactQueueConfiguration = ReactQueueConfigurationImpl.createReusable(
+                    Assertions.assertNotNull(reactQueueConfigurationSpec),
+                    new NativeExceptionHandler());
+        } else {
+            mReactQueueConfiguration = ReactQueueConfigurationImpl.create(
+                    Assertions.assertNotNull(reactQueueConfigurationSpec),
+                    new NativeExceptionHandler());
+        }
         mBridgeIdleListeners = new CopyOnWriteArrayList<>();
         mNativeModuleRegistry = nativeModuleRegistry;
         mJSModuleRegistry = new JavaScriptModuleRegistry();
@@ -126,16 +201,58 @@ public class CatalystInstanceImpl implements CatalystInstance {
         mNativeModuleCallExceptionHandler = nativeModuleCallExceptionHandler;
         mNativeModulesQueueThread = mReactQueueConfiguration.getNativeModulesQueueThread();
         mTraceListener = new JSProfilerTraceListener(this);
+        mBridgeIdleStateNotifier = new BridgeIdleStateNotifier(
+                mBridgeIdleListeners,
+                mNativeModulesQueueThread,
+                bridgeIdleMinDwellMs,
+                "pending_js_calls_instance" + sNextInstanceIdForTrace.getAndIncrement());
+        mNativeCallBatchRecorder = new NativeCallBatchRecorder(
+                mNativeModulesQueueThread,
+                nativeCallBatchWindowMs);
+        mJSCallBatcher = jsCallBatchingWindowUs > 0
+                ? new JSCallBatcher(
+                        new JSCallBatcher.Dispatcher() {
+                            @Override
+                            public void dispatch(PendingJSCall call) {
+                                call.call(CatalystInstanceImpl.this);
+                            }
+
+                            @Override
+                            public boolean isDestroyed() {
+                                return mDestroyed;
+                            }
+                        },
+                        mReactQueueConfiguration.getJSQueueThread(),
+                        jsCallBatchingWindowUs)
+                : null;
+        mNativeModulePrefetcher = nativeModulePrefetcher;
+        mModuleConstantsCache = moduleConstantsCache;
+        if (moduleConstantsCache != null) {
+            moduleConstantsCache.load();
+            setConstantsCache(mNativeModuleRegistry, moduleConstantsCache);
+        }
+        mJSCallsPendingInit = new PendingJSCallBuffer(
+                new PendingJSCallBuffer.Dispatcher() {
+                    @Override
+                    public void dispatch(PendingJSCall call) {
+                        dispatchJSCall(call);
+                    }
+                },
+                jsCallsPendingInitCapacity,
+                jsCallsPendingInitOverflowPolicy);
         Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
 
         Log.d(ReactConstants.TAG, "Initializing React Xplat Bridge before initializeBridge");
         Systrace.beginSection(TRACE_TAG_REACT_JAVA_BRIDGE, "initializeCxxBridge");
+        Collection<JavaModuleWrapper> javaModules =
+                mNativeModuleRegistry.getJavaModules(this, mNativeCallBatchRecorder);
+        mJavaModuleWrappers.addAll(javaModules);
         initializeBridge(
                 new BridgeCallback(this),
                 jsExecutor,
                 mReactQueueConfiguration.getJSQueueThread(),
                 mNativeModulesQueueThread,
-                mNativeModuleRegistry.getJavaModules(this),
+                javaModules,
                 mNativeModuleRegistry.getCxxModules());
         Log.d(ReactConstants.TAG, "Initializing React Xplat Bridge after initializeBridge");
         Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
@@ -157,6 +274,7 @@ public class CatalystInstanceImpl implements CatalystInstance {
         public void onBatchComplete() {
             CatalystInstanceImpl impl = mOuter.get();
             if (impl != null) {
+                impl.mNativeCallBatchRecorder.onBatchComplete();
                 impl.mNativeModuleRegistry.onBatchComplete();
             }
         }
@@ -180,20 +298,36 @@ public class CatalystInstanceImpl implements CatalystInstance {
 
     /**
      * This method and the native below permits a CatalystInstance to extend the known
-     * Native modules. This registry contains only the new modules to load. The
-     * registry {@code mNativeModuleRegistry} updates internally to contain all the new modules, and generates
-     * the new registry for extracting just the new collections.
+     * Native modules. The registry {@code mNativeModuleRegistry} publishes a copy of itself with
+     * the modules it didn't have yet, and only those modules are passed to native: modules whose
+     * name is already registered are ignored, as they are by the Java-visible registry.
      */
     @Override
     public void extendNativeModules(NativeModuleRegistry modules) {
         //Extend the Java-visible registry of modules
-        mNativeModuleRegistry.registerModules(modules);
-        Collection<JavaModuleWrapper> javaModules = modules.getJavaModules(this);
-        Collection<ModuleHolder> cxxModules = modules.getCxxModules();
+        NativeModuleRegistry addedModules = mNativeModuleRegistry.registerModules(modules);
+        if (addedModules == null) {
+            return;
+        }
+        if (mModuleConstantsCache != null) {
+            setConstantsCache(addedModules, mModuleConstantsCache);
+        }
+        Collection<JavaModuleWrapper> javaModules =
+                addedModules.getJavaModules(this, mNativeCallBatchRecorder);
+        Collection<ModuleHolder> cxxModules = addedModules.getCxxModules();
+        mJavaModuleWrappers.addAll(javaModules);
         //Extend the Cxx-visible registry of modules wrapped in appropriate interfaces
         jniExtendNativeModules(javaModules, cxxModules);
     }
 
+    private static void setConstantsCache(
+            NativeModuleRegistry registry,
+            ModuleConstantsCache constantsCache) {
+        for (ModuleHolder moduleHolder : registry.getModuleHolders()) {
+            moduleHolder.setConstantsCache(constantsCache);
+        }
+    }
+
     private native void jniExtendNativeModules(
             Collection<JavaModuleWrapper> javaModules,
             Collection<ModuleHolder> cxxModules);
@@ -255,19 +389,12 @@ public class CatalystInstanceImpl implements CatalystInstance {
         // incrementPendingJSCalls();
         mJSBundleLoader.loadScript(CatalystInstanceImpl.this);
 
-        synchronized (mJSCallsPendingInitLock) {
-
-            // Loading the bundle is queued on the JS thread, but may not have
-            // run yet.  It's safe to set this here, though, since any work it
-            // gates will be queued on the JS thread behind the load.
-            mAcceptCalls = true;
-
-            for (PendingJSCall function : mJSCallsPendingInit) {
-                function.call(this);
-            }
-            mJSCallsPendingInit.clear();
-            mJSBundleHasLoaded = true;
-        }
+        // Loading the bundle is queued on the JS thread, but may not have
+        // run yet.  It's safe to open the buffer here, though, since any work it
+        // gates will be queued on the JS thread behind the load. Calls made
+        // meanwhile from other threads are never blocked by the replay.
+        mJSCallsPendingInit.open();
+        mJSBundleHasLoaded = true;
 
         // This is registered after JS starts since it makes a JS call
         Systrace.registerListener(mTraceListener);
@@ -275,9 +402,7 @@ public class CatalystInstanceImpl implements CatalystInstance {
 
     @Override
     public boolean hasRunJSBundle() {
-        synchronized (mJSCallsPendingInitLock) {
-            return mJSBundleHasLoaded && mAcceptCalls;
-        }
+        return mJSBundleHasLoaded && mJSCallsPendingInit.isOpen();
     }
 
     @Override
@@ -291,11 +416,27 @@ public class CatalystInstanceImpl implements CatalystInstance {
             String method,
             NativeArray arguments);
 
+    private native void jniCallJSFunctionWithoutArguments(String module, String method);
+
+    private void invokeJSFunction(String module, String method, @Nullable NativeArray arguments) {
+        if (arguments == null) {
+            jniCallJSFunctionWithoutArguments(module, method);
+        } else {
+            jniCallJSFunction(module, method, arguments);
+        }
+    }
+
     @Override
     public void callFunction(
             final String module,
             final String method,
-            final NativeArray arguments) {
+            final @Nullable NativeArray arguments) {
+        if (!mDestroyed && mJSCallBatcher == null && mJSCallsPendingInit.isDrained()) {
+            // Once the bundle is loaded and the early calls are out, skip the PendingJSCall
+            // wrapper entirely.
+            invokeJSFunction(module, method, arguments);
+            return;
+        }
         callFunction(new PendingJSCall(module, method, arguments));
     }
 
@@ -305,18 +446,75 @@ public class CatalystInstanceImpl implements CatalystInstance {
             FLog.w(ReactConstants.TAG, "Calling JS function after bridge has been destroyed: " + call);
             return;
         }
-        if (!mAcceptCalls) {
-            // Most of the time the instance is initialized and we don't need to acquire the lock
-            synchronized (mJSCallsPendingInitLock) {
-                if (!mAcceptCalls) {
-                    mJSCallsPendingInit.add(function);
-                    return;
-                }
-            }
+        if (mJSCallsPendingInit.offer(function)) {
+            // Buffered until the bundle is loaded, or dispatched behind the calls that were.
+            return;
+        }
+        dispatchJSCall(function);
+    }
+
+    private void dispatchJSCall(PendingJSCall function) {
+        if (mJSCallBatcher != null) {
+            mJSCallBatcher.enqueue(function);
+            return;
         }
         function.call(this);
     }
 
+    /**
+     * @return the batcher buffering {@link #callFunction} calls, or null if JS call batching is
+     * disabled for this instance.
+     */
+    public @Nullable
+    JSCallBatcher getJSCallBatcher() {
+        return mJSCallBatcher;
+    }
+
+    /**
+     * @return number of JS calls made before the bundle was loaded that were dropped because more
+     * than the configured capacity were pending.
+     */
+    public long getDroppedPendingInitJSCallCount() {
+        return mJSCallsPendingInit.getDroppedCount();
+    }
+
+    /**
+     * @return names of the Java native modules exported to JS that JS never resolved, i.e. never
+     * touched through {@code NativeModules}. JS only gets their names until then, so a module that
+     * is still listed here at teardown didn't need to be registered for this instance.
+     */
+    public List<String> getUnresolvedNativeModuleNames() {
+        List<String> names = new ArrayList<>();
+        for (JavaModuleWrapper wrapper : mJavaModuleWrappers) {
+            if (!wrapper.isResolved()) {
+                names.add(wrapper.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return number of Java native modules exported to JS that JS never resolved, see
+     * {@link #getUnresolvedNativeModuleNames}.
+     */
+    public int getUnresolvedNativeModuleCount() {
+        int count = 0;
+        for (JavaModuleWrapper wrapper : mJavaModuleWrappers) {
+            if (!wrapper.isResolved()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the prefetcher set with {@link Builder#setNativeModulePrefetcher}, e.g. to report
+     * its counters.
+     */
+    public @Nullable NativeModulePrefetcher getNativeModulePrefetcher() {
+        return mNativeModulePrefetcher;
+    }
+
     private native void jniCallJSCallback(int callbackID, NativeArray arguments);
 
     @Override
@@ -327,6 +525,11 @@ public class CatalystInstanceImpl implements CatalystInstance {
             return;
         }
 
+        // Don't let the callback overtake JS calls made before it.
+        if (mJSCallBatcher != null) {
+            mJSCallBatcher.flush();
+        }
+
         jniCallJSCallback(callbackID, (NativeArray) arguments);
     }
 
@@ -346,23 +549,53 @@ public class CatalystInstanceImpl implements CatalystInstance {
 
         // TODO: tell all APIs to shut down
         ReactMarker.logMarker(ReactMarkerConstants.DESTROY_CATALYST_INSTANCE_START);
+        destroyInner(null, 0);
+    }
+
+    /**
+     * Like {@link #destroy()}, but keeps the queue threads and the native modules for the next
+     * instance, see {@link Builder#setWarmRestartState}. Native modules aren't notified through
+     * {@link NativeModule#onCatalystInstanceDestroy}, and the queue threads are only drained
+     * instead of being quit and joined. The instance must have been built with
+     * {@link Builder#setReusableQueues} or from a {@link WarmRestartState}.
+     *
+     * @return false, without destroying the instance, if it is already destroyed or its queue
+     * threads can't be reused.
+     */
+    public boolean destroyForWarmRestart(WarmRestartCallback callback) {
+        Log.d(ReactConstants.TAG, "CatalystInstanceImpl.destroyForWarmRestart() start");
+        UiThreadUtil.assertOnUiThread();
+
+        if (mDestroyed || !mReactQueueConfiguration.isReusable()) {
+            return false;
+        }
+
+        ReactMarker.logMarker(ReactMarkerConstants.DESTROY_CATALYST_INSTANCE_START);
+        destroyInner(callback, SystemClock.uptimeMillis());
+        return true;
+    }
+
+    private void destroyInner(
+            final @Nullable WarmRestartCallback warmRestartCallback,
+            final long destroyStartTimeMs) {
+        if (mJSCallBatcher != null) {
+            mJSCallBatcher.flush();
+        }
         mDestroyed = true;
+        if (mNativeModulePrefetcher != null) {
+            mNativeModulePrefetcher.stop();
+        }
 
         mNativeModulesQueueThread.runOnQueue(
                 new Runnable() {
                     @Override
                     public void run() {
-                        mNativeModuleRegistry.notifyJSInstanceDestroy();
-                        mJSIModuleRegistry.notifyJSInstanceDestroy();
-                        boolean wasIdle = (mPendingJSCalls.getAndSet(0) == 0);
-                        if (!mBridgeIdleListeners.isEmpty()) {
-                            for (NotThreadSafeBridgeIdleDebugListener listener : mBridgeIdleListeners) {
-                                if (!wasIdle) {
-                                    listener.onTransitionToBridgeIdle();
-                                }
-                                listener.onBridgeDestroyed();
-                            }
+                        if (warmRestartCallback == null) {
+                            mNativeModuleRegistry.notifyJSInstanceDestroy();
                         }
+                        mJSIModuleRegistry.notifyJSInstanceDestroy();
+                        mBridgeIdleStateNotifier.notifyDestroyed();
+                        mNativeCallBatchRecorder.stop();
                         AsyncTask.execute(
                                 new Runnable() {
                                     @Override
@@ -376,9 +609,21 @@ public class CatalystInstanceImpl implements CatalystInstance {
                                         mJavaScriptContextHolder.clear();
 
                                         mHybridData.resetNative();
-                                        getReactQueueConfiguration().destroy();
+                                        if (warmRestartCallback == null) {
+                                            getReactQueueConfiguration().destroy();
+                                        } else {
+                                            mReactQueueConfiguration.quiesce();
+                                        }
                                         Log.d(ReactConstants.TAG, "CatalystInstanceImpl.destroy() end");
                                         ReactMarker.logMarker(ReactMarkerConstants.DESTROY_CATALYST_INSTANCE_END);
+                                        if (warmRestartCallback != null) {
+                                            warmRestartCallback.onQuiesced(
+                                                    new WarmRestartState(
+                                                            mReactQueueConfiguration,
+                                                            mNativeModuleRegistry,
+                                                            mSourceURL,
+                                                            destroyStartTimeMs));
+                                        }
                                     }
                                 });
                     }
@@ -404,16 +649,19 @@ public class CatalystInstanceImpl implements CatalystInstance {
                 !mInitialized,
                 "This catalyst instance has already been initialized");
         // We assume that the instance manager blocks on running the JS bundle. If
-        // that changes, then we need to set mAcceptCalls just after posting the
-        // task that will run the js bundle.
+        // that changes, then we need to open mJSCallsPendingInit just after posting
+        // the task that will run the js bundle.
         Assertions.assertCondition(
-                mAcceptCalls,
+                mJSCallsPendingInit.isOpen(),
                 "RunJSBundle hasn't completed.");
         mInitialized = true;
         mNativeModulesQueueThread.runOnQueue(new Runnable() {
             @Override
             public void run() {
                 mNativeModuleRegistry.notifyJSInstanceInitialized();
+                if (mNativeModulePrefetcher != null) {
+                    mNativeModulePrefetcher.start(mNativeModuleRegistry.getModuleHolders());
+                }
             }
         });
     }
@@ -430,12 +678,12 @@ public class CatalystInstanceImpl implements CatalystInstance {
 
     @Override
     public <T extends NativeModule> boolean hasNativeModule(Class<T> nativeModuleInterface) {
-        return mNativeModuleRegistry.hasModule(getNameFromAnnotation(nativeModuleInterface));
+        return mNativeModuleRegistry.hasModule(nativeModuleInterface);
     }
 
     @Override
     public <T extends NativeModule> T getNativeModule(Class<T> nativeModuleInterface) {
-        return (T) mNativeModuleRegistry.getModule(getNameFromAnnotation(nativeModuleInterface));
+        return mNativeModuleRegistry.getModule(nativeModuleInterface);
     }
 
     @Override
@@ -443,14 +691,6 @@ public class CatalystInstanceImpl implements CatalystInstance {
         return mNativeModuleRegistry.getModule(moduleName);
     }
 
-    private <T extends NativeModule> String getNameFromAnnotation(Class<T> nativeModuleInterface) {
-        ReactModule annotation = nativeModuleInterface.getAnnotation(ReactModule.class);
-        if (annotation == null) {
-            throw new IllegalArgumentException("Could not find @ReactModule annotation in " + nativeModuleInterface.getCanonicalName());
-        }
-        return annotation.name();
-    }
-
     // This is only used by com.facebook.react.modules.common.ModuleDataCleaner
     @Override
     public Collection<NativeModule> getNativeModules() {
@@ -487,6 +727,16 @@ public class CatalystInstanceImpl implements CatalystInstance {
         mBridgeIdleListeners.remove(listener);
     }
 
+    @Override
+    public void addNativeCallBatchListener(NativeCallBatchListener listener) {
+        mNativeCallBatchRecorder.addListener(listener);
+    }
+
+    @Override
+    public void removeNativeCallBatchListener(NativeCallBatchListener listener) {
+        mNativeCallBatchRecorder.removeListener(listener);
+    }
+
     @Override
     public native void setGlobalVariable(String propName, String jsonValue);
 
@@ -508,44 +758,27 @@ public class CatalystInstanceImpl implements CatalystInstance {
     private native long getJavaScriptContext();
 
     private void incrementPendingJSCalls() {
-        int oldPendingCalls = mPendingJSCalls.getAndIncrement();
-        boolean wasIdle = oldPendingCalls == 0;
-        Systrace.traceCounter(
-                Systrace.TRACE_TAG_REACT_JAVA_BRIDGE,
-                mJsPendingCallsTitleForTrace,
-                oldPendingCalls + 1);
-        if (wasIdle && !mBridgeIdleListeners.isEmpty()) {
-            mNativeModulesQueueThread.runOnQueue(new Runnable() {
-                @Override
-                public void run() {
-                    for (NotThreadSafeBridgeIdleDebugListener listener : mBridgeIdleListeners) {
-                        listener.onTransitionToBridgeBusy();
-                    }
-                }
-            });
-        }
+        mBridgeIdleStateNotifier.incrementPendingCalls();
     }
 
     private void decrementPendingJSCalls() {
-        int newPendingCalls = mPendingJSCalls.decrementAndGet();
-        // TODO(9604406): handle case of web workers injecting messages to main thread
-        //Assertions.assertCondition(newPendingCalls >= 0);
-        boolean isNowIdle = newPendingCalls == 0;
-        Systrace.traceCounter(
-                Systrace.TRACE_TAG_REACT_JAVA_BRIDGE,
-                mJsPendingCallsTitleForTrace,
-                newPendingCalls);
-
-        if (isNowIdle && !mBridgeIdleListeners.isEmpty()) {
-            mNativeModulesQueueThread.runOnQueue(new Runnable() {
-                @Override
-                public void run() {
-                    for (NotThreadSafeBridgeIdleDebugListener listener : mBridgeIdleListeners) {
-                        listener.onTransitionToBridgeIdle();
-                    }
-                }
-            });
-        }
+        mBridgeIdleStateNotifier.decrementPendingCalls();
+    }
+
+    /**
+     * @return total time, since this instance was created, during which some calls to JS hadn't
+     * resolved via a onBatchComplete call.
+     */
+    public long getBridgeBusyTimeMs() {
+        return mBridgeIdleStateNotifier.getBusyTimeMs();
+    }
+
+    /**
+     * @return total time, since this instance was created, during which all calls to JS had
+     * resolved.
+     */
+    public long getBridgeIdleTimeMs() {
+        return mBridgeIdleStateNotifier.getIdleTimeMs();
     }
 
     private void onNativeException(Exception e) {
@@ -609,7 +842,19 @@ public class CatalystInstanceImpl implements CatalystInstance {
         JavaScriptExecutor mJSExecutor;
         private @Nullable
         NativeModuleCallExceptionHandler mNativeModuleCallExceptionHandler;
-
+        private long mJSCallBatchingWindowUs = 0;
+        private int mJSCallsPendingInitCapacity = Integer.MAX_VALUE;
+        private QueueOverflowPolicy mJSCallsPendingInitOverflowPolicy =
+                QueueOverflowPolicy.DROP_OLDEST;
+        private long mBridgeIdleMinDwellMs = 0;
+        private long mNativeCallBatchWindowMs = DEFAULT_NATIVE_CALL_BATCH_WINDOW_MS;
+        private boolean mReusableQueues = false;
+        private @Nullable
+        NativeModulePrefetcher mNativeModulePrefetcher;
+        private @Nullable
+        ModuleConstantsCache mModuleConstantsCache;
+        private @Nullable
+        WarmRestartState mWarmRestartState;
 
         public Builder setReactQueueConfigurationSpec(
                 ReactQueueConfigurationSpec ReactQueueConfigurationSpec) {
@@ -638,13 +883,108 @@ public class CatalystInstanceImpl implements CatalystInstance {
             return this;
         }
 
+        /**
+         * Buffers {@link CatalystInstanceImpl#callFunction} calls for up to {@code windowUs}
+         * microseconds and sends them to JS as a single invocation (see {@link JSCallBatcher}).
+         * Use {@link JSCallBatcher#FRAME_WINDOW_US} to batch per frame. 0, the default, disables
+         * batching.
+         */
+        public Builder setJSCallBatchingWindowUs(long windowUs) {
+            mJSCallBatchingWindowUs = windowUs;
+            return this;
+        }
+
+        /**
+         * Bounds the number of JS calls buffered until the bundle is loaded (unbounded by default).
+         * Only {@link QueueOverflowPolicy#DROP_OLDEST} and {@link QueueOverflowPolicy#DROP_NEWEST}
+         * are supported: callers can't be blocked waiting for the bundle to load.
+         */
+        public Builder setJSCallsPendingInitCapacity(
+                int capacity,
+                QueueOverflowPolicy overflowPolicy) {
+            mJSCallsPendingInitCapacity = capacity;
+            mJSCallsPendingInitOverflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Only report the bridge as idle to {@link NotThreadSafeBridgeIdleDebugListener}s once it
+         * has stayed idle for {@code minDwellMs}. Idle is reported right away by default.
+         */
+        public Builder setBridgeIdleMinDwellMs(long minDwellMs) {
+            mBridgeIdleMinDwellMs = minDwellMs;
+            return this;
+        }
+
+        /**
+         * Length of the windows reported to {@link NativeCallBatchListener}s, one second by
+         * default.
+         */
+        public Builder setNativeCallBatchWindowMs(long windowMs) {
+            mNativeCallBatchWindowMs = windowMs;
+            return this;
+        }
+
+        /**
+         * Keep the queue threads alive when the instance is torn down with
+         * {@link CatalystInstanceImpl#destroyForWarmRestart}, so that they can be reused.
+         */
+        public Builder setReusableQueues(boolean reusableQueues) {
+            mReusableQueues = reusableQueues;
+            return this;
+        }
+
+        /**
+         * Run the instance on the queue threads and with the native modules of an instance torn
+         * down with {@link CatalystInstanceImpl#destroyForWarmRestart}. Replaces
+         * {@link #setRegistry}, and the queue configuration spec is ignored.
+         */
+        public Builder setWarmRestartState(WarmRestartState warmRestartState) {
+            mWarmRestartState = warmRestartState;
+            mRegistry = warmRestartState.getNativeModuleRegistry();
+            return this;
+        }
+
+        /**
+         * Prefetch, in the background, the native modules the previous session used right after
+         * starting, and record the ones this session uses (see {@link NativeModulePrefetcher}).
+         * Use a new prefetcher for each instance.
+         */
+        public Builder setNativeModulePrefetcher(
+                @Nullable NativeModulePrefetcher nativeModulePrefetcher) {
+            mNativeModulePrefetcher = nativeModulePrefetcher;
+            return this;
+        }
+
+        /**
+         * Serve the constants of the native modules implementing {@link CacheableConstants} from
+         * {@code moduleConstantsCache}, see {@link ModuleConstantsCache}. The same cache can be
+         * used by every instance.
+         */
+        public Builder setModuleConstantsCache(
+                @Nullable ModuleConstantsCache moduleConstantsCache) {
+            mModuleConstantsCache = moduleConstantsCache;
+            return this;
+        }
+
         public CatalystInstanceImpl build() {
             return new CatalystInstanceImpl(
-                    Assertions.assertNotNull(mReactQueueConfigurationSpec),
+                    mWarmRestartState != null
+                            ? mReactQueueConfigurationSpec
+                            : Assertions.assertNotNull(mReactQueueConfigurationSpec),
                     Assertions.assertNotNull(mJSExecutor),
                     Assertions.assertNotNull(mRegistry),
                     Assertions.assertNotNull(mJSBundleLoader),
-                    Assertions.assertNotNull(mNativeModuleCallExceptionHandler));
+                    Assertions.assertNotNull(mNativeModuleCallExceptionHandler),
+                    mJSCallBatchingWindowUs,
+                    mJSCallsPendingInitCapacity,
+                    mJSCallsPendingInitOverflowPolicy,
+                    mBridgeIdleMinDwellMs,
+                    mNativeCallBatchWindowMs,
+                    mReusableQueues,
+                    mWarmRestartState,
+                    mNativeModulePrefetcher,
+                    mModuleConstantsCache);
         }
 
     }
@@ -11,12 +11,19 @@ import android.content.Context;
 
 import com.facebook.react.common.DebugServerException;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * A class that stores JS bundle information and allows a {@link JSBundleLoaderDelegate}
  * (e.g. {@link CatalystInstance}) to load a correct bundle through {@link ReactBridge}.
  */
 public abstract class JSBundleLoader {
 
+  private static final String ASSETS_URL_PREFIX = "assets://";
+  private static final int PREFETCH_BUFFER_SIZE = 64 * 1024;
+
   /**
    * This loader is recommended one for release version of your app. In that case local JS executor
    * should be used. JS bundle will be read from assets in native code to save on passing large
@@ -32,6 +39,20 @@ public abstract class JSBundleLoader {
         delegate.loadScriptFromAssets(context.getAssets(), assetUrl, loadSynchronously);
         return assetUrl;
       }
+
+      @Override
+      public void prefetch() {
+        String assetName = assetUrl.startsWith(ASSETS_URL_PREFIX)
+            ? assetUrl.substring(ASSETS_URL_PREFIX.length())
+            : assetUrl;
+        try {
+          // Only stored assets can be opened as a file descriptor. Reading a compressed one would
+          // inflate it for nothing, since native code inflates it again when loading it.
+          readFully(context.getAssets().openFd(assetName).createInputStream());
+        } catch (IOException e) {
+          // Best effort: the asset is compressed, or loadScript reports the actual error.
+        }
+      }
     };
   }
 
@@ -53,6 +74,15 @@ public abstract class JSBundleLoader {
         delegate.loadScriptFromFile(fileName, assetUrl, loadSynchronously);
         return fileName;
       }
+
+      @Override
+      public void prefetch() {
+        try {
+          readFully(new FileInputStream(fileName));
+        } catch (IOException e) {
+          // Best effort, loadScript reports the actual error.
+        }
+      }
     };
   }
 
@@ -119,4 +149,23 @@ public abstract class JSBundleLoader {
 
   /** Loads the script, returning the URL of the source it loaded. */
   public abstract String loadScript(JSBundleLoaderDelegate delegate);
+
+  /**
+   * Reads the script ahead of {@link #loadScript}, from any thread, so that it is already in the
+   * page cache when native code loads it. Does nothing for scripts that aren't read from the
+   * device, nor for assets compressed in the APK.
+   */
+  public void prefetch() {
+  }
+
+  private static void readFully(InputStream inputStream) throws IOException {
+    try {
+      byte[] buffer = new byte[PREFETCH_BUFFER_SIZE];
+      while (inputStream.read(buffer) != -1) {
+        // Only the side effect of reading matters.
+      }
+    } finally {
+      inputStream.close();
+    }
+  }
 }
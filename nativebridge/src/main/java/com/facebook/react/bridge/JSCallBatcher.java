@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.common.logging.FLog;
+import com.facebook.react.bridge.CatalystInstanceImpl.PendingJSCall;
+import com.facebook.react.bridge.queue.MessageQueueThread;
+import com.facebook.react.common.ReactConstants;
+import com.facebook.systrace.Systrace;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Opt-in buffer in front of {@link CatalystInstanceImpl#callFunction}. Instead of scheduling one JS
+ * invocation per call, calls are collected for up to a fixed window and handed to JS as a single
+ * {@code JSCallBatch.callFunctions} invocation, which runs them in the order they were made.
+ *
+ * <p>A batch is flushed as soon as it is {@link #MAX_BATCH_SIZE} calls long, or when its oldest
+ * call has waited for the window: checked on every new call, and by a timer (with millisecond
+ * granularity) for the last batch of a burst. The timer runs on the main thread but only posts the
+ * flush to the flush queue thread, the JS queue thread in practice: building and handing over the
+ * batch is left off the UI thread.
+ */
+public class JSCallBatcher {
+
+  /** Window matching one frame at 60fps. */
+  public static final long FRAME_WINDOW_US = 16667;
+
+  /* package */ static final int MAX_BATCH_SIZE = 256;
+
+  private static final String BATCH_MODULE = "JSCallBatch";
+  private static final String BATCH_METHOD = "callFunctions";
+  private static final String BATCH_SIZE_TITLE_FOR_TRACE = "js_call_batch_size";
+
+  /* package */ interface Dispatcher {
+    void dispatch(PendingJSCall call);
+
+    boolean isDestroyed();
+  }
+
+  private final Dispatcher mDispatcher;
+  private final MessageQueueThread mFlushQueueThread;
+  private final long mWindowNanos;
+  private final long mTimerDelayMs;
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private final Runnable mFlushTask = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+  private final Runnable mFlushTimeoutRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mFlushQueueThread.runOnQueue(mFlushTask);
+    }
+  };
+
+  private final Object mLock = new Object();
+  @GuardedBy("mLock")
+  private ArrayList<PendingJSCall> mPendingCalls = new ArrayList<>();
+  @GuardedBy("mLock")
+  private long mOldestCallNanos;
+
+  // Held while a batch is handed over to C++, so that batches reach the JS thread in order.
+  private final Object mFlushLock = new Object();
+  private volatile int mMaxBatchSize = 0;
+  private final AtomicLong mFlushedBatchCount = new AtomicLong();
+  private final AtomicLong mBatchedCallCount = new AtomicLong();
+
+  /* package */ JSCallBatcher(
+      Dispatcher dispatcher,
+      MessageQueueThread flushQueueThread,
+      long windowUs) {
+    mDispatcher = dispatcher;
+    mFlushQueueThread = flushQueueThread;
+    mWindowNanos = TimeUnit.MICROSECONDS.toNanos(windowUs);
+    mTimerDelayMs = (windowUs + 999) / 1000;
+  }
+
+  /* package */ void enqueue(PendingJSCall call) {
+    if (call.mArguments != null && !(call.mArguments instanceof WritableNativeArray)) {
+      // Can't be moved into a batch: send everything buffered so far first to keep the order.
+      synchronized (mFlushLock) {
+        flush();
+        mDispatcher.dispatch(call);
+      }
+      return;
+    }
+    boolean shouldFlush;
+    synchronized (mLock) {
+      long now = System.nanoTime();
+      if (mPendingCalls.isEmpty()) {
+        mOldestCallNanos = now;
+        mHandler.postDelayed(mFlushTimeoutRunnable, mTimerDelayMs);
+      }
+      mPendingCalls.add(call);
+      shouldFlush = mPendingCalls.size() >= MAX_BATCH_SIZE
+          || now - mOldestCallNanos >= mWindowNanos;
+    }
+    if (shouldFlush) {
+      flush();
+    }
+  }
+
+  /**
+   * Hands every buffered call over to JS right away.
+   */
+  public void flush() {
+    synchronized (mFlushLock) {
+      ArrayList<PendingJSCall> calls;
+      synchronized (mLock) {
+        if (mPendingCalls.isEmpty()) {
+          return;
+        }
+        calls = mPendingCalls;
+        mPendingCalls = new ArrayList<>();
+        mHandler.removeCallbacks(mFlushTimeoutRunnable);
+      }
+      if (mDispatcher.isDestroyed()) {
+        FLog.w(
+            ReactConstants.TAG,
+            "Dropping " + calls.size() + " batched JS calls after bridge has been destroyed");
+        return;
+      }
+      int size = calls.size();
+      mFlushedBatchCount.incrementAndGet();
+      mBatchedCallCount.addAndGet(size);
+      mMaxBatchSize = Math.max(mMaxBatchSize, size);
+      Systrace.traceCounter(
+          Systrace.TRACE_TAG_REACT_JAVA_BRIDGE,
+          BATCH_SIZE_TITLE_FOR_TRACE,
+          size);
+      if (size == 1) {
+        mDispatcher.dispatch(calls.get(0));
+        return;
+      }
+      WritableNativeArray batch = new WritableNativeArray();
+      for (int i = 0; i < size; i++) {
+        PendingJSCall call = calls.get(i);
+        WritableNativeArray entry = new WritableNativeArray();
+        entry.pushString(call.mModule);
+        entry.pushString(call.mMethod);
+        if (call.mArguments != null) {
+          entry.pushArray((WritableNativeArray) call.mArguments);
+        } else {
+          // JS applies a null argument list as an empty one.
+          entry.pushNull();
+        }
+        batch.pushArray(entry);
+      }
+      WritableNativeArray arguments = new WritableNativeArray();
+      arguments.pushArray(batch);
+      mDispatcher.dispatch(new PendingJSCall(BATCH_MODULE, BATCH_METHOD, arguments));
+    }
+  }
+
+  /**
+   * @return number of batches handed over to JS, a batch of one call included.
+   */
+  public long getFlushedBatchCount() {
+    return mFlushedBatchCount.get();
+  }
+
+  /**
+   * @return number of calls handed over to JS through this batcher.
+   */
+  public long getBatchedCallCount() {
+    return mBatchedCallCount.get();
+  }
+
+  /**
+   * @return size of the largest batch handed over to JS so far.
+   */
+  public int getMaxBatchSize() {
+    return mMaxBatchSize;
+  }
+}
@@ -52,12 +52,25 @@ public class JavaModuleWrapper {
     private final ModuleHolder mModuleHolder;
     private final ArrayList<NativeModule.NativeMethod> mMethods;
     private final ArrayList<MethodDescriptor> mDescs;
+    private final @Nullable
+    NativeCallBatchRecorder mBatchRecorder;
+    private boolean mMethodsFound;
+    // Set the first time JS asks for the methods or constants of the module.
+    private volatile boolean mIsResolved;
 
     public JavaModuleWrapper(JSInstance jsInstance, ModuleHolder moduleHolder) {
+        this(jsInstance, moduleHolder, null);
+    }
+
+    /* package */ JavaModuleWrapper(
+            JSInstance jsInstance,
+            ModuleHolder moduleHolder,
+            @Nullable NativeCallBatchRecorder batchRecorder) {
         mJSInstance = jsInstance;
         mModuleHolder = moduleHolder;
         mMethods = new ArrayList<>();
         mDescs = new ArrayList();
+        mBatchRecorder = batchRecorder;
     }
 
     @DoNotStrip
@@ -113,15 +126,27 @@ public class JavaModuleWrapper {
 
     @DoNotStrip
     public List<MethodDescriptor> getMethodDescriptors() {
-        if (mDescs.isEmpty()) {
+        mIsResolved = true;
+        if (!mMethodsFound) {
             findMethods();
+            mMethodsFound = true;
         }
         return mDescs;
     }
 
+    /**
+     * @return whether JS has asked for the methods or constants of this module. JS only does that
+     * the first time it touches {@code NativeModules.<name>}: until then, all it knows of the
+     * module is its name.
+     */
+    /* package */ boolean isResolved() {
+        return mIsResolved;
+    }
+
     @DoNotStrip
     public @Nullable
     NativeMap getConstants() {
+        mIsResolved = true;
         if (!mModuleHolder.getHasConstants()) {
             return null;
         }
@@ -134,14 +159,29 @@ public class JavaModuleWrapper {
 
         BaseJavaModule baseJavaModule = getModule();
 
+        ModuleConstantsCache constantsCache = mModuleHolder.getConstantsCache();
+        String fingerprint = null;
+        if (constantsCache != null && baseJavaModule instanceof CacheableConstants) {
+            fingerprint = ((CacheableConstants) baseJavaModule).getConstantsFingerprint();
+        }
+        if (fingerprint != null) {
+            WritableNativeMap cachedConstants = constantsCache.get(moduleName, fingerprint);
+            if (cachedConstants != null) {
+                ReactMarker.logMarker(GET_CONSTANTS_END, moduleName);
+                SystraceMessage.endSection(TRACE_TAG_REACT_JAVA_BRIDGE).flush();
+                return cachedConstants;
+            }
+        }
+
         Systrace.beginSection(TRACE_TAG_REACT_JAVA_BRIDGE, "module.getConstants");
         Map<String, Object> map = baseJavaModule.getConstants();
         Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
 
         Systrace.beginSection(TRACE_TAG_REACT_JAVA_BRIDGE, "create WritableNativeMap");
         ReactMarker.logMarker(CONVERT_CONSTANTS_START, moduleName);
+        WritableNativeMap constants;
         try {
-            return Arguments.makeNativeMap(map);
+            constants = Arguments.makeNativeMap(map);
         } finally {
             ReactMarker.logMarker(CONVERT_CONSTANTS_END, moduleName);
             Systrace.endSection(TRACE_TAG_REACT_JAVA_BRIDGE);
@@ -149,6 +189,10 @@ public class JavaModuleWrapper {
             ReactMarker.logMarker(GET_CONSTANTS_END, moduleName);
             SystraceMessage.endSection(TRACE_TAG_REACT_JAVA_BRIDGE).flush();
         }
+        if (fingerprint != null) {
+            constantsCache.put(moduleName, fingerprint, map);
+        }
+        return constants;
     }
 
     @DoNotStrip
@@ -157,6 +201,9 @@ public class JavaModuleWrapper {
             return;
         }
 
+        if (mBatchRecorder != null) {
+            mBatchRecorder.onNativeCall(mModuleHolder.getName());
+        }
         mMethods.get(methodId).invoke(mJSInstance, parameters);
     }
 }
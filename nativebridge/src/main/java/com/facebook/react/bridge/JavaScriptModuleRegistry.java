@@ -7,30 +7,39 @@
 
 package com.facebook.react.bridge;
 
+import com.facebook.common.logging.FLog;
+import com.facebook.react.common.ReactConstants;
 import com.facebook.react.common.build.ReactBuildConfig;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
 /**
- * Class responsible for holding all the {@link JavaScriptModule}s.  Uses Java proxy objects
+ * Class responsible for holding all the {@link JavaScriptModule}s.  Uses the stubs generated by
+ * {@code JavaScriptModuleStubProcessor}, or Java proxy objects for interfaces that don't have one,
  * to dispatch method calls on JavaScriptModules to the bridge using the corresponding
  * module and method ids so the proper function is executed in JavaScript.
  */
 public final class JavaScriptModuleRegistry {
-  private final HashMap<Class<? extends JavaScriptModule>, JavaScriptModule> mModuleInstances;
+  // Keep in sync with JavaScriptModuleStubProcessor.
+  private static final String STUB_SUFFIX = "$$JavaScriptModuleStub";
+
+  // Looked up from every thread emitting events (e.g. JSTimers on every frame), so the lookup of a
+  // module that already exists must not take a lock.
+  private final ConcurrentHashMap<Class<? extends JavaScriptModule>, JavaScriptModule>
+      mModuleInstances;
 
   public JavaScriptModuleRegistry() {
-    mModuleInstances = new HashMap<>();
+    mModuleInstances = new ConcurrentHashMap<>();
   }
 
-  public synchronized <T extends JavaScriptModule> T getJavaScriptModule(
+  public <T extends JavaScriptModule> T getJavaScriptModule(
       CatalystInstance instance,
       Class<T> moduleInterface) {
     JavaScriptModule module = mModuleInstances.get(moduleInterface);
@@ -38,15 +47,49 @@ public final class JavaScriptModuleRegistry {
       return (T) module;
     }
 
-    JavaScriptModule interfaceProxy = (JavaScriptModule) Proxy.newProxyInstance(
-        moduleInterface.getClassLoader(),
-        new Class[]{moduleInterface},
-        new JavaScriptModuleInvocationHandler(instance, moduleInterface));
-    mModuleInstances.put(moduleInterface, interfaceProxy);
-    return (T) interfaceProxy;
+    module = createGeneratedStub(instance, moduleInterface);
+    if (module == null) {
+      module = (JavaScriptModule) Proxy.newProxyInstance(
+          moduleInterface.getClassLoader(),
+          new Class[]{moduleInterface},
+          new JavaScriptModuleInvocationHandler(instance, moduleInterface));
+    }
+    // Threads racing to create the same module each build one, but they all get the first one
+    // registered. Modules are stateless, so the others can just be dropped.
+    JavaScriptModule existingModule = mModuleInstances.putIfAbsent(moduleInterface, module);
+    return (T) (existingModule != null ? existingModule : module);
+  }
+
+  /**
+   * @return an instance of the stub generated for {@code moduleInterface}, or null if it doesn't
+   * have one.
+   */
+  private static @Nullable JavaScriptModule createGeneratedStub(
+      CatalystInstance instance,
+      Class<? extends JavaScriptModule> moduleInterface) {
+    Class<?> stubClass;
+    try {
+      stubClass = Class.forName(
+          moduleInterface.getName() + STUB_SUFFIX,
+          true,
+          moduleInterface.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+    try {
+      return (JavaScriptModule) stubClass
+          .getConstructor(CatalystInstance.class)
+          .newInstance(instance);
+    } catch (Exception e) {
+      FLog.w(
+          ReactConstants.TAG,
+          "Could not instantiate " + stubClass.getName() + ", falling back to a proxy",
+          e);
+      return null;
+    }
   }
 
-  private static class JavaScriptModuleInvocationHandler implements InvocationHandler {
+  /* package */ static class JavaScriptModuleInvocationHandler implements InvocationHandler {
     private final CatalystInstance mCatalystInstance;
     private final Class<? extends JavaScriptModule> mModuleInterface;
     private @Nullable
@@ -90,9 +133,10 @@ public final class JavaScriptModuleRegistry {
     @Override
     public @Nullable
     Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
-      NativeArray jsArgs = args != null
+      // Zero-arg calls don't need a native array: the bridge sends an empty argument list.
+      NativeArray jsArgs = args != null && args.length > 0
         ? Arguments.fromJavaArgs(args)
-        : new WritableNativeArray();
+        : null;
       mCatalystInstance.callFunction(getJSModuleName(), method.getName(), jsArgs);
       return null;
     }
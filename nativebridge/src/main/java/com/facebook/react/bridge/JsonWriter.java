@@ -144,6 +144,10 @@ public class JsonWriter implements Closeable {
   }
 
   private void open(Scope scope, char bracket) throws IOException {
+    if (!mScopes.isEmpty()) {
+      // Objects and arrays nested in an array need a separator too.
+      beforeValue();
+    }
     mScopes.push(scope);
     mWriter.write(bracket);
   }
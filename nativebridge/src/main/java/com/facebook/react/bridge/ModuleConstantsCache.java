@@ -0,0 +1,460 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import android.os.AsyncTask;
+
+import com.facebook.common.logging.FLog;
+import com.facebook.react.common.ReactConstants;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Keeps the constants of the native modules implementing {@link CacheableConstants} in a file, so
+ * that later process starts can hand them to JS without calling {@link
+ * BaseJavaModule#getConstants} or converting its result with {@link Arguments#makeNativeMap}.
+ *
+ * <p>Constants are cached per module name and {@link CacheableConstants#getConstantsFingerprint},
+ * and the whole file is dropped when the app version changes. Only values that {@link
+ * Arguments#makeNativeMap} accepts as plain Java values are cached (no {@code Bundle} or native
+ * maps and arrays); modules returning anything else are never cached. Use {@link
+ * ModuleHolder#invalidateCachedConstants} or {@link #invalidateAll} when constants change in a way
+ * the fingerprint doesn't capture.
+ *
+ * <p>A single cache can be shared by all the instances of a process, see {@link
+ * CatalystInstanceImpl.Builder#setModuleConstantsCache}. The file is written in the background
+ * after constants are added or invalidated.
+ */
+public class ModuleConstantsCache {
+
+  private static final int FILE_VERSION = 1;
+  // Anything bigger is more likely corrupt than worth reading at startup.
+  private static final int MAX_FILE_BYTES = 4 * 1024 * 1024;
+  // Bounds the recursion when decoding, in case a corrupt entry nests maps without end.
+  private static final int MAX_NESTING = 64;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_INT = 2;
+  private static final byte TYPE_DOUBLE = 3;
+  private static final byte TYPE_STRING = 4;
+  private static final byte TYPE_MAP = 5;
+  private static final byte TYPE_ARRAY = 6;
+
+  private static final class Entry {
+    private final String mFingerprint;
+    private final byte[] mConstants;
+
+    private Entry(String fingerprint, byte[] constants) {
+      mFingerprint = fingerprint;
+      mConstants = constants;
+    }
+  }
+
+  /**
+   * Thrown while encoding constants that can't be cached.
+   */
+  private static class UncacheableValueException extends Exception {
+    private UncacheableValueException(@Nullable Object value) {
+      super("Can't cache " + (value != null ? value.getClass() : null));
+    }
+
+    private UncacheableValueException(String message) {
+      super(message);
+    }
+  }
+
+  private final File mFile;
+  private final String mAppVersion;
+
+  @GuardedBy("this")
+  private final Map<String, Entry> mEntries = new HashMap<>();
+  @GuardedBy("this")
+  private boolean mIsLoaded;
+  @GuardedBy("this")
+  private boolean mIsSavePending;
+  @GuardedBy("this")
+  private int mHitCount;
+  @GuardedBy("this")
+  private int mMissCount;
+
+  /**
+   * @param file where the constants are kept, usually in the app's cache directory. Its parent
+   * directory must exist.
+   * @param appVersion the version of the app, e.g. its version code: constants cached by another
+   * version are ignored.
+   */
+  public ModuleConstantsCache(File file, String appVersion) {
+    mFile = file;
+    mAppVersion = appVersion;
+  }
+
+  public synchronized int getHitCount() {
+    return mHitCount;
+  }
+
+  public synchronized int getMissCount() {
+    return mMissCount;
+  }
+
+  /**
+   * Reads the file, unless it has been read already. Called when an instance is created, so that
+   * the first {@link #get} doesn't read it on the thread asking for constants. A file that can't be
+   * read is deleted, and its constants computed again.
+   */
+  public synchronized void load() {
+    if (mIsLoaded) {
+      return;
+    }
+    mIsLoaded = true;
+    Map<String, Entry> entries;
+    try {
+      entries = readFile();
+    } catch (FileNotFoundException e) {
+      // Nothing cached yet.
+      return;
+    } catch (IOException | RuntimeException e) {
+      FLog.w(ReactConstants.TAG, "Dropping unreadable module constants file " + mFile, e);
+      mFile.delete();
+      return;
+    }
+    // Modules may have been cached before load() was called.
+    entries.putAll(mEntries);
+    mEntries.clear();
+    mEntries.putAll(entries);
+  }
+
+  private Map<String, Entry> readFile() throws IOException {
+    Map<String, Entry> entries = new HashMap<>();
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(readFileBytes()));
+    if (in.readInt() != FILE_VERSION || !mAppVersion.equals(in.readUTF())) {
+      return entries;
+    }
+    int count = readLength(in);
+    for (int i = 0; i < count; i++) {
+      String moduleName = readString(in);
+      String fingerprint = readString(in);
+      byte[] constants = new byte[readLength(in)];
+      in.readFully(constants);
+      entries.put(moduleName, new Entry(fingerprint, constants));
+    }
+    return entries;
+  }
+
+  private byte[] readFileBytes() throws IOException {
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+      long length = mFile.length();
+      if (length > MAX_FILE_BYTES) {
+        throw new IOException("File too large: " + length + " bytes");
+      }
+      byte[] bytes = new byte[(int) length];
+      in.readFully(bytes);
+      return bytes;
+    } finally {
+      AtomicFiles.closeQuietly(in);
+    }
+  }
+
+  /**
+   * @return the constants cached for {@code moduleName} with {@code fingerprint}, as a new map, or
+   * null if there are none. Constants that can't be decoded are dropped and count as a miss.
+   */
+  /* package */ @Nullable WritableNativeMap get(String moduleName, String fingerprint) {
+    Entry entry;
+    synchronized (this) {
+      load();
+      entry = mEntries.get(moduleName);
+      if (entry == null || !entry.mFingerprint.equals(fingerprint)) {
+        mMissCount++;
+        return null;
+      }
+      mHitCount++;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.mConstants));
+      byte type = in.readByte();
+      if (type != TYPE_MAP) {
+        throw new IOException("Unexpected type " + type);
+      }
+      return readMap(in, 0);
+    } catch (IOException | RuntimeException e) {
+      // The file may have been damaged in a way its layout doesn't reveal.
+      FLog.w(ReactConstants.TAG, "Dropping unreadable constants cached for " + moduleName, e);
+      synchronized (this) {
+        mHitCount--;
+        mMissCount++;
+        if (mEntries.get(moduleName) == entry) {
+          mEntries.remove(moduleName);
+          scheduleSave();
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Caches {@code constants}, as returned by {@link BaseJavaModule#getConstants}, for
+   * {@code moduleName} with {@code fingerprint}.
+   */
+  /* package */ void put(String moduleName, String fingerprint, @Nullable Map<String, ?> constants) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      // Arguments.makeNativeMap(null) is an empty map.
+      writeValue(
+          new DataOutputStream(bytes),
+          constants != null ? constants : Collections.emptyMap(),
+          0);
+    } catch (UncacheableValueException e) {
+      FLog.w(ReactConstants.TAG, "Not caching the constants of " + moduleName, e);
+      return;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    synchronized (this) {
+      mEntries.put(moduleName, new Entry(fingerprint, bytes.toByteArray()));
+      scheduleSave();
+    }
+  }
+
+  /**
+   * Drops the constants cached for {@code moduleName}, see
+   * {@link ModuleHolder#invalidateCachedConstants}.
+   */
+  public synchronized void invalidate(String moduleName) {
+    load();
+    if (mEntries.remove(moduleName) != null) {
+      scheduleSave();
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    load();
+    if (!mEntries.isEmpty()) {
+      mEntries.clear();
+      scheduleSave();
+    }
+  }
+
+  @GuardedBy("this")
+  private void scheduleSave() {
+    if (mIsSavePending) {
+      return;
+    }
+    mIsSavePending = true;
+    // Modules ask for their constants in bursts, at startup: one save covers most of them.
+    AsyncTask.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            save();
+          }
+        });
+  }
+
+  private void save() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    synchronized (this) {
+      // Don't overwrite the file with just the modules cached by this process.
+      load();
+      mIsSavePending = false;
+      try {
+        data.writeInt(FILE_VERSION);
+        data.writeUTF(mAppVersion);
+        data.writeInt(mEntries.size());
+        for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+          writeString(data, entry.getKey());
+          writeString(data, entry.getValue().mFingerprint);
+          data.writeInt(entry.getValue().mConstants.length);
+          data.write(entry.getValue().mConstants);
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    try {
+      AtomicFiles.writeAtomically(mFile, bytes.toByteArray());
+    } catch (IOException e) {
+      FLog.w(ReactConstants.TAG, "Could not write module constants to " + mFile, e);
+    }
+  }
+
+  /**
+   * Encodes {@code value} the way {@link Arguments#makeNativeMap} would convert it.
+   */
+  private static void writeValue(DataOutputStream out, @Nullable Object value, int depth)
+      throws IOException, UncacheableValueException {
+    if (depth > MAX_NESTING) {
+      throw new UncacheableValueException("More than " + MAX_NESTING + " nested values");
+    }
+    if (value == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Number) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof String) {
+      out.writeByte(TYPE_STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(TYPE_MAP);
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        if (!(entry.getKey() instanceof String)) {
+          throw new UncacheableValueException(entry.getKey());
+        }
+        writeString(out, (String) entry.getKey());
+        writeValue(out, entry.getValue(), depth + 1);
+      }
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(TYPE_ARRAY);
+      out.writeInt(list.size());
+      for (Object element : list) {
+        writeValue(out, element, depth + 1);
+      }
+    } else if (value.getClass().isArray()) {
+      int length = Array.getLength(value);
+      out.writeByte(TYPE_ARRAY);
+      out.writeInt(length);
+      for (int i = 0; i < length; i++) {
+        writeValue(out, Array.get(value, i), depth + 1);
+      }
+    } else {
+      throw new UncacheableValueException(value);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    // Not writeUTF(), which is limited to 64KB.
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * Reads the number of bytes or values that follow, each taking at least a byte, so that a corrupt
+   * length fails here rather than with a huge allocation. {@code in} must read from memory, for its
+   * {@link DataInputStream#available} to be exact.
+   */
+  private static int readLength(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Invalid length " + length);
+    }
+    return length;
+  }
+
+  private static void checkNesting(int depth) throws IOException {
+    if (depth > MAX_NESTING) {
+      throw new IOException("More than " + MAX_NESTING + " nested values");
+    }
+  }
+
+  private static WritableNativeMap readMap(DataInputStream in, int depth) throws IOException {
+    checkNesting(depth);
+    WritableNativeMap map = new WritableNativeMap();
+    int size = readLength(in);
+    for (int i = 0; i < size; i++) {
+      String key = readString(in);
+      byte type = in.readByte();
+      switch (type) {
+        case TYPE_NULL:
+          map.putNull(key);
+          break;
+        case TYPE_BOOLEAN:
+          map.putBoolean(key, in.readBoolean());
+          break;
+        case TYPE_INT:
+          map.putInt(key, in.readInt());
+          break;
+        case TYPE_DOUBLE:
+          map.putDouble(key, in.readDouble());
+          break;
+        case TYPE_STRING:
+          map.putString(key, readString(in));
+          break;
+        case TYPE_MAP:
+          map.putMap(key, readMap(in, depth + 1));
+          break;
+        case TYPE_ARRAY:
+          map.putArray(key, readArray(in, depth + 1));
+          break;
+        default:
+          throw new IOException("Unknown type " + type);
+      }
+    }
+    return map;
+  }
+
+  private static WritableNativeArray readArray(DataInputStream in, int depth) throws IOException {
+    checkNesting(depth);
+    WritableNativeArray array = new WritableNativeArray();
+    int size = readLength(in);
+    for (int i = 0; i < size; i++) {
+      byte type = in.readByte();
+      switch (type) {
+        case TYPE_NULL:
+          array.pushNull();
+          break;
+        case TYPE_BOOLEAN:
+          array.pushBoolean(in.readBoolean());
+          break;
+        case TYPE_INT:
+          array.pushInt(in.readInt());
+          break;
+        case TYPE_DOUBLE:
+          array.pushDouble(in.readDouble());
+          break;
+        case TYPE_STRING:
+          array.pushString(readString(in));
+          break;
+        case TYPE_MAP:
+          array.pushMap(readMap(in, depth + 1));
+          break;
+        case TYPE_ARRAY:
+          array.pushArray(readArray(in, depth + 1));
+          break;
+        default:
+          throw new IOException("Unknown type " + type);
+      }
+    }
+    return array;
+  }
+}
@@ -28,6 +28,16 @@ import static com.facebook.systrace.Systrace.TRACE_TAG_REACT_JAVA_BRIDGE;
  * and initialize it. Initialization currently always happens on the UI thread but this is due to
  * change for performance reasons.
  *
+ * <p>Modules that need eager init are still created lazily by the holder itself: {@code
+ * NativeModuleRegistryBuilder#build} creates them, possibly in parallel, before the registry is
+ * built. See {@link #isEagerInitPending}.
+ *
+ * <p>Creation and initialization go through {@code NOT_CREATED -> CREATING -> CREATED ->
+ * INITIALIZING -> INITIALIZED}, under the holder's lock. Once a module is created it is published
+ * through a volatile field, so {@link #getModule} (called for every call from JS) is a single
+ * volatile read from then on. Modules are published as soon as they are created, before being
+ * initialized, since they are only initialized once the JS instance is.
+ *
  * <p>Lifecycle events via a {@link LifecycleEventListener} will still always happen on the UI
  * thread.
  */
@@ -36,6 +46,13 @@ public class ModuleHolder {
 
     private static final AtomicInteger sInstanceKeyCounter = new AtomicInteger(1);
 
+    private static final int STATE_NOT_CREATED = 0;
+    private static final int STATE_CREATING = 1;
+    private static final int STATE_CREATED = 2;
+    private static final int STATE_INITIALIZING = 3;
+    // A module kept across a warm restart is only initialized once, by the first instance.
+    private static final int STATE_INITIALIZED = 4;
+
     private final int mInstanceKey = sInstanceKeyCounter.getAndIncrement();
 
     private final String mName;
@@ -43,26 +60,28 @@ public class ModuleHolder {
 
     private @Nullable
     Provider<? extends NativeModule> mProvider;
-    // Outside of the constructur, these should only be checked or set when synchronized on this
-    private @Nullable
-    @GuardedBy("this")
+    // Outside of the constructor, this should only be set when synchronized on this
+    private volatile @Nullable
     NativeModule mModule;
-
-    // These are used to communicate phases of creation and initialization across threads
-    private @GuardedBy("this")
-    boolean mInitializable;
     private @GuardedBy("this")
-    boolean mIsCreating;
+    int mState = STATE_NOT_CREATED;
+    // Set by markInitializable(): the module is initialized as soon as it is created from then on.
     private @GuardedBy("this")
-    boolean mIsInitializing;
+    boolean mInitializable;
+    // mModule, once nobody needs to hear about it being used: the only field getModule() reads in
+    // the steady state.
+    private volatile @Nullable
+    NativeModule mPublishedModule;
+    // Notified of the first getModule() call while it records module usage.
+    private @GuardedBy("this") @Nullable
+    NativeModulePrefetcher mUsageListener;
+    private volatile @Nullable
+    ModuleConstantsCache mConstantsCache;
 
     public ModuleHolder(ReactModuleInfo moduleInfo, Provider<? extends NativeModule> provider) {
         mName = moduleInfo.name();
         mProvider = provider;
         mReactModuleInfo = moduleInfo;
-        if (moduleInfo.needsEagerInit()) {
-            mModule = create();
-        }
     }
 
     public ModuleHolder(NativeModule nativeModule) {
@@ -79,6 +98,8 @@ public class ModuleHolder {
                 );
 
         mModule = nativeModule;
+        mPublishedModule = nativeModule;
+        mState = STATE_CREATED;
 
 //    PrinterHolder.getPrinter()
 //        .logMessage(ReactDebugOverlayTags.NATIVE_MODULE, "NativeModule init: %s", mName);
@@ -96,7 +117,7 @@ public class ModuleHolder {
         synchronized (this) {
             mInitializable = true;
             if (mModule != null) {
-                Assertions.assertCondition(!mIsInitializing);
+                Assertions.assertCondition(mState != STATE_INITIALIZING);
                 shouldInitializeNow = true;
                 module = mModule;
             }
@@ -106,11 +127,17 @@ public class ModuleHolder {
         }
     }
 
-    /* pacakge */
-    synchronized boolean hasInstance() {
+    /* package */ boolean hasInstance() {
         return mModule != null;
     }
 
+    /**
+     * @return whether the module needs eager init and nobody has started creating it yet.
+     */
+    public synchronized boolean isEagerInitPending() {
+        return mReactModuleInfo.needsEagerInit() && mState == STATE_NOT_CREATED;
+    }
+
     public synchronized void destroy() {
         if (mModule != null) {
             mModule.onCatalystInstanceDestroy();
@@ -142,48 +169,106 @@ public class ModuleHolder {
         return mReactModuleInfo.className();
     }
 
-    @DoNotStrip
-    public NativeModule getModule() {
-        NativeModule module;
-        boolean shouldCreate = false;
+    /* package */ void setConstantsCache(@Nullable ModuleConstantsCache constantsCache) {
+        mConstantsCache = constantsCache;
+    }
+
+    /* package */ @Nullable ModuleConstantsCache getConstantsCache() {
+        return mConstantsCache;
+    }
+
+    /**
+     * Drops the constants cached for this module, if its instance has a
+     * {@link ModuleConstantsCache}: they are computed again the next time JS asks for them. For
+     * changes that {@link CacheableConstants#getConstantsFingerprint} doesn't capture.
+     */
+    public void invalidateCachedConstants() {
+        ModuleConstantsCache constantsCache = mConstantsCache;
+        if (constantsCache != null) {
+            constantsCache.invalidate(mName);
+        }
+    }
+
+    /**
+     * Notifies {@code usageListener} of the next {@link #getModule} call, unless the module has been
+     * created already. Pass null to stop notifying.
+     *
+     * @return whether {@code usageListener} was set.
+     */
+    /* package */ synchronized boolean setUsageListener(
+            @Nullable NativeModulePrefetcher usageListener) {
+        if (usageListener != null && mModule != null) {
+            return false;
+        }
+        mUsageListener = usageListener;
+        if (usageListener == null) {
+            mPublishedModule = mModule;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the module ahead of its first use, unless it exists or is being created already.
+     *
+     * @return whether this call created the module.
+     */
+    /* package */ boolean prefetch() {
         synchronized (this) {
-            if (mModule != null) {
-                return mModule;
-                // if mModule has not been set, and no one is creating it. Then this thread should call
-                // create
-            } else if (!mIsCreating) {
-                shouldCreate = true;
-                mIsCreating = true;
-            } else {
-                // Wait for mModule to be created by another thread
+            if (mState != STATE_NOT_CREATED) {
+                return false;
             }
+            mState = STATE_CREATING;
         }
-        if (shouldCreate) {
-            module = create();
-            // Once module is built (and initialized if markInitializable has been called), modify mModule
-            // And signal any waiting threads that it is acceptable to read the field now
-            synchronized (this) {
-                mIsCreating = false;
-                this.notifyAll();
-            }
+        create();
+        return true;
+    }
+
+    @DoNotStrip
+    public NativeModule getModule() {
+        NativeModule module = mPublishedModule;
+        if (module != null) {
             return module;
-        } else {
+        }
+        return getOrCreateModule();
+    }
+
+    private NativeModule getOrCreateModule() {
+        NativeModulePrefetcher usageListener;
+        synchronized (this) {
+            usageListener = mUsageListener;
+            mUsageListener = null;
+        }
+        if (usageListener != null) {
+            usageListener.onModuleUsed(mName);
+        }
+        while (true) {
             synchronized (this) {
-                // Block waiting for another thread to build mModule instance
-                // Since mIsCreating is true until after creation and instantiation (if needed), we wait
-                // until the module is ready to use.
-                while (mModule == null && mIsCreating) {
+                if (mModule != null) {
+                    if (mUsageListener == null) {
+                        mPublishedModule = mModule;
+                    }
+                    return mModule;
+                }
+                if (mState == STATE_CREATING) {
+                    // Wait for mModule to be created by another thread, or for it to fail, in
+                    // which case this thread tries again.
                     try {
                         this.wait();
                     } catch (InterruptedException e) {
-                        continue;
+                        // Creation can't be cancelled, keep waiting.
                     }
+                    continue;
                 }
-                return Assertions.assertNotNull(mModule);
+                mState = STATE_CREATING;
             }
+            return create();
         }
     }
 
+    /**
+     * Creates the module, and initializes it if {@link #markInitializable} has been called. The
+     * caller must have moved the holder to CREATING.
+     */
     private NativeModule create() {
         SoftAssertions.assertCondition(mModule == null, "Creating an already created module.");
         ReactMarker.logMarker(CREATE_MODULE_START, mName, mInstanceKey);
@@ -194,21 +279,33 @@ public class ModuleHolder {
 //    PrinterHolder.getPrinter()
 //        .logMessage(ReactDebugOverlayTags.NATIVE_MODULE, "NativeModule init: %s", mName);
 //
-        NativeModule module;
+        NativeModule module = null;
         try {
             module = assertNotNull(mProvider).get();
             mProvider = null;
-            boolean shouldInitializeNow = false;
+            boolean shouldInitializeNow;
             synchronized (this) {
                 mModule = module;
-                if (mInitializable && !mIsInitializing) {
-                    shouldInitializeNow = true;
+                mState = STATE_CREATED;
+                if (mUsageListener == null) {
+                    mPublishedModule = module;
                 }
+                shouldInitializeNow = mInitializable;
+                // Once module is built, signal any waiting threads that it is acceptable to read
+                // the field now
+                this.notifyAll();
             }
             if (shouldInitializeNow) {
                 doInitialize(module);
             }
         } finally {
+            if (module == null) {
+                // The provider threw: let the next caller try again.
+                synchronized (this) {
+                    mState = STATE_NOT_CREATED;
+                    this.notifyAll();
+                }
+            }
             ReactMarker.logMarker(CREATE_MODULE_END, mName, mInstanceKey);
             SystraceMessage.endSection(TRACE_TAG_REACT_JAVA_BRIDGE).flush();
         }
@@ -224,18 +321,20 @@ public class ModuleHolder {
             boolean shouldInitialize = false;
             // Check to see if another thread is initializing the object, if not claim the responsibility
             synchronized (this) {
-                if (mInitializable && !mIsInitializing) {
+                if (mInitializable && mState == STATE_CREATED) {
                     shouldInitialize = true;
-                    mIsInitializing = true;
+                    mState = STATE_INITIALIZING;
                 }
             }
             if (shouldInitialize) {
-                module.initialize();
-                // Once finished, set flags accordingly, but we don't expect anyone to wait for this to
-                // finish
-                // So no need to notify other threads
-                synchronized (this) {
-                    mIsInitializing = false;
+                try {
+                    module.initialize();
+                } finally {
+                    // Once finished, set the state accordingly, but we don't expect anyone to wait
+                    // for this to finish, so no need to notify other threads
+                    synchronized (this) {
+                        mState = STATE_INITIALIZED;
+                    }
                 }
             }
         } finally {
@@ -0,0 +1,24 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+/**
+ * Receives aggregated statistics about the batches of native module calls made by JS. Call
+ * {@link CatalystInstance#addNativeCallBatchListener} to start monitoring.
+ *
+ * <p>Called on the native modules thread, so implementations should be cheap and must not block.
+ */
+public interface NativeCallBatchListener {
+
+  /**
+   * Called once the current window has elapsed, with the statistics of all the batches completed
+   * during the window. That is at the end of the first batch completing after it, or shortly
+   * after the window itself when no batch is running.
+   */
+  void onNativeCallBatchWindow(NativeCallBatchWindow window);
+}
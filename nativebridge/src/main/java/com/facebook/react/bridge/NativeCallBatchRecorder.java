@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.queue.MessageQueueThread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects {@link NativeCallBatchWindow}s for the {@link NativeCallBatchListener}s of an instance.
+ *
+ * <p>C++ posts each Java module call of a batch to the native modules queue, then posts
+ * onBatchComplete behind them; so {@link #onNativeCall} and {@link #onBatchComplete} are both called
+ * on that queue, in batch order, and the recorder doesn't need any locking. Nothing is recorded
+ * while there are no listeners.
+ *
+ * <p>A window is closed by the first batch completing after it has elapsed or, if the bridge has
+ * gone quiet by then, by a timer posted back to the native modules queue. Either way, the idle time
+ * that follows the window is never counted in it.
+ */
+/* package */ class NativeCallBatchRecorder {
+
+  private final CopyOnWriteArrayList<NativeCallBatchListener> mListeners =
+      new CopyOnWriteArrayList<>();
+  private final MessageQueueThread mNativeModulesQueueThread;
+  private final long mWindowMs;
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private final Runnable mCloseExpiredWindowRunnable = new Runnable() {
+    @Override
+    public void run() {
+      closeExpiredWindow(SystemClock.uptimeMillis());
+    }
+  };
+  private final Runnable mWindowTimeoutRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mNativeModulesQueueThread.runOnQueue(mCloseExpiredWindowRunnable);
+    }
+  };
+  private volatile boolean mIsEnabled = false;
+
+  // Only accessed from the native modules queue thread.
+  private final Map<String, int[]> mModuleCallCounts = new HashMap<>();
+  private long mWindowStartMs = -1;
+  private long mLastBatchEndMs = -1;
+  private long mBatchStartMs = -1;
+  private int mBatchSize;
+  private int mBatchCount;
+  private int mCallCount;
+  private int mMaxBatchSize;
+  private long mTotalBatchTimeMs;
+  private long mMaxBatchTimeMs;
+  private long mTotalGapTimeMs;
+  private long mMaxGapTimeMs;
+
+  /* package */ NativeCallBatchRecorder(
+      MessageQueueThread nativeModulesQueueThread,
+      long windowMs) {
+    mNativeModulesQueueThread = nativeModulesQueueThread;
+    mWindowMs = windowMs;
+  }
+
+  /* package */ void addListener(NativeCallBatchListener listener) {
+    mListeners.add(listener);
+    mIsEnabled = true;
+  }
+
+  /* package */ void removeListener(NativeCallBatchListener listener) {
+    mListeners.remove(listener);
+    mIsEnabled = !mListeners.isEmpty();
+  }
+
+  /**
+   * Stops recording for good, dropping the current window. Called from the native modules queue
+   * when the instance is destroyed.
+   */
+  /* package */ void stop() {
+    mListeners.clear();
+    mIsEnabled = false;
+    mHandler.removeCallbacks(mWindowTimeoutRunnable);
+    reset();
+  }
+
+  /* package */ void onNativeCall(String moduleName) {
+    if (!mIsEnabled) {
+      return;
+    }
+    if (mBatchSize == 0) {
+      mBatchStartMs = SystemClock.uptimeMillis();
+      // The timer may not have run yet: the window must not stretch over the gap that just ended.
+      closeExpiredWindow(mBatchStartMs);
+      if (mWindowStartMs == -1) {
+        openWindow(mBatchStartMs);
+      }
+      if (mLastBatchEndMs != -1) {
+        long gapMs = mBatchStartMs - mLastBatchEndMs;
+        mTotalGapTimeMs += gapMs;
+        mMaxGapTimeMs = Math.max(mMaxGapTimeMs, gapMs);
+      }
+    }
+    mBatchSize++;
+    int[] count = mModuleCallCounts.get(moduleName);
+    if (count == null) {
+      count = new int[1];
+      mModuleCallCounts.put(moduleName, count);
+    }
+    count[0]++;
+  }
+
+  /* package */ void onBatchComplete() {
+    if (!mIsEnabled) {
+      if (mWindowStartMs != -1) {
+        // The last listener was removed mid-window.
+        reset();
+      }
+      return;
+    }
+    long nowMs = SystemClock.uptimeMillis();
+    if (mBatchSize == 0) {
+      closeExpiredWindow(nowMs);
+    }
+    if (mWindowStartMs == -1) {
+      openWindow(nowMs);
+    }
+    long batchTimeMs = mBatchSize > 0 ? nowMs - mBatchStartMs : 0;
+    mBatchCount++;
+    mCallCount += mBatchSize;
+    mMaxBatchSize = Math.max(mMaxBatchSize, mBatchSize);
+    mTotalBatchTimeMs += batchTimeMs;
+    mMaxBatchTimeMs = Math.max(mMaxBatchTimeMs, batchTimeMs);
+    mBatchSize = 0;
+    mLastBatchEndMs = nowMs;
+
+    if (nowMs - mWindowStartMs >= mWindowMs) {
+      // Only overruns the window by the length of the batch that was running when it elapsed.
+      mHandler.removeCallbacks(mWindowTimeoutRunnable);
+      closeWindow(nowMs);
+      mLastBatchEndMs = nowMs;
+    }
+  }
+
+  private void openWindow(long nowMs) {
+    mWindowStartMs = nowMs;
+    mHandler.postDelayed(mWindowTimeoutRunnable, mWindowMs);
+  }
+
+  /**
+   * Closes the current window if it has elapsed while no batch was running, ending it when it
+   * elapsed. A batch still running when the window elapses is left for onBatchComplete to close.
+   */
+  private void closeExpiredWindow(long nowMs) {
+    if (mWindowStartMs == -1 || mBatchSize > 0 || nowMs - mWindowStartMs < mWindowMs) {
+      return;
+    }
+    if (!mIsEnabled) {
+      // The last listener was removed mid-window.
+      reset();
+      return;
+    }
+    closeWindow(Math.max(mLastBatchEndMs, mWindowStartMs + mWindowMs));
+  }
+
+  private void closeWindow(long endMs) {
+    NativeCallBatchWindow window = snapshot(endMs);
+    reset();
+    for (NativeCallBatchListener listener : mListeners) {
+      listener.onNativeCallBatchWindow(window);
+    }
+  }
+
+  private NativeCallBatchWindow snapshot(long nowMs) {
+    Map<String, Integer> moduleCallCounts = new HashMap<>(mModuleCallCounts.size());
+    for (Map.Entry<String, int[]> entry : mModuleCallCounts.entrySet()) {
+      moduleCallCounts.put(entry.getKey(), entry.getValue()[0]);
+    }
+    return new NativeCallBatchWindow(
+        mWindowStartMs,
+        nowMs - mWindowStartMs,
+        mBatchCount,
+        mCallCount,
+        mMaxBatchSize,
+        mTotalBatchTimeMs,
+        mMaxBatchTimeMs,
+        mTotalGapTimeMs,
+        mMaxGapTimeMs,
+        moduleCallCounts);
+  }
+
+  private void reset() {
+    mModuleCallCounts.clear();
+    mWindowStartMs = -1;
+    mLastBatchEndMs = -1;
+    mBatchStartMs = -1;
+    mBatchSize = 0;
+    mBatchCount = 0;
+    mCallCount = 0;
+    mMaxBatchSize = 0;
+    mTotalBatchTimeMs = 0;
+    mMaxBatchTimeMs = 0;
+    mTotalGapTimeMs = 0;
+    mMaxGapTimeMs = 0;
+  }
+}
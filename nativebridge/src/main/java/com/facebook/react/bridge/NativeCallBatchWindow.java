@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Statistics of the native call batches completed during one window, see
+ * {@link NativeCallBatchListener}. Only calls to Java modules are counted; calls to C++ modules
+ * don't go through Java.
+ */
+public final class NativeCallBatchWindow {
+
+  private final long mStartTimeMs;
+  private final long mDurationMs;
+  private final int mBatchCount;
+  private final int mCallCount;
+  private final int mMaxBatchSize;
+  private final long mTotalBatchTimeMs;
+  private final long mMaxBatchTimeMs;
+  private final long mTotalGapTimeMs;
+  private final long mMaxGapTimeMs;
+  private final Map<String, Integer> mModuleCallCounts;
+
+  /* package */ NativeCallBatchWindow(
+      long startTimeMs,
+      long durationMs,
+      int batchCount,
+      int callCount,
+      int maxBatchSize,
+      long totalBatchTimeMs,
+      long maxBatchTimeMs,
+      long totalGapTimeMs,
+      long maxGapTimeMs,
+      Map<String, Integer> moduleCallCounts) {
+    mStartTimeMs = startTimeMs;
+    mDurationMs = durationMs;
+    mBatchCount = batchCount;
+    mCallCount = callCount;
+    mMaxBatchSize = maxBatchSize;
+    mTotalBatchTimeMs = totalBatchTimeMs;
+    mMaxBatchTimeMs = maxBatchTimeMs;
+    mTotalGapTimeMs = totalGapTimeMs;
+    mMaxGapTimeMs = maxGapTimeMs;
+    mModuleCallCounts = Collections.unmodifiableMap(moduleCallCounts);
+  }
+
+  /**
+   * @return start of the window, in {@link android.os.SystemClock#uptimeMillis} time base.
+   */
+  public long getStartTimeMs() {
+    return mStartTimeMs;
+  }
+
+  public long getDurationMs() {
+    return mDurationMs;
+  }
+
+  public int getBatchCount() {
+    return mBatchCount;
+  }
+
+  public int getCallCount() {
+    return mCallCount;
+  }
+
+  public int getMaxBatchSize() {
+    return mMaxBatchSize;
+  }
+
+  /**
+   * @return time spent between the first call of each batch and its completion, summed.
+   */
+  public long getTotalBatchTimeMs() {
+    return mTotalBatchTimeMs;
+  }
+
+  public long getMaxBatchTimeMs() {
+    return mMaxBatchTimeMs;
+  }
+
+  /**
+   * @return time between the completion of a batch and the first call of the next one, summed.
+   */
+  public long getTotalGapTimeMs() {
+    return mTotalGapTimeMs;
+  }
+
+  public long getMaxGapTimeMs() {
+    return mMaxGapTimeMs;
+  }
+
+  /**
+   * @return fraction of the window spent running batches, between 0 and 1.
+   */
+  public float getUtilization() {
+    return mDurationMs > 0 ? Math.min(1f, (float) mTotalBatchTimeMs / mDurationMs) : 0f;
+  }
+
+  /**
+   * @return number of calls made to each module during the window, by module name.
+   */
+  public Map<String, Integer> getModuleCallCounts() {
+    return mModuleCallCounts;
+  }
+
+  @Override
+  public String toString() {
+    return "NativeCallBatchWindow{"
+        + "durationMs=" + mDurationMs
+        + ", batches=" + mBatchCount
+        + ", calls=" + mCallCount
+        + ", maxBatchSize=" + mMaxBatchSize
+        + ", utilization=" + getUtilization()
+        + ", modules=" + mModuleCallCounts
+        + "}";
+  }
+}
@@ -0,0 +1,266 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.facebook.common.logging.FLog;
+import com.facebook.react.common.ReactConstants;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Creates, on a background thread, the native modules that the previous session used soon after
+ * starting, so that they are ready by the time they are used instead of being created on the
+ * thread asking for them (usually the native modules thread, in the middle of a batch of calls).
+ *
+ * <p>Started by {@link CatalystInstanceImpl#initialize} once the native modules have been notified
+ * that the JS instance is initialized. It then records which modules are used for the first time
+ * within {@code recordingWindowMs}, and saves them to its file when the window ends or the instance
+ * is destroyed. The next session prefetches them in the order they were first used.
+ *
+ * <p>A prefetcher is good for a single instance, see
+ * {@link CatalystInstanceImpl.Builder#setNativeModulePrefetcher}.
+ */
+public class NativeModulePrefetcher {
+
+  public static final long DEFAULT_RECORDING_WINDOW_MS = 10000;
+
+  private static final int FILE_VERSION = 1;
+  // Keeps the file small if an app touches an unusual number of modules at startup.
+  private static final int MAX_RECORDED_MODULES = 256;
+
+  private final File mUsageFile;
+  private final long mRecordingWindowMs;
+
+  @GuardedBy("this")
+  private boolean mIsStarted;
+  @GuardedBy("this")
+  private boolean mIsStopped;
+  @GuardedBy("this")
+  private final List<ModuleHolder> mWatchedModules = new ArrayList<>();
+  @GuardedBy("this")
+  private final Set<String> mUsedModules = new LinkedHashSet<>();
+  @GuardedBy("this")
+  private final Set<String> mPrefetchedModules = new HashSet<>();
+  @GuardedBy("this")
+  private int mHitCount;
+  @GuardedBy("this")
+  private int mWastedCount;
+
+  /**
+   * @param usageFile where the modules used by a session are saved, usually in the app's files
+   * directory. Its parent directory must exist.
+   */
+  public NativeModulePrefetcher(File usageFile, long recordingWindowMs) {
+    mUsageFile = usageFile;
+    mRecordingWindowMs = recordingWindowMs;
+  }
+
+  /**
+   * @return the number of modules this prefetcher created.
+   */
+  public synchronized int getPrefetchedCount() {
+    return mPrefetchedModules.size();
+  }
+
+  /**
+   * @return the number of prefetched modules that were used within the recording window.
+   */
+  public synchronized int getHitCount() {
+    return mHitCount;
+  }
+
+  /**
+   * @return the number of prefetched modules that weren't used within the recording window. Only
+   * known once recording has stopped, 0 until then.
+   */
+  public synchronized int getWastedCount() {
+    return mWastedCount;
+  }
+
+  /**
+   * Starts recording the modules used from now on, and prefetching the ones used by the previous
+   * session. Called on the native modules thread.
+   */
+  /* package */ void start(Collection<ModuleHolder> moduleHolders) {
+    final Map<String, ModuleHolder> modulesByName = new HashMap<>();
+    synchronized (this) {
+      if (mIsStarted || mIsStopped) {
+        return;
+      }
+      mIsStarted = true;
+      for (ModuleHolder moduleHolder : moduleHolders) {
+        // Modules that already exist can't be prefetched, and are created at startup anyway.
+        if (moduleHolder.setUsageListener(this)) {
+          mWatchedModules.add(moduleHolder);
+          modulesByName.put(moduleHolder.getName(), moduleHolder);
+        }
+      }
+      if (modulesByName.isEmpty()) {
+        // E.g. after a warm restart. Nothing to learn, and the previous file is still valid.
+        mIsStopped = true;
+        return;
+      }
+    }
+
+    final long recordingEndMs = SystemClock.uptimeMillis() + mRecordingWindowMs;
+    Thread thread = new Thread(
+        null,
+        new Runnable() {
+          @Override
+          public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            prefetch(readUsageFile(), modulesByName);
+            awaitStop(recordingEndMs);
+            writeUsageFile();
+          }
+        },
+        "react_module_prefetch");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops recording and prefetching, the file is written on the prefetch thread. Called when the
+   * instance is destroyed.
+   */
+  /* package */ synchronized void stop() {
+    if (mIsStopped) {
+      return;
+    }
+    mIsStopped = true;
+    for (ModuleHolder moduleHolder : mWatchedModules) {
+      moduleHolder.setUsageListener(null);
+    }
+    mWatchedModules.clear();
+    for (String name : mPrefetchedModules) {
+      if (!mUsedModules.contains(name)) {
+        mWastedCount++;
+      }
+    }
+    notifyAll();
+  }
+
+  /**
+   * Called by {@link ModuleHolder#getModule} the first time it is called after {@link #start}.
+   */
+  /* package */ synchronized void onModuleUsed(String name) {
+    if (mIsStopped) {
+      return;
+    }
+    if (mUsedModules.add(name) && mPrefetchedModules.contains(name)) {
+      mHitCount++;
+    }
+  }
+
+  private synchronized void onModulePrefetched(String name) {
+    if (mPrefetchedModules.add(name) && mUsedModules.contains(name)) {
+      // Used while it was being created, which still spared the caller part of the wait.
+      mHitCount++;
+    }
+  }
+
+  private synchronized boolean isStopped() {
+    return mIsStopped;
+  }
+
+  private void prefetch(List<String> names, Map<String, ModuleHolder> modulesByName) {
+    for (String name : names) {
+      if (isStopped()) {
+        return;
+      }
+      ModuleHolder moduleHolder = modulesByName.get(name);
+      if (moduleHolder == null) {
+        continue;
+      }
+      try {
+        if (moduleHolder.prefetch()) {
+          onModulePrefetched(name);
+        }
+      } catch (Throwable t) {
+        // The module will be created again, and fail again, when it is actually used.
+        FLog.w(ReactConstants.TAG, "Could not prefetch native module " + name, t);
+      }
+    }
+  }
+
+  private synchronized void awaitStop(long recordingEndMs) {
+    long remainingMs;
+    while (!mIsStopped && (remainingMs = recordingEndMs - SystemClock.uptimeMillis()) > 0) {
+      try {
+        wait(remainingMs);
+      } catch (InterruptedException e) {
+        // Nobody else knows about this thread, so just keep waiting.
+      }
+    }
+    stop();
+  }
+
+  private List<String> readUsageFile() {
+    List<String> names = new ArrayList<>();
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(mUsageFile)));
+      if (in.readInt() != FILE_VERSION) {
+        return names;
+      }
+      int count = Math.min(in.readInt(), MAX_RECORDED_MODULES);
+      for (int i = 0; i < count; i++) {
+        names.add(in.readUTF());
+      }
+    } catch (FileNotFoundException e) {
+      // First session.
+    } catch (IOException e) {
+      FLog.w(ReactConstants.TAG, "Could not read native module usage from " + mUsageFile, e);
+      // Don't prefetch modules from a truncated file.
+      names.clear();
+    } finally {
+      AtomicFiles.closeQuietly(in);
+    }
+    return names;
+  }
+
+  private void writeUsageFile() {
+    List<String> names;
+    synchronized (this) {
+      names = new ArrayList<>(mUsedModules);
+    }
+    if (names.size() > MAX_RECORDED_MODULES) {
+      names = names.subList(0, MAX_RECORDED_MODULES);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    try {
+      data.writeInt(FILE_VERSION);
+      data.writeInt(names.size());
+      for (String name : names) {
+        data.writeUTF(name);
+      }
+      AtomicFiles.writeAtomically(mUsageFile, bytes.toByteArray());
+    } catch (IOException e) {
+      FLog.w(ReactConstants.TAG, "Could not write native module usage to " + mUsageFile, e);
+    }
+  }
+}
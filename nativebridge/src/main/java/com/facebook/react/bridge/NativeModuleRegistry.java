@@ -6,81 +6,236 @@
  */
 package com.facebook.react.bridge;
 
-import android.util.Log;
-
 import com.facebook.infer.annotation.Assertions;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.systrace.Systrace;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
 
-/** A set of Java APIs to expose to a particular JavaScript instance. */
+/**
+ * A set of Java APIs to expose to a particular JavaScript instance.
+ *
+ * <p>The modules are frozen into a {@link ModuleTable} when the registry is built: each module gets
+ * a dense integer id, in the order of the map it was built from, and names are looked up in an
+ * open-addressed hash table. {@link #registerModules} replaces the table with a copy that has the
+ * new modules appended, so ids never change and readers never see a table being modified.
+ */
 public class NativeModuleRegistry {
 
+    private static final String UI_MANAGER_MODULE_NAME = "UIManager";
+
+    /**
+     * Immutable snapshot of the modules of a registry.
+     */
+    private static final class ModuleTable {
+        // Indexed by module id.
+        private final String[] mNames;
+        private final ModuleHolder[] mModules;
+        // Open-addressed with linear probing: module id + 1, or 0 for an empty slot. Always at
+        // least twice as big as the number of modules, so probes stay short and end.
+        private final int[] mSlots;
+        private final int mMask;
+        private final ModuleHolder[] mJavaModules;
+        private final List<ModuleHolder> mCxxModules;
+        private final int mUIManagerId;
+
+        /**
+         * @param base a table holding the first {@code base.mModules.length} modules, whose hash
+         * table and partitions are copied rather than recomputed when possible. Null to build
+         * everything from scratch.
+         */
+        private ModuleTable(
+                @Nullable ModuleTable base,
+                String[] names,
+                ModuleHolder[] modules) {
+            mNames = names;
+            mModules = modules;
+
+            int firstNewId;
+            if (base != null && base.mSlots.length >= 2 * modules.length) {
+                firstNewId = base.mModules.length;
+                mSlots = base.mSlots.clone();
+            } else {
+                firstNewId = 0;
+                mSlots = new int[Integer.highestOneBit(Math.max(1, modules.length)) << 2];
+            }
+            mMask = mSlots.length - 1;
+            int newJavaModuleCount = 0;
+            for (int id = firstNewId; id < names.length; id++) {
+                int slot = hash(names[id]) & mMask;
+                while (mSlots[slot] != 0) {
+                    slot = (slot + 1) & mMask;
+                }
+                mSlots[slot] = id + 1;
+                if (!modules[id].isCxxModule()) {
+                    newJavaModuleCount++;
+                }
+            }
+
+            ModuleHolder[] baseJavaModules = new ModuleHolder[0];
+            List<ModuleHolder> baseCxxModules = Collections.emptyList();
+            if (firstNewId > 0) {
+                baseJavaModules = Assertions.assertNotNull(base).mJavaModules;
+                baseCxxModules = base.mCxxModules;
+            }
+            mJavaModules =
+                    Arrays.copyOf(baseJavaModules, baseJavaModules.length + newJavaModuleCount);
+            ModuleHolder[] cxxModules = baseCxxModules.toArray(
+                    new ModuleHolder[modules.length - mJavaModules.length]);
+            int javaIndex = baseJavaModules.length;
+            int cxxIndex = baseCxxModules.size();
+            for (int id = firstNewId; id < modules.length; id++) {
+                if (modules[id].isCxxModule()) {
+                    cxxModules[cxxIndex++] = modules[id];
+                } else {
+                    mJavaModules[javaIndex++] = modules[id];
+                }
+            }
+            mCxxModules = Collections.unmodifiableList(Arrays.asList(cxxModules));
+            mUIManagerId = find(UI_MANAGER_MODULE_NAME);
+        }
+
+        private static int hash(String name) {
+            int h = name.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * @return the id of the module called {@code name}, or -1.
+         */
+        private int find(String name) {
+            int slot = hash(name) & mMask;
+            while (true) {
+                int entry = mSlots[slot];
+                if (entry == 0) {
+                    return -1;
+                }
+                if (mNames[entry - 1].equals(name)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mMask;
+            }
+        }
+
+        /**
+         * @return the modules of {@code modules} that this table doesn't have, or null if there
+         * are none.
+         */
+        private @Nullable ModuleTable getMissingModules(ModuleTable modules) {
+            String[] names = new String[modules.mNames.length];
+            ModuleHolder[] holders = new ModuleHolder[modules.mNames.length];
+            int count = 0;
+            for (int id = 0; id < modules.mNames.length; id++) {
+                if (find(modules.mNames[id]) == -1) {
+                    names[count] = modules.mNames[id];
+                    holders[count] = modules.mModules[id];
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+            return new ModuleTable(
+                    null,
+                    Arrays.copyOf(names, count),
+                    Arrays.copyOf(holders, count));
+        }
+
+        /**
+         * @return a copy of this table with {@code modules} appended. Only the new modules are
+         * hashed and partitioned, unless the hash table has to grow.
+         */
+        private ModuleTable append(ModuleTable modules) {
+            int count = mNames.length;
+            String[] names = Arrays.copyOf(mNames, count + modules.mNames.length);
+            ModuleHolder[] holders = Arrays.copyOf(mModules, count + modules.mModules.length);
+            System.arraycopy(modules.mNames, 0, names, count, modules.mNames.length);
+            System.arraycopy(modules.mModules, 0, holders, count, modules.mModules.length);
+            return new ModuleTable(this, names, holders);
+        }
+    }
+
     private final ReactApplicationContext mReactApplicationContext;
-    private final Map<String, ModuleHolder> mModules;
+    private volatile ModuleTable mTable;
+    // Ids of the modules looked up by class, so the annotation is only read once per class.
+    private final ConcurrentHashMap<Class<?>, Integer> mModuleIdsByClass =
+            new ConcurrentHashMap<>();
 
     public NativeModuleRegistry(
             ReactApplicationContext reactApplicationContext, Map<String, ModuleHolder> modules) {
         mReactApplicationContext = reactApplicationContext;
 
-        mModules = modules;
-        // mModules.remove("NativeLog");
+        String[] names = new String[modules.size()];
+        ModuleHolder[] holders = new ModuleHolder[modules.size()];
+        int id = 0;
+        for (Map.Entry<String, ModuleHolder> entry : modules.entrySet()) {
+            names[id] = entry.getKey();
+            holders[id] = entry.getValue();
+            id++;
+        }
+        mTable = new ModuleTable(null, names, holders);
     }
 
-    /** Private getters for combining NativeModuleRegistrys */
-    private Map<String, ModuleHolder> getModuleMap() {
-        Log.d("src_test", "getModuleMap==============>");
-        return mModules;
+    private NativeModuleRegistry(
+            ReactApplicationContext reactApplicationContext, ModuleTable table) {
+        mReactApplicationContext = reactApplicationContext;
+        mTable = table;
     }
 
     private ReactApplicationContext getReactApplicationContext() {
         return mReactApplicationContext;
     }
 
+    /* package */ Collection<ModuleHolder> getModuleHolders() {
+        return Collections.unmodifiableList(Arrays.asList(mTable.mModules));
+    }
+
     /* package */ Collection<JavaModuleWrapper> getJavaModules(JSInstance jsInstance) {
-        ArrayList<JavaModuleWrapper> javaModules = new ArrayList<>();
-        for (Map.Entry<String, ModuleHolder> entry : mModules.entrySet()) {
-            if (!entry.getValue().isCxxModule()) {
-                Log.d("src_test_", "java:" + entry.getKey());
-                javaModules.add(new JavaModuleWrapper(jsInstance, entry.getValue()));
-            }
+        return getJavaModules(jsInstance, null);
+    }
+
+    /* package */ Collection<JavaModuleWrapper> getJavaModules(
+            JSInstance jsInstance,
+            @Nullable NativeCallBatchRecorder batchRecorder) {
+        ModuleHolder[] javaModules = mTable.mJavaModules;
+        ArrayList<JavaModuleWrapper> wrappers = new ArrayList<>(javaModules.length);
+        for (ModuleHolder module : javaModules) {
+            wrappers.add(new JavaModuleWrapper(jsInstance, module, batchRecorder));
         }
-        return javaModules;
+        return wrappers;
     }
 
     /* package */ Collection<ModuleHolder> getCxxModules() {
-        ArrayList<ModuleHolder> cxxModules = new ArrayList<>();
-        for (Map.Entry<String, ModuleHolder> entry : mModules.entrySet()) {
-            if (entry.getValue().isCxxModule()) {
-                Log.d("src_test_", "cxx:" + entry.getKey());
-                cxxModules.add(entry.getValue());
-            }
-        }
-        return cxxModules;
+        return mTable.mCxxModules;
     }
 
     /*
-     * Adds any new modules to the current module registry
+     * Adds any new modules to the current module registry, and returns a registry of just those
+     * modules, or null if all of them were already registered. Readers keep using the previous
+     * table until the new one is published.
      */
-    /* package */ void registerModules(NativeModuleRegistry newRegister) {
+    /* package */ synchronized @Nullable NativeModuleRegistry registerModules(
+            NativeModuleRegistry newRegister) {
 
         Assertions.assertCondition(
                 mReactApplicationContext.equals(newRegister.getReactApplicationContext()),
                 "Extending native modules with non-matching application contexts.");
 
-        Map<String, ModuleHolder> newModules = newRegister.getModuleMap();
-
-        for (Map.Entry<String, ModuleHolder> entry : newModules.entrySet()) {
-            String key = entry.getKey();
-            if (!mModules.containsKey(key)) {
-                ModuleHolder value = entry.getValue();
-                mModules.put(key, value);
-            }
+        ModuleTable table = mTable;
+        ModuleTable addedModules = table.getMissingModules(newRegister.mTable);
+        if (addedModules == null) {
+            return null;
         }
+        mTable = table.append(addedModules);
+        return new NativeModuleRegistry(mReactApplicationContext, addedModules);
     }
 
     /* package */ void notifyJSInstanceDestroy() {
@@ -88,7 +243,7 @@ public class NativeModuleRegistry {
         Systrace.beginSection(
                 Systrace.TRACE_TAG_REACT_JAVA_BRIDGE, "NativeModuleRegistry_notifyJSInstanceDestroy");
         try {
-            for (ModuleHolder module : mModules.values()) {
+            for (ModuleHolder module : mTable.mModules) {
                 module.destroy();
             }
         } finally {
@@ -106,7 +261,7 @@ public class NativeModuleRegistry {
         Systrace.beginSection(
                 Systrace.TRACE_TAG_REACT_JAVA_BRIDGE, "NativeModuleRegistry_notifyJSInstanceInitialized");
         try {
-            for (ModuleHolder module : mModules.values()) {
+            for (ModuleHolder module : mTable.mModules) {
                 module.markInitializable();
             }
         } finally {
@@ -121,46 +276,88 @@ public class NativeModuleRegistry {
         // short-circuit
         // the search, and simply call OnBatchComplete on the UI Manager.
         // With Fabric, UIManager would no longer be a NativeModule, so this call would simply go away
-        ModuleHolder moduleHolder = mModules.get("UIManager");
-        if (moduleHolder != null && moduleHolder.hasInstance()) {
+        ModuleTable table = mTable;
+        if (table.mUIManagerId == -1) {
+            return;
+        }
+        ModuleHolder moduleHolder = table.mModules[table.mUIManagerId];
+        if (moduleHolder.hasInstance()) {
             ((OnBatchCompleteListener) moduleHolder.getModule()).onBatchComplete();
         }
     }
 
-    public <T extends NativeModule> boolean hasModule(Class<T> moduleInterface) {
-        String name = moduleInterface.getAnnotation(ReactModule.class).name();
-        return mModules.containsKey(name);
+    /**
+     * @return the id of the module called {@code name}, or -1 if there is none. Ids are dense,
+     * from 0 to {@link #getModuleCount()} - 1, and never change.
+     */
+    public int getModuleId(String name) {
+        return mTable.find(name);
     }
 
-    public <T extends NativeModule> T getModule(Class<T> moduleInterface) {
+    public int getModuleCount() {
+        return mTable.mModules.length;
+    }
+
+    public NativeModule getModule(int moduleId) {
+        return mTable.mModules[moduleId].getModule();
+    }
+
+    /**
+     * @return the id of the module {@code moduleInterface} is annotated with, or -1 if there is
+     * none.
+     */
+    private int getModuleId(Class<? extends NativeModule> moduleInterface) {
+        Integer cachedId = mModuleIdsByClass.get(moduleInterface);
+        if (cachedId != null) {
+            return cachedId;
+        }
         ReactModule annotation = moduleInterface.getAnnotation(ReactModule.class);
         if (annotation == null) {
             throw new IllegalArgumentException(
                     "Could not find @ReactModule annotation in class " + moduleInterface.getName());
         }
-        return (T)
-                Assertions.assertNotNull(
-                        mModules.get(annotation.name()),
-                        annotation.name()
-                                + " could not be found. Is it defined in "
-                                + moduleInterface.getName())
-                        .getModule();
+        int id = mTable.find(annotation.name());
+        // Modules registered later may still resolve a miss, so only cache hits.
+        if (id != -1) {
+            mModuleIdsByClass.put(moduleInterface, id);
+        }
+        return id;
+    }
+
+    public <T extends NativeModule> boolean hasModule(Class<T> moduleInterface) {
+        return getModuleId(moduleInterface) != -1;
+    }
+
+    public <T extends NativeModule> T getModule(Class<T> moduleInterface) {
+        int id = getModuleId(moduleInterface);
+        if (id == -1) {
+            throw new AssertionError(
+                    moduleInterface.getAnnotation(ReactModule.class).name()
+                            + " could not be found. Is it defined in "
+                            + moduleInterface.getName());
+        }
+        return (T) mTable.mModules[id].getModule();
     }
 
     public boolean hasModule(String name) {
-        return mModules.containsKey(name);
+        return mTable.find(name) != -1;
     }
 
     public NativeModule getModule(String name) {
-        return Assertions.assertNotNull(
-                mModules.get(name), "Could not find module with name " + name).getModule();
+        ModuleTable table = mTable;
+        int id = table.find(name);
+        if (id == -1) {
+            throw new AssertionError("Could not find module with name " + name);
+        }
+        return table.mModules[id].getModule();
     }
 
     public List<NativeModule> getAllModules() {
-        List<NativeModule> modules = new ArrayList<>();
-        for (ModuleHolder module : mModules.values()) {
-            modules.add(module.getModule());
+        ModuleHolder[] modules = mTable.mModules;
+        List<NativeModule> nativeModules = new ArrayList<>(modules.length);
+        for (ModuleHolder module : modules) {
+            nativeModules.add(module.getModule());
         }
-        return modules;
+        return nativeModules;
     }
 }
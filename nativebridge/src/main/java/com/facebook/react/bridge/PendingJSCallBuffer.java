@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import com.facebook.common.logging.FLog;
+import com.facebook.infer.annotation.Assertions;
+import com.facebook.react.bridge.CatalystInstanceImpl.PendingJSCall;
+import com.facebook.react.bridge.queue.QueueOverflowPolicy;
+import com.facebook.react.common.ReactConstants;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free buffer for the JS calls made before the JS bundle has been loaded. Any thread can
+ * {@link #offer} calls; once {@link #open} has been called, whichever thread finds calls left
+ * in the buffer dispatches them, in order, without ever blocking the other callers.
+ *
+ * <p>Until the buffer is open it holds at most (approximately, under contention) {@code capacity}
+ * calls, then applies its {@link QueueOverflowPolicy}: {@link QueueOverflowPolicy#DROP_NEWEST}
+ * discards the incoming call, {@link QueueOverflowPolicy#DROP_OLDEST} the oldest buffered one.
+ */
+/* package */ class PendingJSCallBuffer {
+
+  /* package */ interface Dispatcher {
+    void dispatch(PendingJSCall call);
+  }
+
+  private final Dispatcher mDispatcher;
+  private final int mCapacity;
+  private final QueueOverflowPolicy mOverflowPolicy;
+  private final ConcurrentLinkedQueue<PendingJSCall> mCalls = new ConcurrentLinkedQueue<>();
+  // Calls offered to the buffer and not dispatched yet: while non-zero, new calls have to go
+  // through the buffer too so that they don't overtake the buffered ones.
+  private final AtomicInteger mUndispatchedCount = new AtomicInteger(0);
+  private final AtomicBoolean mIsDraining = new AtomicBoolean(false);
+  private final AtomicBoolean mIsOpen = new AtomicBoolean(false);
+  private final AtomicLong mDroppedCount = new AtomicLong();
+
+  /* package */ PendingJSCallBuffer(
+      Dispatcher dispatcher,
+      int capacity,
+      QueueOverflowPolicy overflowPolicy) {
+    Assertions.assertCondition(capacity > 0, "Pending JS call capacity must be positive");
+    Assertions.assertCondition(
+        overflowPolicy == QueueOverflowPolicy.DROP_NEWEST
+            || overflowPolicy == QueueOverflowPolicy.DROP_OLDEST,
+        "Pending JS calls only support the DROP_NEWEST and DROP_OLDEST overflow policies");
+    mDispatcher = dispatcher;
+    mCapacity = capacity;
+    mOverflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * @return true if the call was taken (buffered, dispatched or dropped) by the buffer, false if
+   * the buffer is open and drained, in which case the caller dispatches the call itself.
+   */
+  /* package */ boolean offer(PendingJSCall call) {
+    if (isDrained()) {
+      return false;
+    }
+    if (mUndispatchedCount.incrementAndGet() > mCapacity && !mIsOpen.get()) {
+      mDroppedCount.incrementAndGet();
+      if (mOverflowPolicy == QueueOverflowPolicy.DROP_NEWEST) {
+        mUndispatchedCount.decrementAndGet();
+        FLog.w(ReactConstants.TAG, "Too many JS calls before bundle load, dropping " + call);
+        return true;
+      }
+      PendingJSCall oldest = mCalls.poll();
+      if (oldest != null) {
+        mUndispatchedCount.decrementAndGet();
+        FLog.w(ReactConstants.TAG, "Too many JS calls before bundle load, dropping " + oldest);
+      }
+    }
+    mCalls.add(call);
+    // If the buffer was opened concurrently, the opening thread may already be done draining.
+    if (mIsOpen.get()) {
+      drain();
+    }
+    return true;
+  }
+
+  /**
+   * Dispatches the buffered calls and lets later calls through. Only the first call has an effect.
+   *
+   * @return whether this call opened the buffer.
+   */
+  /* package */ boolean open() {
+    if (!mIsOpen.compareAndSet(false, true)) {
+      return false;
+    }
+    drain();
+    return true;
+  }
+
+  /* package */ boolean isOpen() {
+    return mIsOpen.get();
+  }
+
+  /**
+   * @return whether the buffer is open and every call it took has been dispatched, i.e. new calls
+   * can be dispatched directly.
+   */
+  /* package */ boolean isDrained() {
+    return mIsOpen.get() && mUndispatchedCount.get() == 0;
+  }
+
+  /**
+   * @return number of calls dropped because the buffer was full.
+   */
+  /* package */ long getDroppedCount() {
+    return mDroppedCount.get();
+  }
+
+  private void drain() {
+    do {
+      // Another thread is dispatching: it re-checks the buffer once done, picking our calls up.
+      if (!mIsDraining.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        PendingJSCall call;
+        while ((call = mCalls.poll()) != null) {
+          try {
+            mDispatcher.dispatch(call);
+          } finally {
+            mUndispatchedCount.decrementAndGet();
+          }
+        }
+      } finally {
+        mIsDraining.set(false);
+      }
+    } while (!mCalls.isEmpty());
+  }
+}
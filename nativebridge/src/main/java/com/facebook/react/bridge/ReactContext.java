@@ -80,6 +80,28 @@ public class ReactContext extends ContextWrapper {
         mJSMessageQueueThread = queueConfig.getJSQueueThread();
     }
 
+    /**
+     * Points this Context, and the native modules created with it, to a new CatalystInstance after
+     * a warm restart (see {@link CatalystInstanceImpl#destroyForWarmRestart}). The current instance
+     * must already be destroyed.
+     */
+    public void reinitializeWithInstance(CatalystInstance catalystInstance) {
+        if (catalystInstance == null) {
+            throw new IllegalArgumentException("CatalystInstance cannot be null.");
+        }
+        if (mCatalystInstance == null || !mCatalystInstance.isDestroyed()) {
+            throw new IllegalStateException(
+                    "ReactContext can only be reinitialized once its instance has been destroyed");
+        }
+
+        mCatalystInstance = catalystInstance;
+
+        ReactQueueConfiguration queueConfig = catalystInstance.getReactQueueConfiguration();
+        mUiMessageQueueThread = queueConfig.getUIQueueThread();
+        mNativeModulesMessageQueueThread = queueConfig.getNativeModulesQueueThread();
+        mJSMessageQueueThread = queueConfig.getJSQueueThread();
+    }
+
     public void resetPerfStats() {
         if (mNativeModulesMessageQueueThread != null) {
             mNativeModulesMessageQueueThread.resetPerfStats();
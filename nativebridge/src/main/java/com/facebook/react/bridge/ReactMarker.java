@@ -7,8 +7,7 @@ package com.facebook.react.bridge;
 
 import com.facebook.proguard.annotations.DoNotStrip;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import javax.annotation.Nullable;
 
@@ -23,34 +22,60 @@ public class ReactMarker {
     void logMarker(ReactMarkerConstants name, @Nullable String tag, int instanceKey);
   };
 
-  // Use a list instead of a set here because we expect the number of listeners
-  // to be very small, and we want listeners to be called in a deterministic
-  // order.
-  private static final List<MarkerListener> sListeners = new ArrayList<>();
+  private static final ReactMarkerConstants[] sConstants = ReactMarkerConstants.values();
+
+  private static final Object sListenersLock = new Object();
+  // Copy-on-write, so that logging a marker takes no lock. Use an array instead of a set here
+  // because we expect the number of listeners to be very small, and we want listeners to be called
+  // in a deterministic order.
+  private static volatile MarkerListener[] sListeners = new MarkerListener[0];
 
   @DoNotStrip
   public static void addListener(MarkerListener listener) {
-    synchronized(sListeners) {
-      if (!sListeners.contains(listener)) {
-        sListeners.add(listener);
+    synchronized (sListenersLock) {
+      MarkerListener[] listeners = sListeners;
+      for (MarkerListener existingListener : listeners) {
+        if (existingListener.equals(listener)) {
+          return;
+        }
       }
+      MarkerListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+      newListeners[listeners.length] = listener;
+      sListeners = newListeners;
     }
   }
 
   @DoNotStrip
   public static void removeListener(MarkerListener listener) {
-    synchronized(sListeners) {
-      sListeners.remove(listener);
+    synchronized (sListenersLock) {
+      MarkerListener[] listeners = sListeners;
+      for (int i = 0; i < listeners.length; i++) {
+        if (listeners[i].equals(listener)) {
+          MarkerListener[] newListeners = new MarkerListener[listeners.length - 1];
+          System.arraycopy(listeners, 0, newListeners, 0, i);
+          System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+          sListeners = newListeners;
+          return;
+        }
+      }
     }
   }
 
   @DoNotStrip
   public static void clearMarkerListeners() {
-    synchronized(sListeners) {
-      sListeners.clear();
+    synchronized (sListenersLock) {
+      sListeners = new MarkerListener[0];
     }
   }
 
+  /**
+   * @return whether any listener would receive a marker logged now. Lets callers skip computing
+   * expensive tags.
+   */
+  public static boolean hasListeners() {
+    return sListeners.length > 0;
+  }
+
   @DoNotStrip
   public static void logMarker(String name) {
     logMarker(name, null);
@@ -68,10 +93,25 @@ public class ReactMarker {
 
   @DoNotStrip
   public static void logMarker(String name, @Nullable String tag, int instanceKey) {
+    if (sListeners.length == 0) {
+      return;
+    }
     ReactMarkerConstants marker = ReactMarkerConstants.valueOf(name);
     logMarker(marker, tag, instanceKey);
   }
 
+  /**
+   * Entry point for native code, which resolves the ordinal of each marker once through
+   * {@link #getMarkerOrdinal} instead of passing its name on every call.
+   */
+  @DoNotStrip
+  public static void logMarker(int ordinal, @Nullable String tag, int instanceKey) {
+    if (sListeners.length == 0) {
+      return;
+    }
+    logMarker(sConstants[ordinal], tag, instanceKey);
+  }
+
   @DoNotStrip
   public static void logMarker(ReactMarkerConstants name) {
     logMarker(name, null, 0);
@@ -89,10 +129,20 @@ public class ReactMarker {
 
   @DoNotStrip
   public static void logMarker(ReactMarkerConstants name, @Nullable String tag, int instanceKey) {
-    synchronized(sListeners) {
-      for (MarkerListener listener : sListeners) {
-        listener.logMarker(name, tag, instanceKey);
-      }
+    for (MarkerListener listener : sListeners) {
+      listener.logMarker(name, tag, instanceKey);
+    }
+  }
+
+  /**
+   * @return the ordinal of the marker called {@code name}, or -1 if there is none.
+   */
+  @DoNotStrip
+  private static int getMarkerOrdinal(String name) {
+    try {
+      return ReactMarkerConstants.valueOf(name).ordinal();
+    } catch (IllegalArgumentException e) {
+      return -1;
     }
   }
 }
@@ -96,4 +96,12 @@ public enum ReactMarkerConstants {
   LOAD_REACT_NATIVE_SO_FILE_END,
   LOAD_REACT_NATIVE_FABRIC_SO_FILE_START,
   LOAD_REACT_NATIVE_FABRIC_SO_FILE_END,
+  WARM_RESTART_START,
+  WARM_RESTART_END,
+  CREATE_JS_EXECUTOR_START,
+  CREATE_JS_EXECUTOR_END,
+  PREFETCH_JS_BUNDLE_START,
+  PREFETCH_JS_BUNDLE_END,
+  CREATE_EAGER_MODULES_START,
+  CREATE_EAGER_MODULES_END,
 }
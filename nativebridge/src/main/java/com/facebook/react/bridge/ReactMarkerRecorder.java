@@ -0,0 +1,165 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link ReactMarker.MarkerListener} that keeps the most recent markers in a fixed-size ring
+ * buffer, with {@link System#nanoTime} timestamps. Recording a marker takes no lock and allocates
+ * nothing, so it can stay registered with {@link ReactMarker#addListener} in production; records
+ * are only materialized by {@link #snapshot}. It only waits when the buffer has been lapped while a
+ * marker was being written to the slot it needs, for that marker's few remaining stores.
+ */
+public class ReactMarkerRecorder implements ReactMarker.MarkerListener {
+
+  private static final ReactMarkerConstants[] sConstants = ReactMarkerConstants.values();
+
+  public static final class Record {
+    private final ReactMarkerConstants mMarker;
+    private final @Nullable String mTag;
+    private final int mInstanceKey;
+    private final long mTimeNs;
+    private final long mThreadId;
+
+    private Record(
+        ReactMarkerConstants marker,
+        @Nullable String tag,
+        int instanceKey,
+        long timeNs,
+        long threadId) {
+      mMarker = marker;
+      mTag = tag;
+      mInstanceKey = instanceKey;
+      mTimeNs = timeNs;
+      mThreadId = threadId;
+    }
+
+    public ReactMarkerConstants getMarker() {
+      return mMarker;
+    }
+
+    public @Nullable String getTag() {
+      return mTag;
+    }
+
+    public int getInstanceKey() {
+      return mInstanceKey;
+    }
+
+    public long getTimeNs() {
+      return mTimeNs;
+    }
+
+    public long getThreadId() {
+      return mThreadId;
+    }
+  }
+
+  private final int mMask;
+  private final AtomicLong mNextIndex = new AtomicLong();
+  // Per slot: 0 if never written, 2 * index + 1 while record #index is being written, and
+  // 2 * index + 2 once it is complete. Only ever grows. Lets snapshot() skip slots that are being
+  // overwritten.
+  private final AtomicLongArray mSequences;
+  private final AtomicIntegerArray mMarkers;
+  private final AtomicReferenceArray<String> mTags;
+  private final AtomicIntegerArray mInstanceKeys;
+  private final AtomicLongArray mTimesNs;
+  private final AtomicLongArray mThreadIds;
+
+  /**
+   * @param capacity the number of most recent markers to keep, rounded up to a power of two.
+   */
+  public ReactMarkerRecorder(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+    int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    mMask = size - 1;
+    mSequences = new AtomicLongArray(size);
+    mMarkers = new AtomicIntegerArray(size);
+    mTags = new AtomicReferenceArray<>(size);
+    mInstanceKeys = new AtomicIntegerArray(size);
+    mTimesNs = new AtomicLongArray(size);
+    mThreadIds = new AtomicLongArray(size);
+  }
+
+  @Override
+  public void logMarker(ReactMarkerConstants name, @Nullable String tag, int instanceKey) {
+    long timeNs = System.nanoTime();
+    long index = mNextIndex.getAndIncrement();
+    int slot = (int) (index & mMask);
+    long writingSequence = 2 * index + 1;
+    // Claims the slot, so that the fields of two markers never get mixed in it.
+    while (true) {
+      long sequence = mSequences.get(slot);
+      if (sequence > writingSequence) {
+        // Lapped by a newer marker: this one would be overwritten anyway.
+        return;
+      }
+      if ((sequence & 1) == 0) {
+        if (mSequences.compareAndSet(slot, sequence, writingSequence)) {
+          break;
+        }
+      } else {
+        // An older marker is still being written there.
+        Thread.yield();
+      }
+    }
+    mMarkers.lazySet(slot, name.ordinal());
+    mTags.lazySet(slot, tag);
+    mInstanceKeys.lazySet(slot, instanceKey);
+    mTimesNs.lazySet(slot, timeNs);
+    mThreadIds.lazySet(slot, Thread.currentThread().getId());
+    mSequences.lazySet(slot, writingSequence + 1);
+  }
+
+  public int getCapacity() {
+    return mMask + 1;
+  }
+
+  /**
+   * @return the number of markers recorded so far, including the ones that have been overwritten.
+   */
+  public long getRecordedCount() {
+    return mNextIndex.get();
+  }
+
+  /**
+   * @return the markers still in the buffer, oldest first. Markers being recorded concurrently may
+   * be missing.
+   */
+  public List<Record> snapshot() {
+    long end = mNextIndex.get();
+    long start = Math.max(0, end - getCapacity());
+    List<Record> records = new ArrayList<>((int) (end - start));
+    for (long index = start; index < end; index++) {
+      int slot = (int) (index & mMask);
+      long sequence = 2 * index + 2;
+      if (mSequences.get(slot) != sequence) {
+        continue;
+      }
+      int marker = mMarkers.get(slot);
+      String tag = mTags.get(slot);
+      int instanceKey = mInstanceKeys.get(slot);
+      long timeNs = mTimesNs.get(slot);
+      long threadId = mThreadIds.get(slot);
+      if (mSequences.get(slot) != sequence) {
+        continue;
+      }
+      records.add(new Record(sConstants[marker], tag, instanceKey, timeNs, threadId));
+    }
+    return records;
+  }
+}
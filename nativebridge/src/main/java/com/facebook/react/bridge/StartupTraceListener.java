@@ -0,0 +1,93 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * {@link ReactMarker.MarkerListener} that records the markers logged while a react context starts
+ * up and reports them as a {@link StartupTraceReport} once {@link
+ * ReactMarkerConstants#SETUP_REACT_CONTEXT_END} is logged. Register it with {@link
+ * ReactMarker#addListener}.
+ *
+ * <p>Recording starts at the first of {@link ReactMarkerConstants#REACT_CONTEXT_THREAD_START},
+ * {@link ReactMarkerConstants#CREATE_REACT_CONTEXT_START}, {@link
+ * ReactMarkerConstants#WARM_RESTART_START} or {@link ReactMarkerConstants#SETUP_REACT_CONTEXT_START};
+ * markers logged outside of a startup are ignored. Markers don't say which react context they
+ * belong to, so startups that overlap (e.g. standby contexts being created) end up in the same
+ * report.
+ */
+public class StartupTraceListener implements ReactMarker.MarkerListener {
+
+  public interface ReportCallback {
+
+    /**
+     * Called on the thread that logged {@link ReactMarkerConstants#SETUP_REACT_CONTEXT_END}, i.e.
+     * the native modules thread.
+     */
+    void onStartupReport(StartupTraceReport report);
+  }
+
+  // A startup that never finishes shouldn't grow the recording forever.
+  private static final int MAX_EVENTS = 8192;
+
+  private final ReportCallback mCallback;
+
+  @GuardedBy("this")
+  private @Nullable List<StartupTraceReport.Event> mEvents;
+  @GuardedBy("this")
+  private int mDroppedEventCount;
+
+  public StartupTraceListener(ReportCallback callback) {
+    mCallback = callback;
+  }
+
+  @Override
+  public void logMarker(ReactMarkerConstants name, @Nullable String tag, int instanceKey) {
+    long timeNs = System.nanoTime();
+    StartupTraceReport report = null;
+    synchronized (this) {
+      if (mEvents == null) {
+        if (!isStartupStart(name)) {
+          return;
+        }
+        mEvents = new ArrayList<>();
+        mDroppedEventCount = 0;
+      }
+      if (mEvents.size() < MAX_EVENTS) {
+        Thread thread = Thread.currentThread();
+        mEvents.add(
+            new StartupTraceReport.Event(
+                name, tag, instanceKey, timeNs, thread.getId(), thread.getName()));
+      } else {
+        mDroppedEventCount++;
+      }
+      if (name == ReactMarkerConstants.SETUP_REACT_CONTEXT_END) {
+        report = StartupTraceReport.build(mEvents, mDroppedEventCount);
+        mEvents = null;
+      }
+    }
+    if (report != null) {
+      mCallback.onStartupReport(report);
+    }
+  }
+
+  private static boolean isStartupStart(ReactMarkerConstants name) {
+    switch (name) {
+      case REACT_CONTEXT_THREAD_START:
+      case CREATE_REACT_CONTEXT_START:
+      case WARM_RESTART_START:
+      case SETUP_REACT_CONTEXT_START:
+        return true;
+      default:
+        return false;
+    }
+  }
+}
@@ -0,0 +1,621 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import android.os.Process;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * The markers of one react context startup, stitched into spans, see {@link StartupTraceListener}.
+ *
+ * <p>A span is a START marker and the END (or STOP) marker with the same name prefix and instance
+ * key logged after it, and the same tag when the END marker has one. Spans are nested under the
+ * spans they fall within on the same thread. All times are relative to the first marker of the
+ * startup.
+ */
+public final class StartupTraceReport {
+
+  /* package */ static final class Event {
+    private final ReactMarkerConstants mName;
+    private final @Nullable String mTag;
+    private final int mInstanceKey;
+    private final long mTimeNs;
+    private final long mThreadId;
+    private final String mThreadName;
+
+    /* package */ Event(
+        ReactMarkerConstants name,
+        @Nullable String tag,
+        int instanceKey,
+        long timeNs,
+        long threadId,
+        String threadName) {
+      mName = name;
+      mTag = tag;
+      mInstanceKey = instanceKey;
+      mTimeNs = timeNs;
+      mThreadId = threadId;
+      mThreadName = threadName;
+    }
+  }
+
+  public static final class Span {
+    private final String mName;
+    private final @Nullable String mTag;
+    private final long mThreadId;
+    private final String mThreadName;
+    private final long mStartNs;
+    private final long mEndNs;
+    private @Nullable Span mParent;
+    private final List<Span> mChildren = new ArrayList<>();
+
+    private Span(
+        String name,
+        @Nullable String tag,
+        long threadId,
+        String threadName,
+        long startNs,
+        long endNs) {
+      mName = name;
+      mTag = tag;
+      mThreadId = threadId;
+      mThreadName = threadName;
+      mStartNs = startNs;
+      mEndNs = endNs;
+    }
+
+    /**
+     * @return the name of the markers, without their START/END suffix.
+     */
+    public String getName() {
+      return mName;
+    }
+
+    public @Nullable String getTag() {
+      return mTag;
+    }
+
+    public String getThreadName() {
+      return mThreadName;
+    }
+
+    public long getStartNs() {
+      return mStartNs;
+    }
+
+    public long getDurationNs() {
+      return mEndNs - mStartNs;
+    }
+
+    public @Nullable Span getParent() {
+      return mParent;
+    }
+
+    public List<Span> getChildren() {
+      return Collections.unmodifiableList(mChildren);
+    }
+
+    @Override
+    public String toString() {
+      return mName + (mTag == null ? "" : "(" + mTag + ")")
+          + " on " + mThreadName + ": " + nsToMs(getDurationNs()) + "ms";
+    }
+  }
+
+  /**
+   * A span on the critical path. Steps with a depth greater than 0 are the critical path within the
+   * closest preceding step with a lower depth.
+   */
+  public static final class CriticalPathStep {
+    private final Span mSpan;
+    private final int mDepth;
+
+    private CriticalPathStep(Span span, int depth) {
+      mSpan = span;
+      mDepth = depth;
+    }
+
+    public Span getSpan() {
+      return mSpan;
+    }
+
+    public int getDepth() {
+      return mDepth;
+    }
+  }
+
+  public static final class ModuleCost {
+    private final String mName;
+    private long mCreateNs;
+    private long mConstantsNs;
+    private long mInitializeNs;
+
+    private ModuleCost(String name) {
+      mName = name;
+    }
+
+    public String getName() {
+      return mName;
+    }
+
+    public long getCreateNs() {
+      return mCreateNs;
+    }
+
+    /**
+     * @return time spent getting the constants of the module, excluding its creation when it was
+     * created for that.
+     */
+    public long getConstantsNs() {
+      return mConstantsNs;
+    }
+
+    public long getInitializeNs() {
+      return mInitializeNs;
+    }
+
+    public long getTotalNs() {
+      return mCreateNs + mConstantsNs + mInitializeNs;
+    }
+  }
+
+  private static final String START_SUFFIX = "_START";
+  private static final String END_SUFFIX = "_END";
+  private static final String STOP_SUFFIX = "_STOP";
+
+  private final long mDurationNs;
+  private final List<Span> mSpans;
+  private final List<Span> mRootSpans;
+  private final List<Event> mInstantEvents;
+  private final List<CriticalPathStep> mCriticalPath;
+  private final List<ModuleCost> mModuleCosts;
+  private final long mStartTimeNs;
+  private final int mUnmatchedMarkerCount;
+  private final int mDroppedEventCount;
+
+  private StartupTraceReport(
+      long startTimeNs,
+      long durationNs,
+      List<Span> spans,
+      List<Span> rootSpans,
+      List<Event> instantEvents,
+      List<CriticalPathStep> criticalPath,
+      List<ModuleCost> moduleCosts,
+      int unmatchedMarkerCount,
+      int droppedEventCount) {
+    mStartTimeNs = startTimeNs;
+    mDurationNs = durationNs;
+    mSpans = spans;
+    mRootSpans = rootSpans;
+    mInstantEvents = instantEvents;
+    mCriticalPath = criticalPath;
+    mModuleCosts = moduleCosts;
+    mUnmatchedMarkerCount = unmatchedMarkerCount;
+    mDroppedEventCount = droppedEventCount;
+  }
+
+  /* package */ static StartupTraceReport build(List<Event> events, int droppedEventCount) {
+    List<Event> sortedEvents = new ArrayList<>(events);
+    // Timestamps are taken before the listener's lock, so events can be slightly out of order.
+    Collections.sort(
+        sortedEvents,
+        new Comparator<Event>() {
+          @Override
+          public int compare(Event lhs, Event rhs) {
+            return compareLongs(lhs.mTimeNs, rhs.mTimeNs);
+          }
+        });
+    long startTimeNs = sortedEvents.get(0).mTimeNs;
+    long durationNs = sortedEvents.get(sortedEvents.size() - 1).mTimeNs - startTimeNs;
+
+    List<Span> spans = new ArrayList<>();
+    List<Event> instantEvents = new ArrayList<>();
+    Map<String, ArrayDeque<Event>> openStarts = new HashMap<>();
+    int unmatchedMarkerCount = 0;
+    for (Event event : sortedEvents) {
+      String markerName = event.mName.name();
+      if (markerName.endsWith(START_SUFFIX)) {
+        String key = spanKey(stripSuffix(markerName, START_SUFFIX), event.mInstanceKey);
+        ArrayDeque<Event> starts = openStarts.get(key);
+        if (starts == null) {
+          starts = new ArrayDeque<>();
+          openStarts.put(key, starts);
+        }
+        starts.push(event);
+      } else if (markerName.endsWith(END_SUFFIX) || markerName.endsWith(STOP_SUFFIX)) {
+        String name = stripSuffix(
+            markerName,
+            markerName.endsWith(END_SUFFIX) ? END_SUFFIX : STOP_SUFFIX);
+        Event start = popMatchingStart(openStarts.get(spanKey(name, event.mInstanceKey)), event);
+        if (start == null) {
+          unmatchedMarkerCount++;
+        } else {
+          spans.add(
+              new Span(
+                  name,
+                  start.mTag,
+                  start.mThreadId,
+                  start.mThreadName,
+                  start.mTimeNs - startTimeNs,
+                  event.mTimeNs - startTimeNs));
+        }
+      } else {
+        instantEvents.add(event);
+      }
+    }
+    for (ArrayDeque<Event> starts : openStarts.values()) {
+      unmatchedMarkerCount += starts.size();
+    }
+
+    List<Span> rootSpans = buildTree(spans);
+    List<CriticalPathStep> criticalPath = new ArrayList<>();
+    computeCriticalPath(rootSpans, rootSpans, 0, durationNs, 0, criticalPath);
+    return new StartupTraceReport(
+        startTimeNs,
+        durationNs,
+        spans,
+        rootSpans,
+        instantEvents,
+        criticalPath,
+        computeModuleCosts(spans),
+        unmatchedMarkerCount,
+        droppedEventCount);
+  }
+
+  private static String stripSuffix(String markerName, String suffix) {
+    return markerName.substring(0, markerName.length() - suffix.length());
+  }
+
+  private static String spanKey(String name, int instanceKey) {
+    return name + '#' + instanceKey;
+  }
+
+  private static @Nullable Event popMatchingStart(
+      @Nullable ArrayDeque<Event> starts,
+      Event end) {
+    if (starts == null || starts.isEmpty()) {
+      return null;
+    }
+    if (end.mTag == null) {
+      return starts.pop();
+    }
+    Iterator<Event> iterator = starts.iterator();
+    while (iterator.hasNext()) {
+      Event start = iterator.next();
+      if (end.mTag.equals(start.mTag)) {
+        iterator.remove();
+        return start;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Nests each span under the innermost span of the same thread it falls within.
+   *
+   * @return the spans that aren't nested.
+   */
+  private static List<Span> buildTree(List<Span> spans) {
+    List<Span> sortedSpans = new ArrayList<>(spans);
+    // Per thread, outer spans before the spans they contain.
+    Collections.sort(
+        sortedSpans,
+        new Comparator<Span>() {
+          @Override
+          public int compare(Span lhs, Span rhs) {
+            int result = compareLongs(lhs.mThreadId, rhs.mThreadId);
+            if (result == 0) {
+              result = compareLongs(lhs.mStartNs, rhs.mStartNs);
+            }
+            if (result == 0) {
+              result = compareLongs(rhs.mEndNs, lhs.mEndNs);
+            }
+            return result;
+          }
+        });
+    List<Span> rootSpans = new ArrayList<>();
+    ArrayDeque<Span> enclosingSpans = new ArrayDeque<>();
+    for (Span span : sortedSpans) {
+      while (!enclosingSpans.isEmpty()
+          && (enclosingSpans.peek().mThreadId != span.mThreadId
+              || enclosingSpans.peek().mEndNs < span.mEndNs)) {
+        enclosingSpans.pop();
+      }
+      if (enclosingSpans.isEmpty()) {
+        rootSpans.add(span);
+      } else {
+        span.mParent = enclosingSpans.peek();
+        span.mParent.mChildren.add(span);
+      }
+      enclosingSpans.push(span);
+    }
+    Collections.sort(
+        rootSpans,
+        new Comparator<Span>() {
+          @Override
+          public int compare(Span lhs, Span rhs) {
+            return compareLongs(lhs.mStartNs, rhs.mStartNs);
+          }
+        });
+    return rootSpans;
+  }
+
+  /**
+   * Walks back from {@code endNs}, each time through the candidate that ended last before the
+   * current point, until {@code startNs}. Then does the same within each span it went through, with
+   * the span's children and the spans of other threads that ran during it as candidates: a span
+   * usually waits on its children, but may also have waited on another thread (e.g. for a stage
+   * started in parallel).
+   */
+  private static void computeCriticalPath(
+      List<Span> candidates,
+      List<Span> rootSpans,
+      long startNs,
+      long endNs,
+      int depth,
+      List<CriticalPathStep> criticalPath) {
+    List<Span> sortedCandidates = new ArrayList<>(candidates);
+    Collections.sort(
+        sortedCandidates,
+        new Comparator<Span>() {
+          @Override
+          public int compare(Span lhs, Span rhs) {
+            int result = compareLongs(rhs.mEndNs, lhs.mEndNs);
+            return result != 0 ? result : compareLongs(rhs.mStartNs, lhs.mStartNs);
+          }
+        });
+    List<Span> path = new ArrayList<>();
+    long cursorNs = endNs;
+    for (Span span : sortedCandidates) {
+      if (span.mEndNs <= cursorNs && span.mStartNs >= startNs) {
+        path.add(span);
+        cursorNs = span.mStartNs;
+      }
+    }
+    Collections.reverse(path);
+
+    for (Span span : path) {
+      criticalPath.add(new CriticalPathStep(span, depth));
+      List<Span> innerCandidates = new ArrayList<>(span.mChildren);
+      for (Span rootSpan : rootSpans) {
+        if (rootSpan.mThreadId != span.mThreadId
+            && rootSpan.mStartNs >= span.mStartNs
+            && rootSpan.mEndNs <= span.mEndNs) {
+          innerCandidates.add(rootSpan);
+        }
+      }
+      if (!innerCandidates.isEmpty()) {
+        computeCriticalPath(
+            innerCandidates,
+            rootSpans,
+            span.mStartNs,
+            span.mEndNs,
+            depth + 1,
+            criticalPath);
+      }
+    }
+  }
+
+  private static List<ModuleCost> computeModuleCosts(List<Span> spans) {
+    Map<String, ModuleCost> moduleCosts = new LinkedHashMap<>();
+    for (Span span : spans) {
+      if (span.mTag == null) {
+        continue;
+      }
+      if (span.mName.equals("CREATE_MODULE")) {
+        getModuleCost(moduleCosts, span.mTag).mCreateNs += span.getDurationNs();
+      } else if (span.mName.equals("GET_CONSTANTS")) {
+        long constantsNs = span.getDurationNs();
+        for (Span child : span.mChildren) {
+          if (child.mName.equals("CREATE_MODULE") && span.mTag.equals(child.mTag)) {
+            constantsNs -= child.getDurationNs();
+          }
+        }
+        getModuleCost(moduleCosts, span.mTag).mConstantsNs += constantsNs;
+      } else if (span.mName.equals("INITIALIZE_MODULE")) {
+        getModuleCost(moduleCosts, span.mTag).mInitializeNs += span.getDurationNs();
+      }
+    }
+    List<ModuleCost> sortedModuleCosts = new ArrayList<>(moduleCosts.values());
+    Collections.sort(
+        sortedModuleCosts,
+        new Comparator<ModuleCost>() {
+          @Override
+          public int compare(ModuleCost lhs, ModuleCost rhs) {
+            return compareLongs(rhs.getTotalNs(), lhs.getTotalNs());
+          }
+        });
+    return sortedModuleCosts;
+  }
+
+  private static ModuleCost getModuleCost(Map<String, ModuleCost> moduleCosts, String name) {
+    ModuleCost moduleCost = moduleCosts.get(name);
+    if (moduleCost == null) {
+      moduleCost = new ModuleCost(name);
+      moduleCosts.put(name, moduleCost);
+    }
+    return moduleCost;
+  }
+
+  private static int compareLongs(long lhs, long rhs) {
+    return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+  }
+
+  private static double nsToMs(long ns) {
+    return ns / 1000000.0;
+  }
+
+  public long getDurationNs() {
+    return mDurationNs;
+  }
+
+  /**
+   * @return all spans, in order of their END marker.
+   */
+  public List<Span> getSpans() {
+    return Collections.unmodifiableList(mSpans);
+  }
+
+  /**
+   * @return the spans not nested in another span, by start time.
+   */
+  public List<Span> getRootSpans() {
+    return Collections.unmodifiableList(mRootSpans);
+  }
+
+  /**
+   * @return the spans the end of the startup waited on, in order, each followed by the spans it
+   * waited on itself.
+   */
+  public List<CriticalPathStep> getCriticalPath() {
+    return Collections.unmodifiableList(mCriticalPath);
+  }
+
+  /**
+   * @return time on the top level of the critical path that no span accounts for.
+   */
+  public long getCriticalPathUntrackedNs() {
+    long trackedNs = 0;
+    for (CriticalPathStep step : mCriticalPath) {
+      if (step.mDepth == 0) {
+        trackedNs += step.mSpan.getDurationNs();
+      }
+    }
+    return mDurationNs - trackedNs;
+  }
+
+  /**
+   * @return creation, constants and initialization costs per native module, most expensive first.
+   */
+  public List<ModuleCost> getModuleCosts() {
+    return Collections.unmodifiableList(mModuleCosts);
+  }
+
+  /**
+   * @return number of START markers without END marker, and the other way around.
+   */
+  public int getUnmatchedMarkerCount() {
+    return mUnmatchedMarkerCount;
+  }
+
+  /**
+   * @return number of markers that weren't recorded because the startup logged too many.
+   */
+  public int getDroppedEventCount() {
+    return mDroppedEventCount;
+  }
+
+  /**
+   * Writes the report in the Chrome trace event format, which chrome://tracing and Perfetto can
+   * open. The critical path and the module costs are added as extra top-level fields.
+   */
+  public void writeChromeTrace(Writer out) throws IOException {
+    JsonWriter writer = new JsonWriter(out);
+    int pid = Process.myPid();
+    writer.beginObject();
+    writer.name("displayTimeUnit").value("ms");
+    writer.name("traceEvents").beginArray();
+    Map<Long, String> threadNames = new LinkedHashMap<>();
+    for (Span span : mSpans) {
+      threadNames.put(span.mThreadId, span.mThreadName);
+      writer.beginObject();
+      writer.name("name").value(span.mName);
+      writer.name("cat").value("react_marker");
+      writer.name("ph").value("X");
+      writer.name("ts").value(span.mStartNs / 1000);
+      writer.name("dur").value(span.getDurationNs() / 1000);
+      writer.name("pid").value(pid);
+      writer.name("tid").value(span.mThreadId);
+      if (span.mTag != null) {
+        writer.name("args").beginObject().name("tag").value(span.mTag).endObject();
+      }
+      writer.endObject();
+    }
+    for (Event event : mInstantEvents) {
+      threadNames.put(event.mThreadId, event.mThreadName);
+      writer.beginObject();
+      writer.name("name").value(event.mName.name());
+      writer.name("cat").value("react_marker");
+      writer.name("ph").value("i");
+      writer.name("s").value("t");
+      writer.name("ts").value((event.mTimeNs - mStartTimeNs) / 1000);
+      writer.name("pid").value(pid);
+      writer.name("tid").value(event.mThreadId);
+      if (event.mTag != null) {
+        writer.name("args").beginObject().name("tag").value(event.mTag).endObject();
+      }
+      writer.endObject();
+    }
+    for (Map.Entry<Long, String> threadName : threadNames.entrySet()) {
+      writer.beginObject();
+      writer.name("name").value("thread_name");
+      writer.name("ph").value("M");
+      writer.name("pid").value(pid);
+      writer.name("tid").value(threadName.getKey());
+      writer.name("args").beginObject().name("name").value(threadName.getValue()).endObject();
+      writer.endObject();
+    }
+    writer.endArray();
+
+    writer.name("durationMs").value(nsToMs(mDurationNs));
+    writer.name("criticalPathUntrackedMs").value(nsToMs(getCriticalPathUntrackedNs()));
+    writer.name("criticalPath").beginArray();
+    for (CriticalPathStep step : mCriticalPath) {
+      Span span = step.mSpan;
+      writer.beginObject();
+      writer.name("depth").value(step.mDepth);
+      writer.name("name").value(span.mName);
+      writer.name("tag").value(span.mTag);
+      writer.name("thread").value(span.mThreadName);
+      writer.name("startMs").value(nsToMs(span.mStartNs));
+      writer.name("durationMs").value(nsToMs(span.getDurationNs()));
+      writer.endObject();
+    }
+    writer.endArray();
+    writer.name("moduleCosts").beginArray();
+    for (ModuleCost moduleCost : mModuleCosts) {
+      writer.beginObject();
+      writer.name("name").value(moduleCost.mName);
+      writer.name("createMs").value(nsToMs(moduleCost.mCreateNs));
+      writer.name("constantsMs").value(nsToMs(moduleCost.mConstantsNs));
+      writer.name("initializeMs").value(nsToMs(moduleCost.mInitializeNs));
+      writer.endObject();
+    }
+    writer.endArray();
+    writer.name("unmatchedMarkers").value(mUnmatchedMarkerCount);
+    writer.name("droppedMarkers").value(mDroppedEventCount);
+    writer.endObject();
+    out.flush();
+  }
+
+  /**
+   * @return the report in the Chrome trace event format, see {@link #writeChromeTrace}.
+   */
+  public String toChromeTraceJson() {
+    StringWriter out = new StringWriter();
+    try {
+      writeChromeTrace(out);
+    } catch (IOException e) {
+      // StringWriter doesn't throw.
+      throw new RuntimeException(e);
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * FIFO of pending Runnables with a capacity and a {@link QueueOverflowPolicy}, shared by the queue
+ * backends. Not thread safe by itself: every method must be called while holding the lock passed to
+ * the constructor, which is also the monitor {@link QueueOverflowPolicy#BLOCK} producers wait on.
+ */
+/* package */ class BoundedTaskQueue {
+
+  enum OfferResult {
+    /** The Runnable was added and the queue grew by one. */
+    ENQUEUED,
+    /** The Runnable was added in place of an evicted one; the queue size is unchanged. */
+    REPLACED,
+    /** The Runnable was not added. */
+    REJECTED,
+    /** The Runnable was not added since an equal one is already pending. */
+    COALESCED,
+  }
+
+  private final Object mLock;
+  private final int mCapacity;
+  private final QueueOverflowPolicy mOverflowPolicy;
+  private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+  private final AtomicLong mDroppedCount = new AtomicLong();
+  private boolean mIsFinished = false;
+
+  BoundedTaskQueue(Object lock, int capacity, QueueOverflowPolicy overflowPolicy) {
+    mLock = lock;
+    mCapacity = capacity;
+    mOverflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * @param mayBlock false when called from the queue thread, in which case a
+   * {@link QueueOverflowPolicy#BLOCK} queue accepts the Runnable over capacity.
+   */
+  OfferResult offer(Runnable runnable, boolean mayBlock) {
+    if (mIsFinished) {
+      return OfferResult.REJECTED;
+    }
+    while (mTasks.size() >= mCapacity) {
+      switch (mOverflowPolicy) {
+        case BLOCK:
+          if (!mayBlock) {
+            mTasks.addLast(runnable);
+            return OfferResult.ENQUEUED;
+          }
+          try {
+            mLock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return OfferResult.REJECTED;
+          }
+          if (mIsFinished) {
+            // Woken up by finish(), which already discarded what this would be queued behind.
+            return OfferResult.REJECTED;
+          }
+          break;
+        case DROP_NEWEST:
+          return OfferResult.REJECTED;
+        case COALESCE:
+          if (mTasks.contains(runnable)) {
+            mDroppedCount.incrementAndGet();
+            return OfferResult.COALESCED;
+          }
+          // fall through
+        case DROP_OLDEST:
+          if (!evictOldest()) {
+            // Everything pending is a synchronous call, accept over capacity.
+            mTasks.addLast(runnable);
+            return OfferResult.ENQUEUED;
+          }
+          mDroppedCount.incrementAndGet();
+          mTasks.addLast(runnable);
+          return OfferResult.REPLACED;
+        default:
+          throw new IllegalStateException("Unknown overflow policy: " + mOverflowPolicy);
+      }
+    }
+    mTasks.addLast(runnable);
+    return OfferResult.ENQUEUED;
+  }
+
+  /**
+   * Adds a {@link SyncCallSlot} regardless of capacity. Its caller is blocked until it runs, so it
+   * is never rejected nor evicted.
+   */
+  void offerSyncCall(SyncCallSlot slot) {
+    mTasks.addLast(slot);
+  }
+
+  private boolean evictOldest() {
+    Iterator<Runnable> iterator = mTasks.iterator();
+    while (iterator.hasNext()) {
+      Runnable task = iterator.next();
+      if (!(task instanceof SyncCallSlot)) {
+        iterator.remove();
+        discard(task);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  Runnable poll() {
+    Runnable runnable = mTasks.pollFirst();
+    if (runnable != null && mOverflowPolicy == QueueOverflowPolicy.BLOCK) {
+      mLock.notifyAll();
+    }
+    return runnable;
+  }
+
+  /**
+   * Removes {@code runnable} if it is still pending, without discarding it.
+   *
+   * @return whether it was pending.
+   */
+  boolean remove(Runnable runnable) {
+    return mTasks.removeFirstOccurrence(runnable);
+  }
+
+  boolean isEmpty() {
+    return mTasks.isEmpty();
+  }
+
+  /**
+   * Discards every pending Runnable and wakes up blocked producers, including the callers of
+   * pending synchronous calls.
+   */
+  void clear() {
+    for (Runnable task : mTasks) {
+      discard(task);
+    }
+    mTasks.clear();
+    mLock.notifyAll();
+  }
+
+  /**
+   * Clears the queue for good: blocked {@link QueueOverflowPolicy#BLOCK} producers are woken up
+   * and, like every later {@link #offer}, get {@link OfferResult#REJECTED}.
+   */
+  void finish() {
+    mIsFinished = true;
+    clear();
+  }
+
+  /**
+   * Tells {@code task} that it won't run: the caller of a {@link SyncCallSlot} is released with an
+   * exception, and a {@link DiscardableRunnable} is notified.
+   */
+  static void discard(Runnable task) {
+    if (task instanceof SyncCallSlot) {
+      ((SyncCallSlot) task).abandon();
+    } else if (task instanceof DiscardableRunnable) {
+      ((DiscardableRunnable) task).onDiscarded();
+    }
+  }
+
+  /**
+   * @return how many pending Runnables were discarded to respect the capacity.
+   */
+  long getDroppedCount() {
+    return mDroppedCount.get();
+  }
+}
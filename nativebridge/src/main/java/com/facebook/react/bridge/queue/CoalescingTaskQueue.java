@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Backend-agnostic implementation of {@link MessageQueueThread#runOnQueueCoalesced}. At most one
+ * task per key is pending on the underlying queue; submitting again with the same key before that
+ * task has started replaces the Runnable it will run instead of enqueueing another task.
+ *
+ * <p>A task the queue rejects or discards releases its key, so that the next submission with that
+ * key enqueues a fresh task instead of being folded into one that will never run.
+ */
+/* package */ class CoalescingTaskQueue {
+
+  private final MessageQueueThread mQueueThread;
+  private final Object mLock = new Object();
+  @GuardedBy("mLock")
+  private final Map<Object, CoalescedTask> mPendingTasks = new HashMap<>();
+  private final AtomicLong mCoalescedCount = new AtomicLong();
+
+  CoalescingTaskQueue(MessageQueueThread queueThread) {
+    mQueueThread = queueThread;
+  }
+
+  void runOnQueueCoalesced(Object key, Runnable runnable) {
+    CoalescedTask task;
+    synchronized (mLock) {
+      task = mPendingTasks.get(key);
+      if (task != null) {
+        task.mRunnable = runnable;
+        mCoalescedCount.incrementAndGet();
+        return;
+      }
+      task = new CoalescedTask(key, runnable);
+      mPendingTasks.put(key, task);
+    }
+    mQueueThread.runOnQueue(task);
+  }
+
+  /**
+   * @return how many submissions were folded into an already pending task, i.e. the number of
+   * executions saved by coalescing.
+   */
+  long getCoalescedCount() {
+    return mCoalescedCount.get();
+  }
+
+  private class CoalescedTask implements DiscardableRunnable {
+    private final Object mKey;
+    @GuardedBy("mLock")
+    private Runnable mRunnable;
+
+    CoalescedTask(Object key, Runnable runnable) {
+      mKey = key;
+      mRunnable = runnable;
+    }
+
+    @Override
+    public void run() {
+      Runnable runnable;
+      synchronized (mLock) {
+        // Once removed, a new submission with this key enqueues a fresh task rather than racing
+        // with the one that is about to run.
+        mPendingTasks.remove(mKey);
+        runnable = mRunnable;
+      }
+      runnable.run();
+    }
+
+    @Override
+    public void onDiscarded() {
+      Runnable runnable;
+      synchronized (mLock) {
+        if (mPendingTasks.get(mKey) == this) {
+          mPendingTasks.remove(mKey);
+        }
+        runnable = mRunnable;
+      }
+      BoundedTaskQueue.discard(runnable);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+/**
+ * A Runnable that wants to know when a {@link MessageQueueThread} won't run it after all: it was
+ * rejected (the queue was quit, or was full with {@link QueueOverflowPolicy#DROP_NEWEST}), evicted
+ * to make room for a newer Runnable, or still pending when the queue was quit.
+ */
+public interface DiscardableRunnable extends Runnable {
+
+  /**
+   * Called instead of {@link #run()}, at most once per submission, on the thread that caused the
+   * Runnable to be discarded and possibly while the queue holds its lock: it must be cheap, and
+   * must not call back into the queue.
+   */
+  void onDiscarded();
+}
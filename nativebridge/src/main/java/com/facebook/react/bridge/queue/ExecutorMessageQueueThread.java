@@ -0,0 +1,401 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import com.facebook.common.logging.FLog;
+import com.facebook.proguard.annotations.DoNotStrip;
+import com.facebook.react.bridge.AssertionException;
+import com.facebook.react.bridge.SoftAssertions;
+import com.facebook.react.common.ReactConstants;
+import com.facebook.react.common.futures.SimpleSettableFuture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A logical serial {@link MessageQueueThread} multiplexed onto an {@link Executor}, without any
+ * dependency on {@link android.os.Looper}. Runnables run one at a time and in submission order, but
+ * not necessarily always on the same Thread: {@link #isOnThread()} is true on whichever executor
+ * Thread is currently draining this queue.
+ *
+ * <p>To keep one busy queue from starving the others sharing a bounded executor, a drain gives the
+ * Thread back after {@link #MAX_TASKS_PER_DRAIN} Runnables and re-submits itself.
+ */
+@DoNotStrip
+public class ExecutorMessageQueueThread implements MessageQueueThread {
+
+  private static final int MAX_TASKS_PER_DRAIN = 64;
+
+  private final String mName;
+  private final Executor mExecutor;
+  private final QueueThreadExceptionHandler mExceptionHandler;
+  private final String mAssertionErrorMessage;
+  private final CoalescingTaskQueue mCoalescingTaskQueue;
+  private final MessageQueueThreadPerfStats mPerfStats;
+  private final Runnable mDrainRunnable = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  private final Object mLock = new Object();
+  @GuardedBy("mLock")
+  private final BoundedTaskQueue mTasks;
+  @GuardedBy("mLock")
+  private boolean mIsDrainScheduled = false;
+  private volatile @Nullable Thread mDrainingThread;
+  private volatile boolean mIsFinished = false;
+  private final AtomicLong mRejectedTaskCount = new AtomicLong();
+
+  private ExecutorMessageQueueThread(
+      String name,
+      Executor executor,
+      QueueThreadExceptionHandler exceptionHandler,
+      int capacity,
+      QueueOverflowPolicy overflowPolicy) {
+    mName = name;
+    mTasks = new BoundedTaskQueue(mLock, capacity, overflowPolicy);
+    mExecutor = executor;
+    mExceptionHandler = exceptionHandler;
+    mAssertionErrorMessage = "Expected to be called from the '" + getName() + "' queue!";
+    mCoalescingTaskQueue = new CoalescingTaskQueue(this);
+    mPerfStats = new MessageQueueThreadPerfStats();
+    mPerfStats.wallTime = uptimeMillis();
+    mPerfStats.cpuTime = -1;
+  }
+
+  // Same monotonic clock as android.os.SystemClock#uptimeMillis, but usable off Android too.
+  private static long uptimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  public static ExecutorMessageQueueThread create(
+      String name,
+      Executor executor,
+      QueueThreadExceptionHandler exceptionHandler) {
+    return create(
+        name,
+        executor,
+        exceptionHandler,
+        MessageQueueThreadSpec.UNBOUNDED_CAPACITY,
+        QueueOverflowPolicy.BLOCK);
+  }
+
+  public static ExecutorMessageQueueThread create(
+      String name,
+      Executor executor,
+      QueueThreadExceptionHandler exceptionHandler,
+      int capacity,
+      QueueOverflowPolicy overflowPolicy) {
+    return new ExecutorMessageQueueThread(
+        name, executor, exceptionHandler, capacity, overflowPolicy);
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueue(Runnable runnable) {
+    if (mIsFinished) {
+      FLog.w(
+          ReactConstants.TAG,
+          "Tried to enqueue runnable on already finished queue: '" + getName() +
+              "... dropping Runnable.");
+      mRejectedTaskCount.incrementAndGet();
+      BoundedTaskQueue.discard(runnable);
+      return;
+    }
+    boolean shouldSchedule;
+    synchronized (mLock) {
+      if (mTasks.offer(runnable, !isOnThread()) == BoundedTaskQueue.OfferResult.REJECTED) {
+        mRejectedTaskCount.incrementAndGet();
+        BoundedTaskQueue.discard(runnable);
+        return;
+      }
+      shouldSchedule = !mIsDrainScheduled;
+      mIsDrainScheduled = true;
+    }
+    if (shouldSchedule) {
+      try {
+        scheduleDrain();
+      } catch (RejectedExecutionException e) {
+        FLog.w(ReactConstants.TAG, "Executor of queue '" + getName() + "' rejected its drain", e);
+        boolean isPending;
+        synchronized (mLock) {
+          isPending = mTasks.remove(runnable);
+        }
+        if (isPending) {
+          mRejectedTaskCount.incrementAndGet();
+          BoundedTaskQueue.discard(runnable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Hands {@link #mDrainRunnable} to the executor. If the executor refuses it, nothing will drain
+   * the queue, so the next submission gets to schedule a drain again.
+   */
+  private void scheduleDrain() {
+    try {
+      mExecutor.execute(mDrainRunnable);
+    } catch (RuntimeException e) {
+      synchronized (mLock) {
+        mIsDrainScheduled = false;
+        mLock.notifyAll();
+      }
+      throw e;
+    }
+  }
+
+  @DoNotStrip
+  @Override
+  public long getRejectedTaskCount() {
+    return mRejectedTaskCount.get();
+  }
+
+  @DoNotStrip
+  @Override
+  public long getDroppedTaskCount() {
+    return mTasks.getDroppedCount();
+  }
+
+  private void drain() {
+    // Whether mIsDrainScheduled has been taken care of, by clearing it or by handing it over to the
+    // next drain. Otherwise an Error, or anything else escaping a task, would leave it set forever:
+    // the queue would never be drained again, and quitSynchronous would wait for it forever.
+    boolean isDone = false;
+    mDrainingThread = Thread.currentThread();
+    try {
+      for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+        Runnable task;
+        synchronized (mLock) {
+          task = mTasks.poll();
+          if (task == null || mIsFinished) {
+            if (task != null) {
+              // Polled just as the queue was quit: tell it, or release its caller if it is a
+              // synchronous call.
+              BoundedTaskQueue.discard(task);
+            }
+            mTasks.clear();
+            mIsDrainScheduled = false;
+            isDone = true;
+            return;
+          }
+        }
+        try {
+          task.run();
+        } catch (Exception e) {
+          mExceptionHandler.handleException(e);
+        }
+      }
+      // Budget exhausted with work possibly left: yield the executor Thread and continue later.
+      synchronized (mLock) {
+        if (mTasks.isEmpty() || mIsFinished) {
+          mTasks.clear();
+          mIsDrainScheduled = false;
+          isDone = true;
+          return;
+        }
+      }
+      isDone = true;
+    } finally {
+      mDrainingThread = null;
+      if (!isDone) {
+        synchronized (mLock) {
+          mIsDrainScheduled = false;
+          mLock.notifyAll();
+        }
+      }
+    }
+    scheduleDrain();
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueueCoalesced(Object key, Runnable runnable) {
+    mCoalescingTaskQueue.runOnQueueCoalesced(key, runnable);
+  }
+
+  @DoNotStrip
+  @Override
+  public long getCoalescedTaskCount() {
+    return mCoalescingTaskQueue.getCoalescedCount();
+  }
+
+  @DoNotStrip
+  @Override
+  public <T> Future<T> callOnQueue(final Callable<T> callable) {
+    final SimpleSettableFuture<T> future = new SimpleSettableFuture<>();
+    runOnQueue(
+        new DiscardableRunnable() {
+          @Override
+          public void run() {
+            try {
+              future.set(callable.call());
+            } catch (Exception e) {
+              future.setException(e);
+            }
+          }
+
+          @Override
+          public void onDiscarded() {
+            future.setException(
+                new IllegalStateException("Queue '" + getName() + "' dropped the call"));
+          }
+        });
+    return future;
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueueSync(Runnable runnable) {
+    if (isOnThread()) {
+      runnable.run();
+      return;
+    }
+    SyncCallSlot slot = SyncCallSlot.forCurrentThread();
+    slot.arm(runnable);
+    postSyncCall(slot);
+    slot.await();
+  }
+
+  @DoNotStrip
+  @Override
+  public <T> T callOnQueueSync(Callable<T> callable) {
+    if (isOnThread()) {
+      try {
+        return callable.call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+    SyncCallSlot slot = SyncCallSlot.forCurrentThread();
+    slot.arm(callable);
+    postSyncCall(slot);
+    return (T) slot.await();
+  }
+
+  private void postSyncCall(SyncCallSlot slot) {
+    boolean shouldSchedule;
+    synchronized (mLock) {
+      if (mIsFinished) {
+        slot.arm((Runnable) null);
+        throw new IllegalStateException(
+            "Tried to run a synchronous call on already finished queue: '" + getName() + "'");
+      }
+      // Bypasses the capacity: the caller is blocked until the slot runs.
+      mTasks.offerSyncCall(slot);
+      shouldSchedule = !mIsDrainScheduled;
+      mIsDrainScheduled = true;
+    }
+    if (shouldSchedule) {
+      try {
+        scheduleDrain();
+      } catch (RuntimeException e) {
+        synchronized (mLock) {
+          if (!mTasks.remove(slot)) {
+            // Already run or abandoned: the caller gets its outcome from the slot.
+            return;
+          }
+        }
+        slot.arm((Runnable) null);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * @return whether the current Thread is the executor Thread currently draining this queue.
+   */
+  @DoNotStrip
+  @Override
+  public boolean isOnThread() {
+    return mDrainingThread == Thread.currentThread();
+  }
+
+  /**
+   * Asserts {@link #isOnThread()}, throwing a {@link AssertionException} (NOT an
+   * {@link AssertionError}) if the assertion fails.
+   */
+  @DoNotStrip
+  @Override
+  public void assertIsOnThread() {
+    SoftAssertions.assertCondition(isOnThread(), mAssertionErrorMessage);
+  }
+
+  /**
+   * Asserts {@link #isOnThread()}, throwing a {@link AssertionException} (NOT an
+   * {@link AssertionError}) if the assertion fails.
+   */
+  @DoNotStrip
+  @Override
+  public void assertIsOnThread(String message) {
+    SoftAssertions.assertCondition(
+      isOnThread(),
+      new StringBuilder().append(mAssertionErrorMessage).append(" ").append(message).toString());
+  }
+
+  /**
+   * Stops accepting Runnables and discards the ones not yet started. The executor itself is left
+   * running since it may be shared. If called from another Thread, also waits for the Runnable
+   * currently being executed to finish.
+   */
+  @DoNotStrip
+  @Override
+  public void quitSynchronous() {
+    synchronized (mLock) {
+      // Set under the lock, so that a drain never polls a task after the queue was cleared.
+      mIsFinished = true;
+      mTasks.finish();
+    }
+    if (isOnThread()) {
+      return;
+    }
+    synchronized (mLock) {
+      while (mIsDrainScheduled) {
+        try {
+          mLock.wait();
+        } catch (InterruptedException e) {
+          throw new RuntimeException("Got interrupted waiting to quit queue " + mName);
+        }
+      }
+    }
+  }
+
+  @DoNotStrip
+  @Override
+  public MessageQueueThreadPerfStats getPerfStats() {
+    return mPerfStats;
+  }
+
+  @DoNotStrip
+  @Override
+  public void resetPerfStats() {
+    mPerfStats.wallTime = -1;
+    mPerfStats.cpuTime = -1;
+    runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        mPerfStats.wallTime = uptimeMillis();
+      }
+    });
+  }
+
+  public String getName() {
+    return mName;
+  }
+}
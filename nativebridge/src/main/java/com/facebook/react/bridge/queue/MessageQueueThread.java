@@ -19,18 +19,66 @@ import java.util.concurrent.Future;
 public interface MessageQueueThread {
   /**
    * Runs the given Runnable on this Thread. It will be submitted to the end of the event queue even
-   * if it is being submitted from the same queue Thread.
+   * if it is being submitted from the same queue Thread. A {@link DiscardableRunnable} is told if
+   * the queue drops it instead.
    */
   @DoNotStrip
   void runOnQueue(Runnable runnable);
 
+  /**
+   * Runs the given Runnable on this Thread, coalescing it with any task submitted under an equal
+   * key that has not started running yet: the pending task is updated in place to run this Runnable
+   * instead of the one it was submitted with, and no new task is enqueued. Use this for work where
+   * only the latest submission matters (flushing state, emitting the latest value, ...).
+   */
+  @DoNotStrip
+  void runOnQueueCoalesced(Object key, Runnable runnable);
+
+  /**
+   * @return the number of {@link #runOnQueueCoalesced} submissions that were folded into an already
+   * pending task, i.e. how many executions coalescing has saved.
+   */
+  @DoNotStrip
+  long getCoalescedTaskCount();
+
+  /**
+   * @return the number of Runnables that were refused, either because this queue was bounded and
+   * full (see {@link QueueOverflowPolicy}) or because it had already been quit.
+   */
+  @DoNotStrip
+  long getRejectedTaskCount();
+
+  /**
+   * @return the number of already pending Runnables that a bounded queue discarded to make room
+   * for newer ones (see {@link QueueOverflowPolicy}).
+   */
+  @DoNotStrip
+  long getDroppedTaskCount();
+
   /**
    * Runs the given Callable on this Thread. It will be submitted to the end of the event queue even
-   * if it is being submitted from the same queue Thread.
+   * if it is being submitted from the same queue Thread. If the queue drops it, the Future fails
+   * with an IllegalStateException.
    */
   @DoNotStrip
   <T> Future<T> callOnQueue(final Callable<T> callable);
 
+  /**
+   * Runs the given Runnable on this Thread and blocks until it has completed. If called from this
+   * queue Thread, the Runnable is executed inline instead of being posted to the queue.
+   */
+  @DoNotStrip
+  void runOnQueueSync(Runnable runnable);
+
+  /**
+   * Runs the given Callable on this Thread and blocks until its result is available. If called from
+   * this queue Thread, the Callable is executed inline instead of being posted to the queue. An
+   * Exception thrown by the Callable is re-thrown to the caller, wrapped in a RuntimeException if
+   * it is checked.
+   */
+  @DoNotStrip
+  <T> T callOnQueueSync(Callable<T> callable);
+
   /**
    * @return whether the current Thread is also the Thread associated with this MessageQueueThread.
    */
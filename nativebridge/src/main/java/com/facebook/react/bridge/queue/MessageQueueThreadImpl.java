@@ -20,8 +20,15 @@ import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.common.ReactConstants;
 import com.facebook.react.common.futures.SimpleSettableFuture;
 
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 /**
  * Encapsulates a Thread that has a {@link Looper} running on it that can accept Runnables.
@@ -33,31 +40,84 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
   private final Looper mLooper;
   private final MessageQueueThreadHandler mHandler;
   private final String mAssertionErrorMessage;
+  private final CoalescingTaskQueue mCoalescingTaskQueue;
   private MessageQueueThreadPerfStats mPerfStats;
   private volatile boolean mIsFinished = false;
+  private final AtomicLong mRejectedTaskCount = new AtomicLong();
+
+  // Only set for bounded queues. Each pending task then has exactly one mRunNextTask message posted
+  // to the Handler, so the Looper's own queue is bounded too.
+  private final Object mPendingTasksLock = new Object();
+  @GuardedBy("mPendingTasksLock")
+  private final @Nullable BoundedTaskQueue mPendingTasks;
+  private final Runnable mRunNextTask = new Runnable() {
+    @Override
+    public void run() {
+      Runnable task;
+      synchronized (mPendingTasksLock) {
+        task = mPendingTasks.poll();
+      }
+      if (task != null) {
+        task.run();
+      }
+    }
+  };
+  // Synchronous calls that haven't started yet, whatever the capacity, so that quitSynchronous can
+  // release their callers. Each one has exactly one mRunNextSyncCall message posted to the Handler.
+  @GuardedBy("mPendingTasksLock")
+  private final ArrayDeque<SyncCallSlot> mPendingSyncCalls = new ArrayDeque<>();
+  private final Runnable mRunNextSyncCall = new Runnable() {
+    @Override
+    public void run() {
+      SyncCallSlot slot;
+      synchronized (mPendingTasksLock) {
+        slot = mPendingSyncCalls.pollFirst();
+      }
+      if (slot != null) {
+        slot.run();
+      }
+    }
+  };
+  // Unbounded queues post straight to the Looper, which silently drops the messages still pending
+  // when it quits. The DiscardableRunnables among them are tracked so that they can be told.
+  @GuardedBy("mPendingTasksLock")
+  private final Set<TrackedRunnable> mPendingDiscardables = new HashSet<>();
 
   private MessageQueueThreadImpl(
       String name,
       Looper looper,
       QueueThreadExceptionHandler exceptionHandler) {
-        this(name, looper, exceptionHandler, null);
+        this(
+            name,
+            looper,
+            exceptionHandler,
+            null,
+            MessageQueueThreadSpec.UNBOUNDED_CAPACITY,
+            QueueOverflowPolicy.BLOCK);
   }
 
   private MessageQueueThreadImpl(
       String name,
       Looper looper,
       QueueThreadExceptionHandler exceptionHandler,
-      MessageQueueThreadPerfStats stats) {
+      MessageQueueThreadPerfStats stats,
+      int capacity,
+      QueueOverflowPolicy overflowPolicy) {
     mName = name;
     mLooper = looper;
     mHandler = new MessageQueueThreadHandler(looper, exceptionHandler);
     mPerfStats = stats;
     mAssertionErrorMessage = "Expected to be called from the '" + getName() + "' thread!";
+    mCoalescingTaskQueue = new CoalescingTaskQueue(this);
+    mPendingTasks = capacity == MessageQueueThreadSpec.UNBOUNDED_CAPACITY
+        ? null
+        : new BoundedTaskQueue(mPendingTasksLock, capacity, overflowPolicy);
   }
 
   /**
    * Runs the given Runnable on this Thread. It will be submitted to the end of the event queue even
-   * if it is being submitted from the same queue Thread.
+   * if it is being submitted from the same queue Thread. Runnables submitted after
+   * {@link #quitSynchronous()} are dropped, see {@link DiscardableRunnable}.
    */
   @DoNotStrip
   @Override
@@ -67,8 +127,85 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
           ReactConstants.TAG,
           "Tried to enqueue runnable on already finished thread: '" + getName() +
               "... dropping Runnable.");
+      reject(runnable);
+      return;
+    }
+    if (mPendingTasks == null) {
+      if (runnable instanceof DiscardableRunnable) {
+        postTracked((DiscardableRunnable) runnable);
+      } else if (!mHandler.post(runnable)) {
+        reject(runnable);
+      }
+      return;
     }
-    mHandler.post(runnable);
+    BoundedTaskQueue.OfferResult result;
+    synchronized (mPendingTasksLock) {
+      result = mPendingTasks.offer(runnable, !isOnThread());
+    }
+    switch (result) {
+      case ENQUEUED:
+        mHandler.post(mRunNextTask);
+        break;
+      case REJECTED:
+        reject(runnable);
+        break;
+      case REPLACED:
+        // The evicted task's message will run this one instead.
+        break;
+      case COALESCED:
+        break;
+    }
+  }
+
+  private void postTracked(DiscardableRunnable runnable) {
+    TrackedRunnable tracked = new TrackedRunnable(runnable);
+    synchronized (mPendingTasksLock) {
+      if (mIsFinished) {
+        reject(runnable);
+        return;
+      }
+      mPendingDiscardables.add(tracked);
+    }
+    if (!mHandler.post(tracked)) {
+      synchronized (mPendingTasksLock) {
+        // Otherwise quitSynchronous already discarded it.
+        if (mPendingDiscardables.remove(tracked)) {
+          reject(runnable);
+        }
+      }
+    }
+  }
+
+  private void reject(Runnable runnable) {
+    mRejectedTaskCount.incrementAndGet();
+    BoundedTaskQueue.discard(runnable);
+  }
+
+  @DoNotStrip
+  @Override
+  public long getRejectedTaskCount() {
+    return mRejectedTaskCount.get();
+  }
+
+  @DoNotStrip
+  @Override
+  public long getDroppedTaskCount() {
+    if (mPendingTasks == null) {
+      return 0;
+    }
+    return mPendingTasks.getDroppedCount();
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueueCoalesced(Object key, Runnable runnable) {
+    mCoalescingTaskQueue.runOnQueueCoalesced(key, runnable);
+  }
+
+  @DoNotStrip
+  @Override
+  public long getCoalescedTaskCount() {
+    return mCoalescingTaskQueue.getCoalescedCount();
   }
 
   @DoNotStrip
@@ -76,7 +213,7 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
   public <T> Future<T> callOnQueue(final Callable<T> callable) {
     final SimpleSettableFuture<T> future = new SimpleSettableFuture<>();
     runOnQueue(
-        new Runnable() {
+        new DiscardableRunnable() {
           @Override
           public void run() {
             try {
@@ -85,10 +222,71 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
               future.setException(e);
             }
           }
+
+          @Override
+          public void onDiscarded() {
+            future.setException(
+                new IllegalStateException("Queue '" + getName() + "' dropped the call"));
+          }
         });
     return future;
   }
 
+  @DoNotStrip
+  @Override
+  public void runOnQueueSync(Runnable runnable) {
+    if (isOnThread()) {
+      runnable.run();
+      return;
+    }
+    SyncCallSlot slot = SyncCallSlot.forCurrentThread();
+    slot.arm(runnable);
+    postSyncCall(slot);
+    slot.await();
+  }
+
+  @DoNotStrip
+  @Override
+  public <T> T callOnQueueSync(Callable<T> callable) {
+    if (isOnThread()) {
+      try {
+        return callable.call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+    SyncCallSlot slot = SyncCallSlot.forCurrentThread();
+    slot.arm(callable);
+    postSyncCall(slot);
+    return (T) slot.await();
+  }
+
+  private void postSyncCall(SyncCallSlot slot) {
+    // Unlike runOnQueue, a dropped sync call would block the caller forever, so fail fast instead.
+    synchronized (mPendingTasksLock) {
+      if (mIsFinished) {
+        throwFinished(slot);
+      }
+      mPendingSyncCalls.addLast(slot);
+    }
+    if (!mHandler.post(mRunNextSyncCall)) {
+      synchronized (mPendingTasksLock) {
+        // Otherwise quitSynchronous already abandoned it, and the caller gets its exception.
+        if (mPendingSyncCalls.remove(slot)) {
+          throwFinished(slot);
+        }
+      }
+    }
+  }
+
+  private void throwFinished(SyncCallSlot slot) {
+    slot.arm((Runnable) null);
+    throw new IllegalStateException(
+        "Tried to run a synchronous call on already finished thread: '" + getName() + "'");
+  }
+
   /**
    * @return whether the current Thread is also the Thread associated with this MessageQueueThread.
    */
@@ -121,13 +319,28 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
   }
 
   /**
-   * Quits this queue's Looper. If that Looper was running on a different Thread than the current
-   * Thread, also waits for the last message being processed to finish and the Thread to die.
+   * Quits this queue's Looper, after failing the synchronous calls that haven't started yet. If
+   * that Looper was running on a different Thread than the current Thread, also waits for the last
+   * message being processed to finish and the Thread to die.
    */
   @DoNotStrip
   @Override
   public void quitSynchronous() {
-    mIsFinished = true;
+    synchronized (mPendingTasksLock) {
+      mIsFinished = true;
+      if (mPendingTasks != null) {
+        mPendingTasks.finish();
+      }
+      // Their messages would be dropped by the Looper, leaving the callers blocked.
+      for (SyncCallSlot slot : mPendingSyncCalls) {
+        slot.abandon();
+      }
+      mPendingSyncCalls.clear();
+      for (TrackedRunnable tracked : mPendingDiscardables) {
+        tracked.mRunnable.onDiscarded();
+      }
+      mPendingDiscardables.clear();
+    }
     mLooper.quit();
     if (mLooper.getThread() != Thread.currentThread()) {
       try {
@@ -171,6 +384,29 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
     return mName;
   }
 
+  /**
+   * Posted in place of a {@link DiscardableRunnable} on an unbounded queue, see
+   * {@link #mPendingDiscardables}.
+   */
+  private class TrackedRunnable implements Runnable {
+    private final DiscardableRunnable mRunnable;
+
+    TrackedRunnable(DiscardableRunnable runnable) {
+      mRunnable = runnable;
+    }
+
+    @Override
+    public void run() {
+      synchronized (mPendingTasksLock) {
+        if (!mPendingDiscardables.remove(this)) {
+          // Already discarded by quitSynchronous.
+          return;
+        }
+      }
+      mRunnable.run();
+    }
+  }
+
   public static MessageQueueThreadImpl create(
       MessageQueueThreadSpec spec,
       QueueThreadExceptionHandler exceptionHandler) {
@@ -178,7 +414,16 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
       case MAIN_UI:
         return createForMainThread(spec.getName(), exceptionHandler);
       case NEW_BACKGROUND:
-        return startNewBackgroundThread(spec.getName(), spec.getStackSize(), exceptionHandler);
+        return startNewBackgroundThread(
+            spec.getName(),
+            spec.getStackSize(),
+            spec.getCapacity(),
+            spec.getOverflowPolicy(),
+            exceptionHandler);
+      case SHARED_POOL:
+      case EXECUTOR:
+        throw new IllegalArgumentException(
+            "Executor backed queues are not Looper based, use ReactQueueConfigurationImpl.create");
       default:
         throw new RuntimeException("Unknown thread type: " + spec.getThreadType());
     }
@@ -216,6 +461,8 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
   private static MessageQueueThreadImpl startNewBackgroundThread(
       final String name,
       long stackSize,
+      int capacity,
+      QueueOverflowPolicy overflowPolicy,
       QueueThreadExceptionHandler exceptionHandler) {
     final SimpleSettableFuture<Pair<Looper, MessageQueueThreadPerfStats>> dataFuture = new SimpleSettableFuture<>();
     long startTimeMillis;
@@ -236,6 +483,7 @@ public class MessageQueueThreadImpl implements MessageQueueThread {
     bgThread.start();
 
     Pair<Looper, MessageQueueThreadPerfStats> pair = dataFuture.getOrThrow();
-    return new MessageQueueThreadImpl(name, pair.first, exceptionHandler, pair.second);
+    return new MessageQueueThreadImpl(
+        name, pair.first, exceptionHandler, pair.second, capacity, overflowPolicy);
   }
 }
@@ -7,6 +7,12 @@
 
 package com.facebook.react.bridge.queue;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
 /**
  * Spec for creating a MessageQueueThread.
  */
@@ -18,9 +24,13 @@ public class MessageQueueThreadSpec {
   // The Thread constructor interprets zero the same as not specifying a stack size
   public static final long DEFAULT_STACK_SIZE_BYTES = 0;
 
+  public static final int UNBOUNDED_CAPACITY = Integer.MAX_VALUE;
+
   protected static enum ThreadType {
     MAIN_UI,
     NEW_BACKGROUND,
+    SHARED_POOL,
+    EXECUTOR,
   }
 
   public static MessageQueueThreadSpec newUIBackgroundTreadSpec(String name) {
@@ -35,6 +45,38 @@ public class MessageQueueThreadSpec {
     return new MessageQueueThreadSpec(ThreadType.NEW_BACKGROUND, name, stackSize);
   }
 
+  /**
+   * Spec for a logical serial queue multiplexed onto the process-wide {@link SharedQueueThreadPool}
+   * instead of a dedicated Thread. Stack size is a property of the pool.
+   */
+  public static MessageQueueThreadSpec newSharedPoolThreadSpec(String name) {
+    return new MessageQueueThreadSpec(ThreadType.SHARED_POOL, name);
+  }
+
+  /**
+   * Spec for a logical serial queue running on the given {@link Executor}, with no dependency on
+   * {@link android.os.Looper}. Meant for hosts without an Android main Looper (JVM test rigs,
+   * desktop tooling); the executor is not shut down when the queue quits.
+   */
+  public static MessageQueueThreadSpec newExecutorThreadSpec(String name, Executor executor) {
+    return new MessageQueueThreadSpec(ThreadType.EXECUTOR, name, DEFAULT_STACK_SIZE_BYTES, executor);
+  }
+
+  /**
+   * Same as {@link #newExecutorThreadSpec} on a process-wide virtual-thread-per-task executor, so
+   * that many simulated bridge instances can be hosted without a platform Thread per queue.
+   * Requires a JDK 21+ runtime.
+   *
+   * @throws UnsupportedOperationException if the runtime has no virtual threads
+   */
+  public static MessageQueueThreadSpec newVirtualThreadSpec(String name) {
+    Executor executor = VirtualThreadExecutorHolder.EXECUTOR;
+    if (executor == null) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+    }
+    return newExecutorThreadSpec(name, executor);
+  }
+
   public static MessageQueueThreadSpec mainThreadSpec() {
     return MAIN_UI_SPEC;
   }
@@ -42,15 +84,54 @@ public class MessageQueueThreadSpec {
   private final ThreadType mThreadType;
   private final String mName;
   private final long mStackSize;
+  private final @Nullable Executor mExecutor;
+  private final int mCapacity;
+  private final QueueOverflowPolicy mOverflowPolicy;
 
   private MessageQueueThreadSpec(ThreadType threadType, String name) {
     this(threadType, name, DEFAULT_STACK_SIZE_BYTES);
   }
 
   private MessageQueueThreadSpec(ThreadType threadType, String name, long stackSize) {
+    this(threadType, name, stackSize, null);
+  }
+
+  private MessageQueueThreadSpec(
+      ThreadType threadType,
+      String name,
+      long stackSize,
+      @Nullable Executor executor) {
+    this(threadType, name, stackSize, executor, UNBOUNDED_CAPACITY, QueueOverflowPolicy.BLOCK);
+  }
+
+  private MessageQueueThreadSpec(
+      ThreadType threadType,
+      String name,
+      long stackSize,
+      @Nullable Executor executor,
+      int capacity,
+      QueueOverflowPolicy overflowPolicy) {
     mThreadType = threadType;
     mName = name;
     mStackSize = stackSize;
+    mExecutor = executor;
+    mCapacity = capacity;
+    mOverflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * @return a copy of this spec whose queue holds at most {@code capacity} pending Runnables,
+   * applying {@code overflowPolicy} to submissions beyond that. The main UI queue cannot be bounded.
+   */
+  public MessageQueueThreadSpec withCapacity(int capacity, QueueOverflowPolicy overflowPolicy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+    }
+    if (mThreadType == ThreadType.MAIN_UI) {
+      throw new IllegalArgumentException("The main UI queue cannot be bounded");
+    }
+    return new MessageQueueThreadSpec(
+        mThreadType, mName, mStackSize, mExecutor, capacity, overflowPolicy);
   }
 
   public ThreadType getThreadType() {
@@ -64,4 +145,33 @@ public class MessageQueueThreadSpec {
   public long getStackSize() {
     return mStackSize;
   }
+
+  /**
+   * @return the executor of an {@link ThreadType#EXECUTOR} spec, null for other thread types.
+   */
+  public @Nullable Executor getExecutor() {
+    return mExecutor;
+  }
+
+  public int getCapacity() {
+    return mCapacity;
+  }
+
+  public QueueOverflowPolicy getOverflowPolicy() {
+    return mOverflowPolicy;
+  }
+
+  private static class VirtualThreadExecutorHolder {
+    // Looked up reflectively since the Android SDK we compile against predates virtual threads.
+    static final @Nullable Executor EXECUTOR = createVirtualThreadExecutor();
+
+    private static @Nullable Executor createVirtualThreadExecutor() {
+      try {
+        Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        return (Executor) factory.invoke(null);
+      } catch (Exception e) {
+        return null;
+      }
+    }
+  }
 }
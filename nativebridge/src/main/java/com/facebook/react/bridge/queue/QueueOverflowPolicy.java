@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+/**
+ * What a bounded {@link MessageQueueThread} does with a Runnable submitted while it already holds
+ * as many pending Runnables as its capacity allows.
+ */
+public enum QueueOverflowPolicy {
+  /**
+   * The submitting thread waits until a pending Runnable has started. Submissions made from the
+   * queue thread itself are accepted over capacity instead, since waiting would never end.
+   */
+  BLOCK,
+  /** The oldest pending Runnable is discarded to make room for the new one. */
+  DROP_OLDEST,
+  /** The new Runnable is discarded. */
+  DROP_NEWEST,
+  /**
+   * The new Runnable is discarded if an equal Runnable is already pending, since that one will do
+   * the same work; otherwise the oldest pending Runnable is discarded as with {@link #DROP_OLDEST}.
+   */
+  COALESCE,
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import com.facebook.common.logging.FLog;
+import com.facebook.proguard.annotations.DoNotStrip;
+import com.facebook.react.common.ReactConstants;
+import com.facebook.react.common.futures.SimpleSettableFuture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A per-instance view of a queue thread that outlives the instance, see
+ * {@link ReactQueueConfigurationImpl#createReusable}.
+ *
+ * <p>{@link #quitSynchronous()} doesn't stop the underlying thread: it stops accepting new
+ * Runnables and waits for the ones already posted to run, so that the thread can be handed to the
+ * next instance through a new view.
+ */
+@DoNotStrip
+/* package */ final class QuiescingMessageQueueThread implements MessageQueueThread {
+
+  private static final Runnable NOOP = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private final MessageQueueThread mDelegate;
+  private final AtomicLong mRejectedTaskCount = new AtomicLong();
+  private volatile boolean mIsQuiesced = false;
+
+  /* package */ QuiescingMessageQueueThread(MessageQueueThread delegate) {
+    mDelegate = delegate;
+  }
+
+  /* package */ MessageQueueThread getDelegate() {
+    return mDelegate;
+  }
+
+  /* package */ boolean isQuiesced() {
+    return mIsQuiesced;
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueue(Runnable runnable) {
+    if (mIsQuiesced) {
+      FLog.w(ReactConstants.TAG, "Tried to enqueue runnable on quiesced queue... dropping Runnable.");
+      mRejectedTaskCount.incrementAndGet();
+      BoundedTaskQueue.discard(runnable);
+      return;
+    }
+    mDelegate.runOnQueue(runnable);
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueueCoalesced(Object key, Runnable runnable) {
+    if (mIsQuiesced) {
+      mRejectedTaskCount.incrementAndGet();
+      return;
+    }
+    mDelegate.runOnQueueCoalesced(key, runnable);
+  }
+
+  @DoNotStrip
+  @Override
+  public long getCoalescedTaskCount() {
+    return mDelegate.getCoalescedTaskCount();
+  }
+
+  @DoNotStrip
+  @Override
+  public long getRejectedTaskCount() {
+    return mDelegate.getRejectedTaskCount() + mRejectedTaskCount.get();
+  }
+
+  @DoNotStrip
+  @Override
+  public long getDroppedTaskCount() {
+    return mDelegate.getDroppedTaskCount();
+  }
+
+  @DoNotStrip
+  @Override
+  public <T> Future<T> callOnQueue(Callable<T> callable) {
+    if (mIsQuiesced) {
+      mRejectedTaskCount.incrementAndGet();
+      SimpleSettableFuture<T> future = new SimpleSettableFuture<>();
+      future.setException(newQuiescedException());
+      return future;
+    }
+    return mDelegate.callOnQueue(callable);
+  }
+
+  @DoNotStrip
+  @Override
+  public void runOnQueueSync(Runnable runnable) {
+    if (mIsQuiesced) {
+      mRejectedTaskCount.incrementAndGet();
+      throw newQuiescedException();
+    }
+    mDelegate.runOnQueueSync(runnable);
+  }
+
+  @DoNotStrip
+  @Override
+  public <T> T callOnQueueSync(Callable<T> callable) {
+    if (mIsQuiesced) {
+      mRejectedTaskCount.incrementAndGet();
+      throw newQuiescedException();
+    }
+    return mDelegate.callOnQueueSync(callable);
+  }
+
+  private static IllegalStateException newQuiescedException() {
+    return new IllegalStateException("Tried to call a quiesced queue");
+  }
+
+  @DoNotStrip
+  @Override
+  public boolean isOnThread() {
+    return mDelegate.isOnThread();
+  }
+
+  @DoNotStrip
+  @Override
+  public void assertIsOnThread() {
+    mDelegate.assertIsOnThread();
+  }
+
+  @DoNotStrip
+  @Override
+  public void assertIsOnThread(String message) {
+    mDelegate.assertIsOnThread(message);
+  }
+
+  /**
+   * Stops accepting Runnables and calls: Runnables are dropped, and calls fail with an
+   * IllegalStateException. Unless called from the queue thread itself, blocks until the Runnables
+   * posted so far have run. The underlying thread keeps running.
+   */
+  @DoNotStrip
+  @Override
+  public void quitSynchronous() {
+    mIsQuiesced = true;
+    if (!mDelegate.isOnThread()) {
+      mDelegate.runOnQueueSync(NOOP);
+    }
+  }
+
+  @DoNotStrip
+  @Override
+  public MessageQueueThreadPerfStats getPerfStats() {
+    return mDelegate.getPerfStats();
+  }
+
+  @DoNotStrip
+  @Override
+  public void resetPerfStats() {
+    mDelegate.resetPerfStats();
+  }
+}
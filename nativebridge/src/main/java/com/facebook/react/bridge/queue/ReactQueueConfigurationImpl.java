@@ -9,23 +9,30 @@ package com.facebook.react.bridge.queue;
 
 import android.os.Looper;
 
+import com.facebook.infer.annotation.Assertions;
 import com.facebook.react.common.MapBuilder;
 
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 public class ReactQueueConfigurationImpl implements ReactQueueConfiguration {
 
-  private final MessageQueueThreadImpl mUIQueueThread;
-  private final MessageQueueThreadImpl mNativeModulesQueueThread;
-  private final MessageQueueThreadImpl mJSQueueThread;
+  private final MessageQueueThread mUIQueueThread;
+  private final MessageQueueThread mNativeModulesQueueThread;
+  private final MessageQueueThread mJSQueueThread;
+  // Only set for configurations created by createReusable or reuse.
+  private final @Nullable ForwardingExceptionHandler mReusableExceptionHandler;
 
   private ReactQueueConfigurationImpl(
-      MessageQueueThreadImpl uiQueueThread,
-      MessageQueueThreadImpl nativeModulesQueueThread,
-      MessageQueueThreadImpl jsQueueThread) {
+      MessageQueueThread uiQueueThread,
+      MessageQueueThread nativeModulesQueueThread,
+      MessageQueueThread jsQueueThread,
+      @Nullable ForwardingExceptionHandler reusableExceptionHandler) {
     mUIQueueThread = uiQueueThread;
     mNativeModulesQueueThread = nativeModulesQueueThread;
     mJSQueueThread = jsQueueThread;
+    mReusableExceptionHandler = reusableExceptionHandler;
   }
 
   @Override
@@ -48,39 +55,146 @@ public class ReactQueueConfigurationImpl implements ReactQueueConfiguration {
    * is destroyed so that we shut down the proper queue threads.
    */
   public void destroy() {
-    if (mNativeModulesQueueThread.getLooper() != Looper.getMainLooper()) {
-      mNativeModulesQueueThread.quitSynchronous();
+    MessageQueueThread nativeModulesQueueThread = unwrap(mNativeModulesQueueThread);
+    if (!isMainLooperQueue(nativeModulesQueueThread)) {
+      nativeModulesQueueThread.quitSynchronous();
+    }
+    MessageQueueThread jsQueueThread = unwrap(mJSQueueThread);
+    if (!isMainLooperQueue(jsQueueThread)) {
+      jsQueueThread.quitSynchronous();
     }
-    if (mJSQueueThread.getLooper() != Looper.getMainLooper()) {
-      mJSQueueThread.quitSynchronous();
+  }
+
+  /**
+   * @return whether the queue threads can be handed to another instance through {@link #reuse}.
+   */
+  public boolean isReusable() {
+    return mReusableExceptionHandler != null;
+  }
+
+  /**
+   * Alternative to {@link #destroy()} for reusable configurations: stops accepting Runnables on
+   * the per-instance queues and waits for the Runnables already posted to run, but keeps the queue
+   * threads alive for {@link #reuse}. Must not be called from one of these queue threads.
+   */
+  public void quiesce() {
+    Assertions.assertCondition(isReusable(), "Only reusable queue configurations can be quiesced");
+    mNativeModulesQueueThread.quitSynchronous();
+    mJSQueueThread.quitSynchronous();
+  }
+
+  /**
+   * Creates a configuration for a new instance running on the same queue threads as this one.
+   * Exceptions thrown on the queue threads are reported to {@code exceptionHandler} from now on.
+   * This configuration should have been quiesced.
+   */
+  public ReactQueueConfigurationImpl reuse(QueueThreadExceptionHandler exceptionHandler) {
+    ForwardingExceptionHandler forwardingExceptionHandler =
+        Assertions.assertNotNull(
+            mReusableExceptionHandler,
+            "Only reusable queue configurations can be reused");
+    forwardingExceptionHandler.setDelegate(exceptionHandler);
+    return new ReactQueueConfigurationImpl(
+        mUIQueueThread,
+        new QuiescingMessageQueueThread(unwrap(mNativeModulesQueueThread)),
+        new QuiescingMessageQueueThread(unwrap(mJSQueueThread)),
+        forwardingExceptionHandler);
+  }
+
+  private static MessageQueueThread unwrap(MessageQueueThread queueThread) {
+    return queueThread instanceof QuiescingMessageQueueThread
+        ? ((QuiescingMessageQueueThread) queueThread).getDelegate()
+        : queueThread;
+  }
+
+  private static boolean isMainLooperQueue(MessageQueueThread queueThread) {
+    return queueThread instanceof MessageQueueThreadImpl
+        && ((MessageQueueThreadImpl) queueThread).getLooper() == Looper.getMainLooper();
+  }
+
+  private static MessageQueueThread createQueueThread(
+      MessageQueueThreadSpec spec,
+      QueueThreadExceptionHandler exceptionHandler) {
+    switch (spec.getThreadType()) {
+      case SHARED_POOL:
+        return ExecutorMessageQueueThread.create(
+            spec.getName(),
+            SharedQueueThreadPool.getExecutor(),
+            exceptionHandler,
+            spec.getCapacity(),
+            spec.getOverflowPolicy());
+      case EXECUTOR:
+        return ExecutorMessageQueueThread.create(
+            spec.getName(),
+            Assertions.assertNotNull(spec.getExecutor()),
+            exceptionHandler,
+            spec.getCapacity(),
+            spec.getOverflowPolicy());
+      default:
+        return MessageQueueThreadImpl.create(spec, exceptionHandler);
     }
   }
 
   public static ReactQueueConfigurationImpl create(
       ReactQueueConfigurationSpec spec,
       QueueThreadExceptionHandler exceptionHandler) {
-    Map<MessageQueueThreadSpec, MessageQueueThreadImpl> specsToThreads = MapBuilder.newHashMap();
+    Map<MessageQueueThreadSpec, MessageQueueThread> specsToThreads = MapBuilder.newHashMap();
 
-    MessageQueueThreadSpec uiThreadSpec = MessageQueueThreadSpec.mainThreadSpec();
-    MessageQueueThreadImpl uiThread =
-      MessageQueueThreadImpl.create(uiThreadSpec, exceptionHandler);
+    MessageQueueThreadSpec uiThreadSpec = spec.getUIQueueThreadSpec();
+    MessageQueueThread uiThread = createQueueThread(uiThreadSpec, exceptionHandler);
     specsToThreads.put(uiThreadSpec, uiThread);
 
-    MessageQueueThreadImpl jsThread = specsToThreads.get(spec.getJSQueueThreadSpec());
+    MessageQueueThread jsThread = specsToThreads.get(spec.getJSQueueThreadSpec());
     if (jsThread == null) {
-      jsThread = MessageQueueThreadImpl.create(spec.getJSQueueThreadSpec(), exceptionHandler);
+      jsThread = createQueueThread(spec.getJSQueueThreadSpec(), exceptionHandler);
     }
 
-    MessageQueueThreadImpl nativeModulesThread =
+    MessageQueueThread nativeModulesThread =
         specsToThreads.get(spec.getNativeModulesQueueThreadSpec());
     if (nativeModulesThread == null) {
       nativeModulesThread =
-          MessageQueueThreadImpl.create(spec.getNativeModulesQueueThreadSpec(), exceptionHandler);
+          createQueueThread(spec.getNativeModulesQueueThreadSpec(), exceptionHandler);
     }
 
     return new ReactQueueConfigurationImpl(
       uiThread,
       nativeModulesThread,
-      jsThread);
+      jsThread,
+      null);
+  }
+
+  /**
+   * Like {@link #create}, but the queue threads aren't quit when the instance is torn down through
+   * {@link #quiesce()}, and can be handed to the next instance with {@link #reuse}.
+   */
+  public static ReactQueueConfigurationImpl createReusable(
+      ReactQueueConfigurationSpec spec,
+      QueueThreadExceptionHandler exceptionHandler) {
+    ForwardingExceptionHandler forwardingExceptionHandler =
+        new ForwardingExceptionHandler(exceptionHandler);
+    ReactQueueConfigurationImpl queueConfiguration = create(spec, forwardingExceptionHandler);
+    return new ReactQueueConfigurationImpl(
+        queueConfiguration.mUIQueueThread,
+        new QuiescingMessageQueueThread(queueConfiguration.mNativeModulesQueueThread),
+        new QuiescingMessageQueueThread(queueConfiguration.mJSQueueThread),
+        forwardingExceptionHandler);
+  }
+
+  private static class ForwardingExceptionHandler implements QueueThreadExceptionHandler {
+
+    private volatile QueueThreadExceptionHandler mDelegate;
+
+    private ForwardingExceptionHandler(QueueThreadExceptionHandler delegate) {
+      mDelegate = delegate;
+    }
+
+    private void setDelegate(QueueThreadExceptionHandler delegate) {
+      mDelegate = delegate;
+    }
+
+    @Override
+    public void handleException(Exception e) {
+      mDelegate.handleException(e);
+    }
   }
 }
@@ -11,6 +11,8 @@ import android.os.Build;
 
 import com.facebook.infer.annotation.Assertions;
 
+import java.util.concurrent.Executor;
+
 import javax.annotation.Nullable;
 
 /**
@@ -21,18 +23,25 @@ import javax.annotation.Nullable;
  */
 public class ReactQueueConfigurationSpec {
 
-  private static final long LEGACY_STACK_SIZE_BYTES = 2000000;
+  /* package */ static final long LEGACY_STACK_SIZE_BYTES = 2000000;
 
+  private final MessageQueueThreadSpec mUIQueueThreadSpec;
   private final MessageQueueThreadSpec mNativeModulesQueueThreadSpec;
   private final MessageQueueThreadSpec mJSQueueThreadSpec;
 
   private ReactQueueConfigurationSpec(
+    MessageQueueThreadSpec uiQueueThreadSpec,
     MessageQueueThreadSpec nativeModulesQueueThreadSpec,
     MessageQueueThreadSpec jsQueueThreadSpec) {
+    mUIQueueThreadSpec = uiQueueThreadSpec;
     mNativeModulesQueueThreadSpec = nativeModulesQueueThreadSpec;
     mJSQueueThreadSpec = jsQueueThreadSpec;
   }
 
+  public MessageQueueThreadSpec getUIQueueThreadSpec() {
+    return mUIQueueThreadSpec;
+  }
+
   public MessageQueueThreadSpec getNativeModulesQueueThreadSpec() {
     return mNativeModulesQueueThreadSpec;
   }
@@ -55,13 +64,51 @@ public class ReactQueueConfigurationSpec {
         .build();
   }
 
+  /**
+   * Like {@link #createDefault()}, but the JS and native modules queues are logical queues on the
+   * process-wide {@link SharedQueueThreadPool} rather than two new Threads per instance. Useful when
+   * several React instances live in the same process.
+   */
+  public static ReactQueueConfigurationSpec createSharedPool() {
+    return builder()
+        .setJSQueueThreadSpec(MessageQueueThreadSpec.newSharedPoolThreadSpec("js"))
+        .setNativeModulesQueueThreadSpec(
+            MessageQueueThreadSpec.newSharedPoolThreadSpec("native_modules"))
+        .build();
+  }
+
+  /**
+   * All three queues, including the UI one, as logical serial queues on the given executor. For
+   * hosts without an Android main Looper, such as JVM test rigs; combine with a virtual thread
+   * executor to host a large number of simulated instances.
+   */
+  public static ReactQueueConfigurationSpec createForExecutor(Executor executor) {
+    return builder()
+        .setUIQueueThreadSpec(MessageQueueThreadSpec.newExecutorThreadSpec("main_ui", executor))
+        .setJSQueueThreadSpec(MessageQueueThreadSpec.newExecutorThreadSpec("js", executor))
+        .setNativeModulesQueueThreadSpec(
+            MessageQueueThreadSpec.newExecutorThreadSpec("native_modules", executor))
+        .build();
+  }
+
   public static class Builder {
 
+    private @Nullable
+    MessageQueueThreadSpec mUIQueueSpec;
     private @Nullable
     MessageQueueThreadSpec mNativeModulesQueueSpec;
     private @Nullable
     MessageQueueThreadSpec mJSQueueSpec;
 
+    /**
+     * Optional, defaults to {@link MessageQueueThreadSpec#mainThreadSpec()}.
+     */
+    public Builder setUIQueueThreadSpec(MessageQueueThreadSpec spec) {
+      Assertions.assertCondition(mUIQueueSpec == null, "Setting UI queue spec multiple times!");
+      mUIQueueSpec = spec;
+      return this;
+    }
+
     public Builder setNativeModulesQueueThreadSpec(MessageQueueThreadSpec spec) {
       Assertions.assertCondition(
         mNativeModulesQueueSpec == null,
@@ -78,6 +125,7 @@ public class ReactQueueConfigurationSpec {
 
     public ReactQueueConfigurationSpec build() {
       return new ReactQueueConfigurationSpec(
+        mUIQueueSpec != null ? mUIQueueSpec : MessageQueueThreadSpec.mainThreadSpec(),
         Assertions.assertNotNull(mNativeModulesQueueSpec),
         Assertions.assertNotNull(mJSQueueSpec));
     }
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import android.os.Build;
+import android.os.Process;
+
+import com.facebook.infer.annotation.Assertions;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Process-wide, bounded pool of Threads backing every queue created from a
+ * {@link MessageQueueThreadSpec#newSharedPoolThreadSpec} spec. Each such queue is a logical serial
+ * {@link ExecutorMessageQueueThread}, so the number of Threads stays constant no matter how many
+ * React instances are alive.
+ *
+ * <p>Queues sharing the pool must not block waiting on each other (e.g. through
+ * {@link MessageQueueThread#runOnQueueSync}) from inside a queue Runnable when more queues can be
+ * waiting than there are Threads in the pool.
+ */
+public class SharedQueueThreadPool {
+
+  private static final int DEFAULT_POOL_SIZE =
+      Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  private static int sPoolSize = DEFAULT_POOL_SIZE;
+  private static @Nullable Executor sExecutor;
+
+  /**
+   * Sets the number of Threads of the shared pool. Must be called before the first shared queue is
+   * created.
+   */
+  public static synchronized void setPoolSize(int poolSize) {
+    Assertions.assertCondition(sExecutor == null, "Shared queue pool has already been started");
+    Assertions.assertCondition(poolSize > 0, "Shared queue pool needs at least one thread");
+    sPoolSize = poolSize;
+  }
+
+  public static synchronized int getPoolSize() {
+    return sPoolSize;
+  }
+
+  /* package */ static synchronized Executor getExecutor() {
+    if (sExecutor == null) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          sPoolSize,
+          sPoolSize,
+          0,
+          TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new SharedQueueThreadFactory());
+      executor.prestartAllCoreThreads();
+      sExecutor = executor;
+    }
+    return sExecutor;
+  }
+
+  private static class SharedQueueThreadFactory implements ThreadFactory {
+    private final AtomicInteger mThreadCount = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      // Same stack size as the dedicated native_modules thread would get on older devices.
+      long stackSize = Build.VERSION.SDK_INT < 21
+          ? ReactQueueConfigurationSpec.LEGACY_STACK_SIZE_BYTES
+          : MessageQueueThreadSpec.DEFAULT_STACK_SIZE_BYTES;
+      Thread thread = new Thread(
+          null,
+          new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+              runnable.run();
+            }
+          },
+          "mqt_shared_" + mThreadCount.getAndIncrement(),
+          stackSize);
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
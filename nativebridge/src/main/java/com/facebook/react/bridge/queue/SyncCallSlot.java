@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reusable handoff used by {@link MessageQueueThread#callOnQueueSync} when the caller is not on the
+ * queue thread. Each caller thread owns exactly one slot: a thread can only be blocked in one
+ * synchronous call at a time, so the slot (which is also the Runnable that gets posted) can be
+ * reused for every call without allocating a future, latch or wrapper Runnable.
+ */
+/* package */ final class SyncCallSlot implements Runnable {
+
+  private static final ThreadLocal<SyncCallSlot> sSlots =
+      new ThreadLocal<SyncCallSlot>() {
+        @Override
+        protected SyncCallSlot initialValue() {
+          return new SyncCallSlot(Thread.currentThread());
+        }
+      };
+
+  private final Thread mOwner;
+  private @Nullable Callable<?> mCallable;
+  private @Nullable Runnable mRunnable;
+  private @Nullable Object mResult;
+  private @Nullable Throwable mThrowable;
+  private volatile boolean mDone;
+
+  private SyncCallSlot(Thread owner) {
+    mOwner = owner;
+  }
+
+  /**
+   * @return the slot owned by the calling thread, ready to be armed with a new call.
+   */
+  static SyncCallSlot forCurrentThread() {
+    return sSlots.get();
+  }
+
+  void arm(Callable<?> callable) {
+    mCallable = callable;
+    mRunnable = null;
+    mResult = null;
+    mThrowable = null;
+    mDone = false;
+  }
+
+  void arm(Runnable runnable) {
+    mCallable = null;
+    mRunnable = runnable;
+    mResult = null;
+    mThrowable = null;
+    mDone = false;
+  }
+
+  @Override
+  public void run() {
+    try {
+      if (mCallable != null) {
+        mResult = mCallable.call();
+      } else {
+        mRunnable.run();
+      }
+    } catch (Throwable t) {
+      // Errors are handed to the owner as well, or it would be left parked forever.
+      mThrowable = t;
+    } finally {
+      // Publishes mResult/mThrowable to the owner through the volatile write.
+      mDone = true;
+      LockSupport.unpark(mOwner);
+    }
+  }
+
+  /**
+   * Completes the call without running it, e.g. because its queue was quit while it was pending.
+   * The owner thread gets an IllegalStateException from {@link #await}.
+   */
+  void abandon() {
+    mThrowable = new IllegalStateException("Synchronous call was dropped by a quitting queue");
+    mDone = true;
+    LockSupport.unpark(mOwner);
+  }
+
+  /**
+   * Blocks the owner thread until {@link #run} has completed, then returns its result. Anything
+   * thrown by the call is re-thrown as is if it is a RuntimeException or an Error, checked
+   * exceptions are wrapped in a RuntimeException.
+   */
+  @Nullable
+  Object await() {
+    boolean interrupted = false;
+    while (!mDone) {
+      LockSupport.park(this);
+      if (Thread.interrupted()) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      mOwner.interrupt();
+    }
+    Object result = mResult;
+    Throwable throwable = mThrowable;
+    mCallable = null;
+    mRunnable = null;
+    mResult = null;
+    mThrowable = null;
+    if (throwable instanceof RuntimeException) {
+      throw (RuntimeException) throwable;
+    }
+    if (throwable instanceof Error) {
+      throw (Error) throwable;
+    }
+    if (throwable != null) {
+      throw new RuntimeException(throwable);
+    }
+    return result;
+  }
+}
@@ -26,4 +26,16 @@ Object.defineProperty(global, '__fbBatchedBridge', {
     value: BatchedBridge,
 });
 
+// Entry point for calls batched on the native side (see JSCallBatcher.java): runs each
+// [module, method, args] triple in order, as if it had been called on its own.
+BatchedBridge.registerCallableModule('JSCallBatch', {
+    callFunctions(calls: Array<[string, string, any[]]>) {
+        calls.forEach(call => {
+            BatchedBridge.__guard(() => {
+                BatchedBridge.__callFunction(call[0], call[1], call[2]);
+            });
+        });
+    },
+});
+
 module.exports = BatchedBridge;
@@ -94,7 +94,7 @@
 /***/ (function(module, exports, __webpack_require__) {
 
 "use strict";
-eval("/* WEBPACK VAR INJECTION */(function(global) {/**\n * Copyright (c) Facebook, Inc. and its affiliates.\n *\n * This source code is licensed under the MIT license found in the\n * LICENSE file in the root directory of this source tree.\n *\n * @format\n * \n */\n\n\nvar MessageQueue = __webpack_require__(/*! ./MessageQueue */ \"./BatchedBridge/MessageQueue.js\");\n\nvar BatchedBridge = new MessageQueue(); // Wire up the batched bridge on the global object so that we can call into it.\n// Ideally, this would be the inverse relationship. I.e. the native environment\n// provides this global directly with its script embedded. Then this module\n// would export it. A possible fix would be to trim the dependencies in\n// MessageQueue to its minimal features and embed that in the native runtime.\n\nObject.defineProperty(global, '__fbBatchedBridge', {\n  configurable: true,\n  value: BatchedBridge\n});\nglobal.__DEV__ = true;\nmodule.exports = BatchedBridge;\n/* WEBPACK VAR INJECTION */}.call(this, __webpack_require__(/*! ./../node_modules/webpack/buildin/global.js */ \"./node_modules/webpack/buildin/global.js\")))\n\n//# sourceURL=webpack:///./BatchedBridge/BatchedBridge.js?");
+eval("/* WEBPACK VAR INJECTION */(function(global) {/**\n * Copyright (c) Facebook, Inc. and its affiliates.\n *\n * This source code is licensed under the MIT license found in the\n * LICENSE file in the root directory of this source tree.\n *\n * @format\n * \n */\n\n\nvar MessageQueue = __webpack_require__(/*! ./MessageQueue */ \"./BatchedBridge/MessageQueue.js\");\n\nvar BatchedBridge = new MessageQueue(); // Wire up the batched bridge on the global object so that we can call into it.\n// Ideally, this would be the inverse relationship. I.e. the native environment\n// provides this global directly with its script embedded. Then this module\n// would export it. A possible fix would be to trim the dependencies in\n// MessageQueue to its minimal features and embed that in the native runtime.\n\nObject.defineProperty(global, '__fbBatchedBridge', {\n  configurable: true,\n  value: BatchedBridge\n});\nglobal.__DEV__ = true;\n// Entry point for calls batched on the native side (see JSCallBatcher.java): runs each\n// [module, method, args] triple in order, as if it had been called on its own.\n\nBatchedBridge.registerCallableModule('JSCallBatch', {\n  callFunctions: function callFunctions(calls) {\n    calls.forEach(function (call) {\n      BatchedBridge.__guard(function () {\n        BatchedBridge.__callFunction(call[0], call[1], call[2]);\n      });\n    });\n  }\n});\nmodule.exports = BatchedBridge;\n/* WEBPACK VAR INJECTION */}.call(this, __webpack_require__(/*! ./../node_modules/webpack/buildin/global.js */ \"./node_modules/webpack/buildin/global.js\")))\n\n//# sourceURL=webpack:///./BatchedBridge/BatchedBridge.js?");
 
 /***/ }),
 
@@ -0,0 +1,126 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import android.content.ContextWrapper;
+
+import com.facebook.react.bridge.BaseJavaModule;
+import com.facebook.react.bridge.ModuleSpec;
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.Test;
+
+public class NativeModuleRegistryBuilderTest {
+
+  private static final int MODULE_COUNT = 50;
+
+  /**
+   * Package of {@link #MODULE_COUNT} modules needing eager init, the ones at {@code failingIndexes}
+   * failing to be created. The first of them fails last, so that failures aren't reported in the
+   * order they happen.
+   */
+  private static class FailingModulesPackage extends LazyReactPackage {
+    private final List<Integer> mFailingIndexes;
+    private final Map<Integer, RuntimeException> mFailures = new HashMap<>();
+
+    private FailingModulesPackage(Integer... failingIndexes) {
+      mFailingIndexes = Arrays.asList(failingIndexes);
+      for (Integer index : failingIndexes) {
+        mFailures.put(index, new IllegalStateException("Failed to create " + getModuleName(index)));
+      }
+    }
+
+    @Override
+    protected List<ModuleSpec> getNativeModules(ReactApplicationContext reactContext) {
+      List<ModuleSpec> moduleSpecs = new ArrayList<>();
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        final String name = getModuleName(i);
+        final RuntimeException failure = mFailures.get(i);
+        final boolean failsLast = failure != null && i == mFailingIndexes.get(0);
+        moduleSpecs.add(ModuleSpec.nativeModuleSpec(name, new Provider<NativeModule>() {
+          @Override
+          public NativeModule get() {
+            if (failsLast) {
+              sleep(50);
+            }
+            if (failure != null) {
+              throw failure;
+            }
+            return new BaseJavaModule() {
+              @Override
+              public String getName() {
+                return name;
+              }
+            };
+          }
+        }));
+      }
+      return moduleSpecs;
+    }
+
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+      return new ReactModuleInfoProvider() {
+        @Override
+        public Map<String, ReactModuleInfo> getReactModuleInfos() {
+          Map<String, ReactModuleInfo> reactModuleInfos = new HashMap<>();
+          for (int i = 0; i < MODULE_COUNT; i++) {
+            String name = getModuleName(i);
+            reactModuleInfos.put(
+                name,
+                new ReactModuleInfo(name, name, false, true, false, false, false));
+          }
+          return reactModuleInfos;
+        }
+      };
+    }
+  }
+
+  private static String getModuleName(int index) {
+    return "EagerModule" + index;
+  }
+
+  private static void sleep(long durationMs) {
+    try {
+      Thread.sleep(durationMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void parallelCreationThrowsTheFirstFailureInRegistrationOrder() {
+    ReactApplicationContext reactContext = new ReactApplicationContext(new ContextWrapper(null));
+    FailingModulesPackage reactPackage = new FailingModulesPackage(3, 17, 42);
+    NativeModuleRegistryBuilder builder =
+        new NativeModuleRegistryBuilder(reactContext, null, true);
+    builder.processPackage(reactPackage);
+    try {
+      builder.build();
+      fail("Expected the modules to fail to be created");
+    } catch (IllegalStateException e) {
+      assertSame(reactPackage.mFailures.get(3), e);
+      assertArrayEquals(
+          new Throwable[] {reactPackage.mFailures.get(17), reactPackage.mFailures.get(42)},
+          e.getSuppressed());
+    }
+  }
+}
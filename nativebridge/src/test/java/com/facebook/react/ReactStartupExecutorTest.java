@@ -0,0 +1,93 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react;
+
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_JS_EXECUTOR_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_JS_EXECUTOR_START;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ReactStartupExecutorTest {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  @Test
+  public void awaitRethrowsWhatTheStageThrew() {
+    final IllegalStateException failure = new IllegalStateException("No JS executor");
+    Future<Object> stage = ReactStartupExecutor.submit(
+        true,
+        "createJSExecutor",
+        CREATE_JS_EXECUTOR_START,
+        CREATE_JS_EXECUTOR_END,
+        new Callable<Object>() {
+          @Override
+          public Object call() {
+            throw failure;
+          }
+        });
+    try {
+      ReactStartupExecutor.await(stage);
+      fail("Expected the stage failure");
+    } catch (IllegalStateException e) {
+      assertSame(failure, e);
+    }
+  }
+
+  /**
+   * A parallel stage must overlap with what the calling thread does next, i.e. processing the
+   * packages: it waits for the calling thread, which would never get there if submit ran it.
+   */
+  @Test
+  public void parallelStageOverlapsWithTheCallingThread() throws InterruptedException {
+    final CountDownLatch stageStarted = new CountDownLatch(1);
+    final CountDownLatch packagesStarted = new CountDownLatch(1);
+    final Thread callingThread = Thread.currentThread();
+    Future<Thread> jsExecutorStage = ReactStartupExecutor.submit(
+        true,
+        "createJSExecutor",
+        CREATE_JS_EXECUTOR_START,
+        CREATE_JS_EXECUTOR_END,
+        new Callable<Thread>() {
+          @Override
+          public Thread call() throws InterruptedException {
+            stageStarted.countDown();
+            assertTrue(packagesStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            return Thread.currentThread();
+          }
+        });
+
+    packagesStarted.countDown();
+    assertTrue(stageStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertNotSame(callingThread, ReactStartupExecutor.await(jsExecutorStage));
+  }
+
+  @Test
+  public void serialStageRunsOnTheCallingThread() {
+    Future<Thread> jsExecutorStage = ReactStartupExecutor.submit(
+        false,
+        "createJSExecutor",
+        CREATE_JS_EXECUTOR_START,
+        CREATE_JS_EXECUTOR_END,
+        new Callable<Thread>() {
+          @Override
+          public Thread call() {
+            return Thread.currentThread();
+          }
+        });
+
+    assertTrue(jsExecutorStage.isDone());
+    assertSame(Thread.currentThread(), ReactStartupExecutor.await(jsExecutorStage));
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.queue.ExecutorMessageQueueThread;
+import com.facebook.react.bridge.queue.MessageQueueThread;
+import com.facebook.react.bridge.queue.QueueOverflowPolicy;
+import com.facebook.react.bridge.queue.QueueThreadExceptionHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BridgeIdleStateNotifierTest {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  private static final QueueThreadExceptionHandler RETHROW = new QueueThreadExceptionHandler() {
+    @Override
+    public void handleException(Exception e) {
+      throw new RuntimeException(e);
+    }
+  };
+
+  private static final Runnable NOOP = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+  private final List<String> mTransitions = Collections.synchronizedList(new ArrayList<String>());
+
+  @After
+  public void tearDown() {
+    mExecutor.shutdownNow();
+  }
+
+  @Test
+  public void droppedNotificationDoesNotSilenceLaterTransitions() throws Exception {
+    MessageQueueThread queue = ExecutorMessageQueueThread.create(
+        "test",
+        mExecutor,
+        RETHROW,
+        1,
+        QueueOverflowPolicy.DROP_NEWEST);
+    BridgeIdleStateNotifier notifier = new BridgeIdleStateNotifier(
+        Collections.<NotThreadSafeBridgeIdleDebugListener>singletonList(new RecordingListener()),
+        queue,
+        0,
+        "pending_js_calls");
+
+    CountDownLatch release = block(queue);
+    queue.runOnQueue(NOOP);
+    // The queue is full, so the notification of this transition is dropped.
+    notifier.incrementPendingCalls();
+    release.countDown();
+    queue.runOnQueueSync(NOOP);
+    assertEquals(0, mTransitions.size());
+
+    notifier.decrementPendingCalls();
+    queue.runOnQueueSync(NOOP);
+    notifier.incrementPendingCalls();
+    queue.runOnQueueSync(NOOP);
+    assertEquals(Collections.singletonList("busy"), mTransitions);
+  }
+
+  private static CountDownLatch block(MessageQueueThread queue) throws InterruptedException {
+    final CountDownLatch busy = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    queue.runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        busy.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    assertTrue(busy.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    return release;
+  }
+
+  private class RecordingListener implements NotThreadSafeBridgeIdleDebugListener {
+    @Override
+    public void onTransitionToBridgeIdle() {
+      mTransitions.add("idle");
+    }
+
+    @Override
+    public void onTransitionToBridgeBusy() {
+      mTransitions.add("busy");
+    }
+
+    @Override
+    public void onBridgeDestroyed() {
+      mTransitions.add("destroyed");
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class JavaScriptModuleRegistryTest {
+
+  public interface TestModule extends JavaScriptModule {
+    void zeroArguments();
+  }
+
+  /**
+   * Records the JS calls made on a {@link CatalystInstance} proxy. Only callFunction is expected.
+   */
+  private static class RecordingInstanceHandler implements InvocationHandler {
+    private int mCallCount;
+    private String mModule;
+    private String mMethod;
+    private Object mArguments;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      if (!method.getName().equals("callFunction")) {
+        throw new UnsupportedOperationException(method.getName());
+      }
+      mCallCount++;
+      mModule = (String) args[0];
+      mMethod = (String) args[1];
+      mArguments = args[2];
+      return null;
+    }
+  }
+
+  private RecordingInstanceHandler mHandler;
+  private CatalystInstance mInstance;
+  private JavaScriptModuleRegistry mRegistry;
+
+  @Before
+  public void setUp() {
+    mHandler = new RecordingInstanceHandler();
+    mInstance = (CatalystInstance) Proxy.newProxyInstance(
+        CatalystInstance.class.getClassLoader(),
+        new Class[]{CatalystInstance.class},
+        mHandler);
+    mRegistry = new JavaScriptModuleRegistry();
+  }
+
+  @Test
+  public void zeroArgumentCallsSendNoArguments() {
+    mRegistry.getJavaScriptModule(mInstance, TestModule.class).zeroArguments();
+
+    assertEquals(1, mHandler.mCallCount);
+    assertEquals("TestModule", mHandler.mModule);
+    assertEquals("zeroArguments", mHandler.mMethod);
+    assertNull(mHandler.mArguments);
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.facebook.react.module.model.ReactModuleInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Provider;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ModuleHolderTest {
+
+  private static final int THREADS = 8;
+  private static final int ITERATIONS = 2000;
+  private static final int CALLS_PER_THREAD = 100;
+  private static final String PROVIDER_FAILURE = "Provider failure";
+
+  private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREADS);
+
+  /**
+   * Counts the modules it creates and their initialize() calls, failing the first
+   * {@code failures} times it is asked for a module.
+   */
+  private static class CountingProvider implements Provider<NativeModule> {
+    private final AtomicInteger mFailures;
+    private final AtomicInteger mCreatedCount = new AtomicInteger();
+    private final AtomicInteger mInitializedCount = new AtomicInteger();
+
+    CountingProvider(int failures) {
+      mFailures = new AtomicInteger(failures);
+    }
+
+    @Override
+    public NativeModule get() {
+      if (mFailures.getAndDecrement() > 0) {
+        throw new RuntimeException(PROVIDER_FAILURE);
+      }
+      mCreatedCount.incrementAndGet();
+      return new BaseJavaModule() {
+        @Override
+        public String getName() {
+          return "TestModule";
+        }
+
+        @Override
+        public void initialize() {
+          mInitializedCount.incrementAndGet();
+        }
+      };
+    }
+  }
+
+  private static ModuleHolder createModuleHolder(Provider<NativeModule> provider) {
+    return new ModuleHolder(
+        new ReactModuleInfo("TestModule", "TestModule", false, false, false, false, false),
+        provider);
+  }
+
+  @After
+  public void tearDown() {
+    mExecutor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentGetModuleCreatesAndInitializesOnce() throws Exception {
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      // Every third module fails to be created once, and must be created on a later call.
+      CountingProvider provider = new CountingProvider(iteration % 3 == 0 ? 1 : 0);
+      ModuleHolder moduleHolder = createModuleHolder(provider);
+
+      Set<NativeModule> modules = getModuleConcurrently(moduleHolder);
+
+      assertEquals("Iteration " + iteration, 1, provider.mCreatedCount.get());
+      assertEquals("Iteration " + iteration, 1, modules.size());
+      assertEquals("Iteration " + iteration, 1, provider.mInitializedCount.get());
+      assertSame(modules.iterator().next(), moduleHolder.getModule());
+    }
+  }
+
+  @Test
+  public void failingProviderIsRetriedOnTheNextCall() {
+    CountingProvider provider = new CountingProvider(2);
+    ModuleHolder moduleHolder = createModuleHolder(provider);
+    moduleHolder.markInitializable();
+    for (int i = 0; i < 2; i++) {
+      try {
+        moduleHolder.getModule();
+        fail("Expected the provider failure");
+      } catch (RuntimeException e) {
+        assertEquals(PROVIDER_FAILURE, e.getMessage());
+      }
+    }
+
+    NativeModule module = moduleHolder.getModule();
+    assertSame(module, moduleHolder.getModule());
+    assertEquals(1, provider.mCreatedCount.get());
+    assertEquals(1, provider.mInitializedCount.get());
+  }
+
+  /**
+   * Calls getModule from {@link #THREADS} threads at once, one of them also marking the module
+   * initializable so that initialization races creation.
+   *
+   * @return the distinct modules returned.
+   */
+  private Set<NativeModule> getModuleConcurrently(final ModuleHolder moduleHolder)
+      throws Exception {
+    final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+    final Set<NativeModule> modules =
+        Collections.newSetFromMap(new ConcurrentHashMap<NativeModule, Boolean>());
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < THREADS; thread++) {
+      final boolean marksInitializable = thread == 0;
+      futures.add(mExecutor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          barrier.await();
+          if (marksInitializable) {
+            moduleHolder.markInitializable();
+          }
+          for (int i = 0; i < CALLS_PER_THREAD; i++) {
+            try {
+              modules.add(moduleHolder.getModule());
+            } catch (RuntimeException e) {
+              if (!PROVIDER_FAILURE.equals(e.getMessage())) {
+                throw e;
+              }
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    return modules;
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.content.ContextWrapper;
+
+import com.facebook.react.module.model.ReactModuleInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class NativeModuleRegistryTest {
+
+  private ReactApplicationContext mReactContext;
+
+  @Before
+  public void setUp() {
+    mReactContext = new ReactApplicationContext(new ContextWrapper(null));
+  }
+
+  private static ModuleHolder createModuleHolder(final String name, boolean isCxxModule) {
+    return new ModuleHolder(
+        new ReactModuleInfo(name, name, false, false, false, isCxxModule, false),
+        new Provider<NativeModule>() {
+          @Override
+          public NativeModule get() {
+            return new BaseJavaModule() {
+              @Override
+              public String getName() {
+                return name;
+              }
+            };
+          }
+        });
+  }
+
+  private NativeModuleRegistry createRegistry(int size, String prefix) {
+    Map<String, ModuleHolder> modules = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      String name = prefix + i;
+      // One module in ten is a C++ one, to exercise both partitions of the table.
+      modules.put(name, createModuleHolder(name, i % 10 == 0));
+    }
+    return new NativeModuleRegistry(mReactContext, modules);
+  }
+
+  @Test
+  public void extensionOnlyReturnsTheNewModules() {
+    NativeModuleRegistry registry = createRegistry(100, "Module");
+    Map<String, ModuleHolder> modules = new LinkedHashMap<>();
+    modules.put("Module3", createModuleHolder("Module3", false));
+    modules.put("NewCxxModule", createModuleHolder("NewCxxModule", true));
+    modules.put("NewJavaModule", createModuleHolder("NewJavaModule", false));
+
+    NativeModuleRegistry addedModules =
+        registry.registerModules(new NativeModuleRegistry(mReactContext, modules));
+
+    assertEquals(2, addedModules.getModuleCount());
+    assertEquals(1, addedModules.getJavaModules(null).size());
+    assertEquals(1, addedModules.getCxxModules().size());
+    assertEquals(102, registry.getModuleCount());
+    // Existing ids never change, new modules are appended.
+    assertEquals(3, registry.getModuleId("Module3"));
+    assertEquals(100, registry.getModuleId("NewCxxModule"));
+    assertEquals(101, registry.getModuleId("NewJavaModule"));
+    assertNull(registry.registerModules(new NativeModuleRegistry(mReactContext, modules)));
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.CatalystInstanceImpl.PendingJSCall;
+import com.facebook.react.bridge.queue.QueueOverflowPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class PendingJSCallBufferTest {
+
+  private static final int PRODUCERS = 8;
+  private static final int CALLS_PER_PRODUCER = 20000;
+
+  /**
+   * Records dispatched calls, named after their producer (module) and sequence number (method).
+   */
+  private static class RecordingDispatcher implements PendingJSCallBuffer.Dispatcher {
+    private final List<PendingJSCall> mCalls = new ArrayList<>();
+
+    @Override
+    public synchronized void dispatch(PendingJSCall call) {
+      mCalls.add(call);
+    }
+
+    synchronized List<PendingJSCall> getCalls() {
+      return new ArrayList<>(mCalls);
+    }
+  }
+
+  private static PendingJSCall call(int producer, int sequence) {
+    return new PendingJSCall(String.valueOf(producer), String.valueOf(sequence), null);
+  }
+
+  @Test
+  public void concurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+    final RecordingDispatcher dispatcher = new RecordingDispatcher();
+    final PendingJSCallBuffer buffer =
+        new PendingJSCallBuffer(dispatcher, Integer.MAX_VALUE, QueueOverflowPolicy.DROP_OLDEST);
+
+    // The buffer is opened while the producers are running, so that calls are buffered, drained
+    // concurrently with new offers, and finally dispatched directly.
+    final CountDownLatch halfway = new CountDownLatch(PRODUCERS);
+    Thread opener = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          halfway.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        buffer.open();
+      }
+    });
+    opener.start();
+    runProducers(new Producer() {
+      @Override
+      public void produce(int producer) {
+        for (int i = 0; i < CALLS_PER_PRODUCER; i++) {
+          if (i == CALLS_PER_PRODUCER / 2) {
+            halfway.countDown();
+          }
+          PendingJSCall call = call(producer, i);
+          if (!buffer.offer(call)) {
+            // What CatalystInstanceImpl does once the buffer is drained.
+            dispatcher.dispatch(call);
+          }
+        }
+      }
+    });
+    opener.join();
+
+    assertTrue(buffer.isDrained());
+    assertEquals(0, buffer.getDroppedCount());
+    List<PendingJSCall> calls = dispatcher.getCalls();
+    assertEquals(PRODUCERS * CALLS_PER_PRODUCER, calls.size());
+    int[] next = new int[PRODUCERS];
+    for (PendingJSCall call : calls) {
+      int producer = Integer.parseInt(call.mModule);
+      assertEquals(
+          "Out of order call from producer " + producer,
+          next[producer]++,
+          Integer.parseInt(call.mMethod));
+    }
+  }
+
+  @Test
+  public void dropNewestKeepsTheFirstCalls() {
+    RecordingDispatcher dispatcher = new RecordingDispatcher();
+    PendingJSCallBuffer buffer =
+        new PendingJSCallBuffer(dispatcher, 10, QueueOverflowPolicy.DROP_NEWEST);
+    for (int i = 0; i < 25; i++) {
+      assertTrue(buffer.offer(call(0, i)));
+    }
+    assertTrue(dispatcher.getCalls().isEmpty());
+
+    assertTrue(buffer.open());
+    assertFalse(buffer.open());
+    assertSequence(dispatcher.getCalls(), 0, 10);
+    assertEquals(15, buffer.getDroppedCount());
+    assertTrue(buffer.isDrained());
+    assertFalse(buffer.offer(call(0, 25)));
+  }
+
+  @Test
+  public void dropOldestKeepsTheLastCalls() {
+    RecordingDispatcher dispatcher = new RecordingDispatcher();
+    PendingJSCallBuffer buffer =
+        new PendingJSCallBuffer(dispatcher, 10, QueueOverflowPolicy.DROP_OLDEST);
+    for (int i = 0; i < 25; i++) {
+      assertTrue(buffer.offer(call(0, i)));
+    }
+
+    buffer.open();
+    assertSequence(dispatcher.getCalls(), 15, 25);
+    assertEquals(15, buffer.getDroppedCount());
+  }
+
+  @Test
+  public void concurrentOverflowAccountsForEveryCall() throws Exception {
+    concurrentOverflowAccountsForEveryCall(QueueOverflowPolicy.DROP_NEWEST);
+    concurrentOverflowAccountsForEveryCall(QueueOverflowPolicy.DROP_OLDEST);
+  }
+
+  private static void concurrentOverflowAccountsForEveryCall(QueueOverflowPolicy overflowPolicy)
+      throws Exception {
+    final int capacity = 100;
+    RecordingDispatcher dispatcher = new RecordingDispatcher();
+    final PendingJSCallBuffer buffer =
+        new PendingJSCallBuffer(dispatcher, capacity, overflowPolicy);
+    runProducers(new Producer() {
+      @Override
+      public void produce(int producer) {
+        for (int i = 0; i < CALLS_PER_PRODUCER; i++) {
+          assertTrue(buffer.offer(call(producer, i)));
+        }
+      }
+    });
+
+    buffer.open();
+    List<PendingJSCall> calls = dispatcher.getCalls();
+    assertEquals(
+        PRODUCERS * CALLS_PER_PRODUCER,
+        calls.size() + buffer.getDroppedCount());
+    // The capacity is only approximate under contention, by at most one call per producer.
+    assertTrue(
+        overflowPolicy + " kept " + calls.size() + " calls",
+        calls.size() >= capacity - PRODUCERS && calls.size() <= capacity + PRODUCERS);
+    int[] last = new int[PRODUCERS];
+    Arrays.fill(last, -1);
+    for (PendingJSCall call : calls) {
+      int producer = Integer.parseInt(call.mModule);
+      int sequence = Integer.parseInt(call.mMethod);
+      assertTrue("Out of order call from producer " + producer, sequence > last[producer]);
+      last[producer] = sequence;
+    }
+  }
+
+  private static void assertSequence(List<PendingJSCall> calls, int from, int to) {
+    assertEquals(to - from, calls.size());
+    for (int i = 0; i < calls.size(); i++) {
+      assertEquals(String.valueOf(from + i), calls.get(i).mMethod);
+    }
+  }
+
+  private interface Producer {
+    void produce(int producer);
+  }
+
+  private static void runProducers(final Producer producer) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] threads = new Thread[PRODUCERS];
+    for (int i = 0; i < PRODUCERS; i++) {
+      final int id = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            producer.produce(id);
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+}
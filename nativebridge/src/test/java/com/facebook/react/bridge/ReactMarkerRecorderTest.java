@@ -0,0 +1,139 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ReactMarkerRecorderTest {
+
+  private static final ReactMarkerConstants[] MARKERS = ReactMarkerConstants.values();
+  private static final int WRITERS = 4;
+  private static final int MARKERS_PER_WRITER = 200000;
+  private static final String[] WRITER_TAGS = {"writer0", "writer1", "writer2", "writer3"};
+
+  @Test
+  public void capacityIsRoundedUpToAPowerOfTwo() {
+    assertEquals(1, new ReactMarkerRecorder(1).getCapacity());
+    assertEquals(8, new ReactMarkerRecorder(5).getCapacity());
+    assertEquals(8, new ReactMarkerRecorder(8).getCapacity());
+  }
+
+  @Test
+  public void snapshotReturnsEveryMarkerUntilTheBufferWrapsAround() {
+    ReactMarkerRecorder recorder = new ReactMarkerRecorder(4);
+    recorder.logMarker(MARKERS[0], "tag", 0);
+    recorder.logMarker(MARKERS[1], null, 1);
+
+    List<ReactMarkerRecorder.Record> records = recorder.snapshot();
+    assertEquals(2, records.size());
+    assertSame(MARKERS[0], records.get(0).getMarker());
+    assertEquals("tag", records.get(0).getTag());
+    assertEquals(Thread.currentThread().getId(), records.get(0).getThreadId());
+    assertSame(MARKERS[1], records.get(1).getMarker());
+    assertEquals(null, records.get(1).getTag());
+    assertTrue(records.get(0).getTimeNs() <= records.get(1).getTimeNs());
+  }
+
+  @Test
+  public void snapshotKeepsTheMostRecentMarkersOnceWrappedAround() {
+    ReactMarkerRecorder recorder = new ReactMarkerRecorder(4);
+    for (int i = 0; i < 10; i++) {
+      recorder.logMarker(MARKERS[i], "tag" + i, i);
+    }
+
+    List<ReactMarkerRecorder.Record> records = recorder.snapshot();
+    assertEquals(10, recorder.getRecordedCount());
+    assertEquals(4, records.size());
+    for (int i = 0; i < 4; i++) {
+      ReactMarkerRecorder.Record record = records.get(i);
+      assertEquals(6 + i, record.getInstanceKey());
+      assertSame(MARKERS[6 + i], record.getMarker());
+      assertEquals("tag" + (6 + i), record.getTag());
+    }
+  }
+
+  /**
+   * Writers lap the small buffer all the time, so slots are overwritten while they are being
+   * written and read. Every field of a record is derived from its writer and its count, so a
+   * record mixing the fields of two markers is caught.
+   */
+  @Test
+  public void snapshotsUnderConcurrentWritersOnlyHoldWholeRecords() throws Exception {
+    final ReactMarkerRecorder recorder = new ReactMarkerRecorder(8);
+    final CyclicBarrier start = new CyclicBarrier(WRITERS + 1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final long[] writerThreadIds = new long[WRITERS];
+    Thread[] writers = new Thread[WRITERS];
+    for (int w = 0; w < WRITERS; w++) {
+      final int writer = w;
+      writers[w] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < MARKERS_PER_WRITER; i++) {
+              recorder.logMarker(
+                  MARKERS[(writer + i) % MARKERS.length],
+                  WRITER_TAGS[writer],
+                  writer * MARKERS_PER_WRITER + i);
+            }
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          }
+        }
+      });
+      writerThreadIds[w] = writers[w].getId();
+      writers[w].start();
+    }
+    start.await();
+
+    int snapshotCount = 0;
+    while (recorder.getRecordedCount() < WRITERS * MARKERS_PER_WRITER) {
+      assertWholeRecords(recorder.snapshot(), recorder.getCapacity(), writerThreadIds);
+      snapshotCount++;
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+
+    List<ReactMarkerRecorder.Record> records = recorder.snapshot();
+    assertEquals(recorder.getCapacity(), records.size());
+    assertWholeRecords(records, recorder.getCapacity(), writerThreadIds);
+    assertTrue(snapshotCount > 0);
+  }
+
+  private static void assertWholeRecords(
+      List<ReactMarkerRecorder.Record> records,
+      int capacity,
+      long[] writerThreadIds) {
+    assertTrue(records.size() <= capacity);
+    int[] lastCounts = new int[WRITERS];
+    for (int w = 0; w < WRITERS; w++) {
+      lastCounts[w] = -1;
+    }
+    for (ReactMarkerRecorder.Record record : records) {
+      int writer = record.getInstanceKey() / MARKERS_PER_WRITER;
+      int count = record.getInstanceKey() % MARKERS_PER_WRITER;
+      assertSame(MARKERS[(writer + count) % MARKERS.length], record.getMarker());
+      assertSame(WRITER_TAGS[writer], record.getTag());
+      assertEquals(writerThreadIds[writer], record.getThreadId());
+      // Oldest first, so each writer's markers come in the order it logged them.
+      assertTrue(count > lastCounts[writer]);
+      lastCounts[writer] = count;
+    }
+  }
+}
@@ -0,0 +1,262 @@
+// Copyright (c) Facebook, Inc. and its affiliates.
+
+// This source code is licensed under the MIT license found in the
+// LICENSE file in the root directory of this source tree.
+
+package com.facebook.react.bridge;
+
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_JS_EXECUTOR_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_JS_EXECUTOR_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_MODULE_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_MODULE_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.CREATE_REACT_CONTEXT_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.GET_CONSTANTS_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.GET_CONSTANTS_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.INITIALIZE_MODULE_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.INITIALIZE_MODULE_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.PRE_SETUP_REACT_CONTEXT_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.PRE_SETUP_REACT_CONTEXT_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.PROCESS_PACKAGES_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.PROCESS_PACKAGES_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.SETUP_REACT_CONTEXT_END;
+import static com.facebook.react.bridge.ReactMarkerConstants.SETUP_REACT_CONTEXT_START;
+import static com.facebook.react.bridge.ReactMarkerConstants.VM_INIT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+public class StartupTraceReportTest {
+
+  private static final long CREATE_THREAD = 1;
+  private static final long POOL_THREAD = 2;
+  private static final long NATIVE_MODULES_THREAD = 3;
+
+  private final List<StartupTraceReport.Event> mEvents = new ArrayList<>();
+
+  @Test
+  public void spansNestOnTheirThread() {
+    log(PROCESS_PACKAGES_START, null, CREATE_THREAD, 0);
+    log(CREATE_JS_EXECUTOR_START, null, POOL_THREAD, 5);
+    log(CREATE_MODULE_START, "A", CREATE_THREAD, 10);
+    log(CREATE_MODULE_END, "A", CREATE_THREAD, 30);
+    log(CREATE_JS_EXECUTOR_END, null, POOL_THREAD, 50);
+    log(PROCESS_PACKAGES_END, null, CREATE_THREAD, 100);
+    StartupTraceReport report = build();
+
+    assertEquals(ms(100), report.getDurationNs());
+    List<StartupTraceReport.Span> rootSpans = report.getRootSpans();
+    assertEquals(2, rootSpans.size());
+    StartupTraceReport.Span processPackages = rootSpans.get(0);
+    assertSpan(processPackages, "PROCESS_PACKAGES", null, 0, 100);
+    // The executor overlaps but runs on another thread, so it isn't nested.
+    assertSpan(rootSpans.get(1), "CREATE_JS_EXECUTOR", null, 5, 45);
+    assertNull(rootSpans.get(1).getParent());
+    assertEquals(1, processPackages.getChildren().size());
+    StartupTraceReport.Span createModule = processPackages.getChildren().get(0);
+    assertSpan(createModule, "CREATE_MODULE", "A", 10, 20);
+    assertSame(processPackages, createModule.getParent());
+    assertEquals(0, report.getUnmatchedMarkerCount());
+  }
+
+  @Test
+  public void eventsAreSortedByTime() {
+    // Timestamps are taken before the listener's lock, so they may be recorded out of order.
+    log(PROCESS_PACKAGES_END, null, CREATE_THREAD, 100);
+    log(PROCESS_PACKAGES_START, null, CREATE_THREAD, 0);
+    StartupTraceReport report = build();
+
+    assertEquals(1, report.getSpans().size());
+    assertSpan(report.getSpans().get(0), "PROCESS_PACKAGES", null, 0, 100);
+    assertEquals(0, report.getUnmatchedMarkerCount());
+  }
+
+  @Test
+  public void criticalPathFollowsWaitsOnOtherThreads() {
+    log(PROCESS_PACKAGES_START, null, CREATE_THREAD, 0);
+    log(CREATE_JS_EXECUTOR_START, null, POOL_THREAD, 5);
+    log(PROCESS_PACKAGES_END, null, CREATE_THREAD, 40);
+    log(CREATE_JS_EXECUTOR_END, null, POOL_THREAD, 90);
+    // The create thread waited for the executor in between.
+    log(SETUP_REACT_CONTEXT_START, null, NATIVE_MODULES_THREAD, 100);
+    log(SETUP_REACT_CONTEXT_END, null, NATIVE_MODULES_THREAD, 120);
+    StartupTraceReport report = build();
+
+    List<StartupTraceReport.CriticalPathStep> criticalPath = report.getCriticalPath();
+    assertEquals(2, criticalPath.size());
+    assertStep(criticalPath.get(0), "CREATE_JS_EXECUTOR", 0);
+    assertStep(criticalPath.get(1), "SETUP_REACT_CONTEXT", 0);
+    assertEquals(ms(120 - 85 - 20), report.getCriticalPathUntrackedNs());
+  }
+
+  @Test
+  public void criticalPathDescendsIntoSpansAndTheirWaits() {
+    log(PRE_SETUP_REACT_CONTEXT_START, null, CREATE_THREAD, 0);
+    log(PROCESS_PACKAGES_START, null, CREATE_THREAD, 10);
+    log(CREATE_JS_EXECUTOR_START, null, POOL_THREAD, 10);
+    log(PROCESS_PACKAGES_END, null, CREATE_THREAD, 30);
+    log(CREATE_JS_EXECUTOR_END, null, POOL_THREAD, 80);
+    log(PRE_SETUP_REACT_CONTEXT_END, null, CREATE_THREAD, 100);
+    StartupTraceReport report = build();
+
+    List<StartupTraceReport.CriticalPathStep> criticalPath = report.getCriticalPath();
+    assertEquals(2, criticalPath.size());
+    assertStep(criticalPath.get(0), "PRE_SETUP_REACT_CONTEXT", 0);
+    // Its own child ended before the executor it then waited for started, so only the executor
+    // is on the path.
+    assertStep(criticalPath.get(1), "CREATE_JS_EXECUTOR", 1);
+    assertEquals(0, report.getCriticalPathUntrackedNs());
+  }
+
+  @Test
+  public void taggedMarkersPairByTag() {
+    log(GET_CONSTANTS_START, "A", NATIVE_MODULES_THREAD, 0);
+    log(CREATE_MODULE_START, "A", NATIVE_MODULES_THREAD, 10);
+    log(CREATE_MODULE_START, "B", NATIVE_MODULES_THREAD, 20);
+    // Ends A although B was started last.
+    log(CREATE_MODULE_END, "A", NATIVE_MODULES_THREAD, 40);
+    log(CREATE_MODULE_END, "B", NATIVE_MODULES_THREAD, 45);
+    log(GET_CONSTANTS_END, "A", NATIVE_MODULES_THREAD, 50);
+    log(INITIALIZE_MODULE_START, "B", NATIVE_MODULES_THREAD, 60);
+    log(INITIALIZE_MODULE_END, "B", NATIVE_MODULES_THREAD, 65);
+    StartupTraceReport report = build();
+
+    List<StartupTraceReport.Span> spans = report.getSpans();
+    assertEquals(4, spans.size());
+    assertSpan(spans.get(0), "CREATE_MODULE", "A", 10, 30);
+    assertSpan(spans.get(1), "CREATE_MODULE", "B", 20, 25);
+    assertEquals(0, report.getUnmatchedMarkerCount());
+
+    List<StartupTraceReport.ModuleCost> moduleCosts = report.getModuleCosts();
+    assertEquals(2, moduleCosts.size());
+    StartupTraceReport.ModuleCost a = moduleCosts.get(0);
+    assertEquals("A", a.getName());
+    assertEquals(ms(30), a.getCreateNs());
+    // Getting its constants created it, which is accounted for as creation.
+    assertEquals(ms(50 - 30), a.getConstantsNs());
+    StartupTraceReport.ModuleCost b = moduleCosts.get(1);
+    assertEquals("B", b.getName());
+    assertEquals(ms(25), b.getCreateNs());
+    assertEquals(ms(5), b.getInitializeNs());
+  }
+
+  @Test
+  public void untaggedEndPairsWithTheLatestStart() {
+    log(CREATE_MODULE_START, "A", NATIVE_MODULES_THREAD, 0);
+    log(CREATE_MODULE_START, "B", NATIVE_MODULES_THREAD, 10);
+    log(CREATE_MODULE_END, null, NATIVE_MODULES_THREAD, 20);
+    log(CREATE_MODULE_END, null, NATIVE_MODULES_THREAD, 30);
+    StartupTraceReport report = build();
+
+    List<StartupTraceReport.Span> spans = report.getSpans();
+    assertSpan(spans.get(0), "CREATE_MODULE", "B", 10, 10);
+    assertSpan(spans.get(1), "CREATE_MODULE", "A", 0, 30);
+  }
+
+  @Test
+  public void unmatchedMarkersAreCounted() {
+    log(CREATE_REACT_CONTEXT_START, "JSIExecutor", CREATE_THREAD, 0);
+    log(PROCESS_PACKAGES_END, null, CREATE_THREAD, 10);
+    log(CREATE_MODULE_START, "A", NATIVE_MODULES_THREAD, 20);
+    log(CREATE_MODULE_END, "B", NATIVE_MODULES_THREAD, 30);
+    log(VM_INIT, null, CREATE_THREAD, 40);
+    StartupTraceReport report = build();
+
+    // Both CREATE_MODULE markers, the lone START and the lone END.
+    assertEquals(4, report.getUnmatchedMarkerCount());
+    assertTrue(report.getSpans().isEmpty());
+    assertEquals(ms(40), report.getDurationNs());
+  }
+
+  @Test
+  public void startsAndEndsPairPerInstanceKey() {
+    log(PROCESS_PACKAGES_START, null, 1, CREATE_THREAD, 0);
+    log(PROCESS_PACKAGES_START, null, 2, POOL_THREAD, 10);
+    log(PROCESS_PACKAGES_END, null, 1, CREATE_THREAD, 20);
+    log(PROCESS_PACKAGES_END, null, 3, POOL_THREAD, 30);
+    StartupTraceReport report = build();
+
+    assertEquals(1, report.getSpans().size());
+    assertSpan(report.getSpans().get(0), "PROCESS_PACKAGES", null, 0, 20);
+    assertEquals(2, report.getUnmatchedMarkerCount());
+  }
+
+  @Test
+  public void chromeTraceHasSpansInstantsThreadsAndSummary() {
+    log(CREATE_MODULE_START, "A", NATIVE_MODULES_THREAD, 0);
+    log(VM_INIT, null, CREATE_THREAD, 5);
+    log(CREATE_MODULE_END, "A", NATIVE_MODULES_THREAD, 20);
+    String json = build().toChromeTraceJson();
+
+    assertContains(
+        json,
+        "{\"name\":\"CREATE_MODULE\",\"cat\":\"react_marker\",\"ph\":\"X\",\"ts\":0,"
+            + "\"dur\":20000,\"pid\":0,\"tid\":3,\"args\":{\"tag\":\"A\"}}");
+    assertContains(
+        json,
+        "{\"name\":\"VM_INIT\",\"cat\":\"react_marker\",\"ph\":\"i\",\"s\":\"t\",\"ts\":5000,"
+            + "\"pid\":0,\"tid\":1}");
+    assertContains(
+        json,
+        "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":3,"
+            + "\"args\":{\"name\":\"thread-3\"}}");
+    assertContains(json, "\"criticalPath\":[{\"depth\":0,\"name\":\"CREATE_MODULE\",\"tag\":\"A\"");
+    assertContains(json, "\"moduleCosts\":[{\"name\":\"A\",\"createMs\":20");
+    assertContains(json, "\"unmatchedMarkers\":0,\"droppedMarkers\":7}");
+  }
+
+  private StartupTraceReport build() {
+    return StartupTraceReport.build(mEvents, 7);
+  }
+
+  private void log(ReactMarkerConstants name, @Nullable String tag, long threadId, long timeMs) {
+    log(name, tag, 0, threadId, timeMs);
+  }
+
+  private void log(
+      ReactMarkerConstants name,
+      @Nullable String tag,
+      int instanceKey,
+      long threadId,
+      long timeMs) {
+    // An offset, so that the report has to make times relative to the first marker.
+    mEvents.add(
+        new StartupTraceReport.Event(
+            name, tag, instanceKey, ms(1000 + timeMs), threadId, "thread-" + threadId));
+  }
+
+  private static long ms(long timeMs) {
+    return timeMs * 1000000L;
+  }
+
+  private static void assertSpan(
+      StartupTraceReport.Span span,
+      String name,
+      @Nullable String tag,
+      long startMs,
+      long durationMs) {
+    assertEquals(name, span.getName());
+    assertEquals(tag, span.getTag());
+    assertEquals(ms(startMs), span.getStartNs());
+    assertEquals(ms(durationMs), span.getDurationNs());
+  }
+
+  private static void assertStep(
+      StartupTraceReport.CriticalPathStep step,
+      String name,
+      int depth) {
+    assertEquals(name, step.getSpan().getName());
+    assertEquals(depth, step.getDepth());
+  }
+
+  private static void assertContains(String json, String expected) {
+    assertTrue("Expected " + expected + " in " + json, json.contains(expected));
+  }
+}
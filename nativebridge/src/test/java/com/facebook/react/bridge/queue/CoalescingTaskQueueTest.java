@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Runs against {@link ExecutorMessageQueueThread}, which shares {@link BoundedTaskQueue} and
+ * {@link CoalescingTaskQueue} with the Looper based queues but doesn't need a Looper.
+ */
+public class CoalescingTaskQueueTest {
+
+  private static final long TIMEOUT_MS = 5000;
+  private static final String KEY = "key";
+
+  private static final QueueThreadExceptionHandler RETHROW = new QueueThreadExceptionHandler() {
+    @Override
+    public void handleException(Exception e) {
+      throw new RuntimeException(e);
+    }
+  };
+
+  private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+  private final List<String> mRun = new ArrayList<>();
+  private final CountDownLatch mGateStarted = new CountDownLatch(1);
+  private final CountDownLatch mGateReleased = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    mGateReleased.countDown();
+    mExecutor.shutdownNow();
+  }
+
+  @Test
+  public void pendingTaskRunsTheLatestSubmission() throws Exception {
+    ExecutorMessageQueueThread queue = createQueue(
+        MessageQueueThreadSpec.UNBOUNDED_CAPACITY,
+        QueueOverflowPolicy.BLOCK);
+    block(queue);
+    queue.runOnQueueCoalesced(KEY, record("first"));
+    queue.runOnQueueCoalesced(KEY, record("second"));
+    release(queue);
+
+    assertRun("second");
+    assertEquals(1, queue.getCoalescedTaskCount());
+  }
+
+  @Test
+  public void rejectionByFinishedQueueReleasesTheKey() {
+    ExecutorMessageQueueThread queue = createQueue(
+        MessageQueueThreadSpec.UNBOUNDED_CAPACITY,
+        QueueOverflowPolicy.BLOCK);
+    queue.quitSynchronous();
+    queue.runOnQueueCoalesced(KEY, record("first"));
+    queue.runOnQueueCoalesced(KEY, record("second"));
+
+    assertEquals(0, queue.getCoalescedTaskCount());
+    assertEquals(2, queue.getRejectedTaskCount());
+  }
+
+  @Test
+  public void rejectionByDropNewestReleasesTheKey() throws Exception {
+    ExecutorMessageQueueThread queue = createQueue(1, QueueOverflowPolicy.DROP_NEWEST);
+    block(queue);
+    queue.runOnQueue(record("filler"));
+    queue.runOnQueueCoalesced(KEY, record("rejected"));
+    release(queue);
+    queue.runOnQueueCoalesced(KEY, record("accepted"));
+    awaitIdle(queue);
+
+    assertRun("filler", "accepted");
+    assertEquals(0, queue.getCoalescedTaskCount());
+    assertEquals(1, queue.getRejectedTaskCount());
+  }
+
+  @Test
+  public void evictionByDropOldestReleasesTheKey() throws Exception {
+    evictionReleasesTheKey(QueueOverflowPolicy.DROP_OLDEST);
+  }
+
+  @Test
+  public void evictionByCoalesceReleasesTheKey() throws Exception {
+    evictionReleasesTheKey(QueueOverflowPolicy.COALESCE);
+  }
+
+  private void evictionReleasesTheKey(QueueOverflowPolicy overflowPolicy) throws Exception {
+    ExecutorMessageQueueThread queue = createQueue(1, overflowPolicy);
+    block(queue);
+    queue.runOnQueueCoalesced(KEY, record("evicted"));
+    queue.runOnQueue(record("filler"));
+    // Must enqueue a fresh task, evicting the filler in turn, rather than update the evicted one.
+    queue.runOnQueueCoalesced(KEY, record("accepted"));
+    release(queue);
+
+    assertRun("accepted");
+    assertEquals(0, queue.getCoalescedTaskCount());
+    assertEquals(2, queue.getDroppedTaskCount());
+  }
+
+  private ExecutorMessageQueueThread createQueue(
+      int capacity,
+      QueueOverflowPolicy overflowPolicy) {
+    return ExecutorMessageQueueThread.create("test", mExecutor, RETHROW, capacity, overflowPolicy);
+  }
+
+  /**
+   * Keeps the queue busy until {@link #release}, so that what is submitted meanwhile stays pending.
+   */
+  private void block(MessageQueueThread queue) throws InterruptedException {
+    queue.runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        mGateStarted.countDown();
+        try {
+          mGateReleased.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    assertTrue(mGateStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+  }
+
+  private void release(MessageQueueThread queue) {
+    mGateReleased.countDown();
+    awaitIdle(queue);
+  }
+
+  private static void awaitIdle(MessageQueueThread queue) {
+    // Synchronous calls bypass the capacity, so this can't evict anything.
+    queue.runOnQueueSync(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+
+  private Runnable record(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        synchronized (mRun) {
+          mRun.add(name);
+        }
+      }
+    };
+  }
+
+  private void assertRun(String... names) {
+    List<String> expected = new ArrayList<>();
+    for (String name : names) {
+      expected.add(name);
+    }
+    synchronized (mRun) {
+      assertEquals(expected, mRun);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.bridge.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ExecutorMessageQueueThreadTest {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  private static final QueueThreadExceptionHandler RETHROW = new QueueThreadExceptionHandler() {
+    @Override
+    public void handleException(Exception e) {
+      throw new RuntimeException(e);
+    }
+  };
+
+  private static final Runnable NOOP = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  /**
+   * Runs each Runnable on a new Thread, whose uncaught Throwables are swallowed, and can be told
+   * to refuse Runnables like an executor that was shut down.
+   */
+  private static class ThreadPerTaskExecutor implements Executor {
+    private final AtomicBoolean mIsRejecting = new AtomicBoolean(false);
+
+    @Override
+    public void execute(Runnable runnable) {
+      if (mIsRejecting.get()) {
+        throw new RejectedExecutionException("Shut down");
+      }
+      Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+        }
+      });
+      thread.start();
+    }
+  }
+
+  @Test
+  public void errorThrownByATaskDoesNotWedgeTheQueue() throws Exception {
+    ExecutorMessageQueueThread queue =
+        ExecutorMessageQueueThread.create("test", new ThreadPerTaskExecutor(), RETHROW);
+    queue.runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        throw new AssertionError("Task failure");
+      }
+    });
+
+    assertCompletes(queue, NOOP);
+    quitWithin(queue);
+  }
+
+  @Test
+  public void rejectedDrainDoesNotWedgeTheQueue() throws Exception {
+    ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor();
+    ExecutorMessageQueueThread queue = ExecutorMessageQueueThread.create("test", executor, RETHROW);
+    final AtomicBoolean discarded = new AtomicBoolean(false);
+    executor.mIsRejecting.set(true);
+    queue.runOnQueue(new DiscardableRunnable() {
+      @Override
+      public void run() {
+        fail("Ran a task its queue could not schedule");
+      }
+
+      @Override
+      public void onDiscarded() {
+        discarded.set(true);
+      }
+    });
+    try {
+      queue.runOnQueueSync(NOOP);
+      fail("Expected a RejectedExecutionException");
+    } catch (RejectedExecutionException e) {
+      // Expected.
+    }
+
+    assertTrue(discarded.get());
+    assertEquals(1, queue.getRejectedTaskCount());
+    executor.mIsRejecting.set(false);
+    assertCompletes(queue, NOOP);
+    quitWithin(queue);
+  }
+
+  @Test
+  public void quitReleasesPendingSyncCallers() throws Exception {
+    final ExecutorMessageQueueThread queue =
+        ExecutorMessageQueueThread.create("test", new ThreadPerTaskExecutor(), RETHROW);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    queue.runOnQueue(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    assertTrue(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread caller = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          queue.runOnQueueSync(NOOP);
+        } catch (Throwable t) {
+          failure.set(t);
+        }
+      }
+    });
+    caller.start();
+    // Lets the caller park on its pending call.
+    caller.join(100);
+
+    Thread quitter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.quitSynchronous();
+      }
+    });
+    quitter.start();
+    caller.join(TIMEOUT_MS);
+    assertFalse(caller.isAlive());
+    assertTrue(failure.get() instanceof IllegalStateException);
+
+    release.countDown();
+    quitter.join(TIMEOUT_MS);
+    assertFalse(quitter.isAlive());
+  }
+
+  private static void assertCompletes(final MessageQueueThread queue, final Runnable runnable)
+      throws InterruptedException {
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread caller = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          queue.runOnQueueSync(runnable);
+        } catch (Throwable t) {
+          failure.set(t);
+        }
+      }
+    });
+    caller.start();
+    caller.join(TIMEOUT_MS);
+    assertFalse("The queue was wedged", caller.isAlive());
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+
+  private static void quitWithin(final MessageQueueThread queue) throws InterruptedException {
+    Thread quitter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        queue.quitSynchronous();
+      }
+    });
+    quitter.start();
+    quitter.join(TIMEOUT_MS);
+    assertFalse("quitSynchronous never returned", quitter.isAlive());
+  }
+}
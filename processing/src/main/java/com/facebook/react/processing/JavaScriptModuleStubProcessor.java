@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) Facebook, Inc. and its affiliates.
+ *
+ * This source code is licensed under the MIT license found in the
+ * LICENSE file in the root directory of this source tree.
+ */
+
+package com.facebook.react.processing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates, for every {@code JavaScriptModule} interface being compiled, a class implementing it
+ * that marshals the arguments of each call straight into a {@code WritableNativeArray} and passes
+ * it to {@code CatalystInstance#callFunction}. {@code JavaScriptModuleRegistry} instantiates the
+ * generated class instead of a {@link java.lang.reflect.Proxy} when it can find it, which avoids
+ * boxing the arguments and dispatching on their runtime class on every call.
+ *
+ * The generated class for {@code com.example.Foo} is {@code com.example.Foo$$JavaScriptModuleStub},
+ * see {@link #STUB_SUFFIX}. Interfaces that can't be implemented that way (generic, private, or with
+ * generic methods or methods that return a value) are skipped and keep using the proxy.
+ */
+@SupportedAnnotationTypes("*")
+public class JavaScriptModuleStubProcessor extends AbstractProcessor {
+
+  // Keep in sync with JavaScriptModuleRegistry.
+  public static final String STUB_SUFFIX = "$$JavaScriptModuleStub";
+
+  private static final String JAVA_SCRIPT_MODULE = "com.facebook.react.bridge.JavaScriptModule";
+  private static final String CATALYST_INSTANCE = "com.facebook.react.bridge.CatalystInstance";
+  private static final String WRITABLE_NATIVE_ARRAY =
+    "com.facebook.react.bridge.WritableNativeArray";
+  private static final String ARGUMENTS = "com.facebook.react.bridge.Arguments";
+  private static final String DO_NOT_STRIP = "com.facebook.proguard.annotations.DoNotStrip";
+
+  private Elements mElements;
+  private Types mTypes;
+  private Filer mFiler;
+  private Messager mMessager;
+  private final Set<String> mGeneratedInterfaces = new HashSet<>();
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    mElements = processingEnv.getElementUtils();
+    mTypes = processingEnv.getTypeUtils();
+    mFiler = processingEnv.getFiler();
+    mMessager = processingEnv.getMessager();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    TypeElement javaScriptModule = mElements.getTypeElement(JAVA_SCRIPT_MODULE);
+    if (javaScriptModule == null) {
+      // Not compiling against the bridge.
+      return false;
+    }
+    for (Element element : roundEnv.getRootElements()) {
+      processElement(element, javaScriptModule);
+    }
+    // Never claim the annotations, other processors may need them.
+    return false;
+  }
+
+  private void processElement(Element element, TypeElement javaScriptModule) {
+    if (element.getKind() == ElementKind.INTERFACE &&
+      !element.equals(javaScriptModule) &&
+      mTypes.isAssignable(element.asType(), mTypes.erasure(javaScriptModule.asType()))) {
+      generateStub((TypeElement) element);
+    }
+    for (TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+      processElement(nested, javaScriptModule);
+    }
+  }
+
+  private void generateStub(TypeElement moduleInterface) {
+    String interfaceName = moduleInterface.getQualifiedName().toString();
+    if (!mGeneratedInterfaces.add(interfaceName) || !canImplement(moduleInterface)) {
+      return;
+    }
+
+    List<ExecutableElement> methods = getMethods(moduleInterface);
+    Set<String> methodNames = new HashSet<>();
+    for (ExecutableElement method : methods) {
+      if (!methodNames.add(method.getSimpleName().toString())) {
+        mMessager.printMessage(
+          Diagnostic.Kind.ERROR,
+          "Method overloading is unsupported: " + interfaceName + "#" + method.getSimpleName(),
+          method);
+        return;
+      }
+      if (method.getReturnType().getKind() != TypeKind.VOID) {
+        mMessager.printMessage(
+          Diagnostic.Kind.WARNING,
+          "Not generating a stub for " + interfaceName + ": JS module methods can't return a value",
+          method);
+        return;
+      }
+      if (!method.getTypeParameters().isEmpty()) {
+        return;
+      }
+    }
+
+    String packageName = mElements.getPackageOf(moduleInterface).getQualifiedName().toString();
+    String binaryName = mElements.getBinaryName(moduleInterface).toString();
+    String stubSimpleName =
+      (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) +
+        STUB_SUFFIX;
+    String stubName = packageName.isEmpty() ? stubSimpleName : packageName + "." + stubSimpleName;
+
+    StringBuilder source = new StringBuilder();
+    source.append("// Generated by ").append(getClass().getName()).append(". Do not edit.\n\n");
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("@").append(DO_NOT_STRIP).append("\n");
+    source.append("public final class ").append(stubSimpleName)
+      .append(" implements ").append(interfaceName).append(" {\n\n");
+    source.append("  private static final String MODULE_NAME = \"")
+      .append(moduleInterface.getSimpleName()).append("\";\n\n");
+    source.append("  private final ").append(CATALYST_INSTANCE).append(" mCatalystInstance;\n\n");
+    source.append("  @").append(DO_NOT_STRIP).append("\n");
+    source.append("  public ").append(stubSimpleName).append("(")
+      .append(CATALYST_INSTANCE).append(" catalystInstance) {\n");
+    source.append("    mCatalystInstance = catalystInstance;\n");
+    source.append("  }\n");
+    for (ExecutableElement method : methods) {
+      appendMethod(source, method);
+    }
+    source.append("}\n");
+
+    try (Writer writer = mFiler.createSourceFile(stubName, moduleInterface).openWriter()) {
+      writer.write(source.toString());
+    } catch (IOException e) {
+      mMessager.printMessage(
+        Diagnostic.Kind.ERROR,
+        "Could not write " + stubName + ": " + e.getMessage(),
+        moduleInterface);
+    }
+  }
+
+  private static boolean canImplement(TypeElement moduleInterface) {
+    if (!moduleInterface.getTypeParameters().isEmpty()) {
+      return false;
+    }
+    // The stub is a top level class in the same package, so every enclosing type must be visible
+    // to it.
+    Element element = moduleInterface;
+    while (element instanceof TypeElement) {
+      if (element.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+      element = element.getEnclosingElement();
+    }
+    return true;
+  }
+
+  /**
+   * @return the abstract methods of {@code moduleInterface}, including inherited ones.
+   */
+  private List<ExecutableElement> getMethods(TypeElement moduleInterface) {
+    List<ExecutableElement> methods =
+      ElementFilter.methodsIn(mElements.getAllMembers(moduleInterface));
+    for (int i = methods.size() - 1; i >= 0; i--) {
+      ExecutableElement method = methods.get(i);
+      if (!method.getModifiers().contains(Modifier.ABSTRACT) ||
+        method.getEnclosingElement().getKind() != ElementKind.INTERFACE) {
+        methods.remove(i);
+      }
+    }
+    return methods;
+  }
+
+  private void appendMethod(StringBuilder source, ExecutableElement method) {
+    List<? extends VariableElement> parameters = method.getParameters();
+    source.append("\n  @Override\n");
+    source.append("  public void ").append(method.getSimpleName()).append("(");
+    for (int i = 0; i < parameters.size(); i++) {
+      if (i > 0) {
+        source.append(", ");
+      }
+      TypeMirror type = parameters.get(i).asType();
+      if (method.isVarArgs() && i == parameters.size() - 1) {
+        // Keeps the override a varargs method, like the one it implements.
+        source.append(((ArrayType) type).getComponentType()).append("...");
+      } else {
+        source.append(type);
+      }
+      source.append(" arg").append(i);
+    }
+    source.append(") {\n");
+    if (parameters.isEmpty()) {
+      // Same as the proxy: zero-arg calls don't need a native array.
+      source.append("    mCatalystInstance.callFunction(MODULE_NAME, \"")
+        .append(method.getSimpleName()).append("\", null);\n");
+    } else {
+      source.append("    ").append(WRITABLE_NATIVE_ARRAY).append(" args = new ")
+        .append(WRITABLE_NATIVE_ARRAY).append("();\n");
+      for (int i = 0; i < parameters.size(); i++) {
+        appendPush(source, parameters.get(i).asType(), "arg" + i);
+      }
+      source.append("    mCatalystInstance.callFunction(MODULE_NAME, \"")
+        .append(method.getSimpleName()).append("\", args);\n");
+    }
+    source.append("  }\n");
+  }
+
+  /**
+   * Appends the statement pushing {@code name} onto {@code args}. Converts values the same way as
+   * {@code Arguments#fromJavaArgs}, falling back to it for types it has to check at runtime.
+   */
+  private static void appendPush(StringBuilder source, TypeMirror type, String name) {
+    switch (type.getKind()) {
+      case BOOLEAN:
+        source.append("    args.pushBoolean(").append(name).append(");\n");
+        return;
+      case INT:
+      case FLOAT:
+      case DOUBLE:
+        source.append("    args.pushDouble(").append(name).append(");\n");
+        return;
+      case DECLARED:
+        String typeName =
+          ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        switch (typeName) {
+          case "java.lang.Boolean":
+            appendNullablePush(source, name, "args.pushBoolean(" + name + ")");
+            return;
+          case "java.lang.Integer":
+          case "java.lang.Float":
+          case "java.lang.Double":
+            appendNullablePush(source, name, "args.pushDouble(" + name + ")");
+            return;
+          case "java.lang.String":
+            source.append("    args.pushString(").append(name).append(");\n");
+            return;
+          case "com.facebook.react.bridge.WritableMap":
+          case "com.facebook.react.bridge.WritableNativeMap":
+            source.append("    args.pushMap(").append(name).append(");\n");
+            return;
+          case "com.facebook.react.bridge.WritableArray":
+          case "com.facebook.react.bridge.WritableNativeArray":
+            source.append("    args.pushArray(").append(name).append(");\n");
+            return;
+          default:
+            break;
+        }
+        break;
+      default:
+        break;
+    }
+    source.append("    ").append(ARGUMENTS).append(".pushJavaArg(args, ").append(name)
+      .append(");\n");
+  }
+
+  private static void appendNullablePush(StringBuilder source, String name, String push) {
+    source.append("    if (").append(name).append(" == null) {\n");
+    source.append("      args.pushNull();\n");
+    source.append("    } else {\n");
+    source.append("      ").append(push).append(";\n");
+    source.append("    }\n");
+  }
+}